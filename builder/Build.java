@@ -55,6 +55,7 @@ public class Build {
             boolean assume     = false;
             boolean excessiveGC= false;
             boolean macroize   = true;
+            boolean threaded   = false;
             String  cflags     = "";
             String  lflags     = "";
         }
@@ -206,6 +207,7 @@ public class Build {
             if (options.assume)            { buf.append("-DASSUME ");         }
             if (options.excessiveGC)       { buf.append("-DEXCESSIVEGC ");    }
             if (options.macroize)          { buf.append("-DMACROIZE ");       }
+            if (options.threaded)          { buf.append("-DTHREADED ");       }
             return buf.append(options.cflags+" ").toString();
         }
 
@@ -560,6 +562,13 @@ public class Build {
                 return java("-Xms128M -Xmx128M -cp j2se/classes;j2me/classes;j2se/brazil-1.1-min.jar", "com.sun.squawk.profiler.Profiler", options);
             }
         },
+        new Command("imagerestore") {
+            public int run(String[] args) throws Exception {
+                stdout.println("Running imagerestore...");
+                String options = join(args, 0, args.length, " ");
+                return java("-cp j2se/classes;j2me/classes", "com.sun.squawk.imagerestore.ImageRestore", options);
+            }
+        },
         new Command("classpathtest") {
             public int run(String[] args) throws Exception {
                 stdout.println("Running classpathtest...");
@@ -1350,6 +1359,8 @@ public class Build {
         usageln(true, out,  "    -assume             include support for assertions in the VM");
         usageln(true, out,  "    -excessiveGC        include support for excessive GC in the VM");
         usageln(true, out,  "    -prod               build the production version of the VM");
+        usageln(true, out,  "    -threaded           use threaded (computed goto) dispatch in the");
+        usageln(true, out,  "                        interpreter loop (gcc only)");
         usageln(false, out, "    -t                  time the execution of the command(s) executed");
         usageln(true, out,  "    -cl                 clear lines excluded by Java preprocessor (instead");
         usageln(true, out,  "                        of commenting them out)");
@@ -1513,6 +1524,8 @@ public class Build {
                 cOptions.stats = true;
             } else if (arg.equals("-nomacroize")) {
                 cOptions.macroize = false;
+            } else if (arg.equals("-threaded")) {
+                cOptions.threaded = true;
             } else if (arg.startsWith("-prod")) {
                 cOptions.production = true;
             } else if (arg.equals("-tracing")) {
@@ -2621,6 +2634,212 @@ if (c.name().equals("jcard3")) {
         }
     }
 
+    /**
+     * Rewrites the body of a switch statement marked with the
+     * <code>/*DISPATCH*&#47;</code> prefix so that it can be compiled with
+     * threaded dispatch. Each top level case is given a label (via the
+     * <code>DISPATCH_LABEL</code> macro) and each <code>continue</code> that
+     * would restart the enclosing loop is replaced with the
+     * <code>DISPATCH</code> macro. The table mapping opcodes to labels is
+     * written to a separate header file that is included just before the
+     * switch when compiling with -DTHREADED.
+     */
+    static class DispatchSwitch {
+
+        /** The name of the generated header file (relative to the C source). */
+        final String headerName;
+
+        /** The entries of the label table. */
+        private final Vector entries = new Vector();
+
+        /** The label of the default case. */
+        private String defaultLabel;
+
+        /** Used to give each case label a unique name. */
+        private int labelCount;
+
+        /** The current brace nesting level relative to the switch statement. */
+        private int depth;
+
+        /** The brace nesting level of the switch body. */
+        private int bodyDepth = -1;
+
+        /** The nesting levels of the loops opened inside the switch. */
+        private final Stack loops = new Stack();
+
+        /** Set when a 'for', 'while' or 'do' has been seen whose body has not been opened yet. */
+        private boolean pendingLoop;
+        private int parens;
+        private boolean inComment;
+        private boolean finished;
+
+        DispatchSwitch(String headerName) {
+            this.headerName = headerName;
+        }
+
+        boolean isFinished() {
+            return finished;
+        }
+
+        /**
+         * Rewrite one line of the switch statement.
+         *
+         * @param line the line after constant replacement
+         * @return the rewritten line
+         */
+        String rewrite(String line) {
+            StringBuffer buf = new StringBuffer(line.length() + 32);
+            int length = line.length();
+            int i = 0;
+            while (i < length) {
+                char ch = line.charAt(i);
+                if (inComment) {
+                    if (line.startsWith(CLOSE_C_COMMENT, i)) {
+                        inComment = false;
+                        buf.append(CLOSE_C_COMMENT);
+                        i += 2;
+                    } else {
+                        buf.append(ch);
+                        i++;
+                    }
+                    continue;
+                }
+                if (line.startsWith("//", i)) {
+                    buf.append(line.substring(i));
+                    break;
+                }
+                if (line.startsWith(OPEN_C_COMMENT, i)) {
+                    inComment = true;
+                    buf.append(OPEN_C_COMMENT);
+                    i += 2;
+                    continue;
+                }
+                if (ch == '"' || ch == '\'') {
+                    int end = i + 1;
+                    while (end < length && line.charAt(end) != ch) {
+                        if (line.charAt(end) == '\\') {
+                            end++;
+                        }
+                        end++;
+                    }
+                    end = Math.min(end + 1, length);
+                    buf.append(line.substring(i, end));
+                    i = end;
+                    continue;
+                }
+                if (Character.isJavaIdentifierStart(ch)) {
+                    int end = i + 1;
+                    while (end < length && Character.isJavaIdentifierPart(line.charAt(end))) {
+                        end++;
+                    }
+                    String word = line.substring(i, end);
+                    if (depth == bodyDepth && (word.equals("case") || word.equals("default"))) {
+                        int colon = findLabelEnd(line, end);
+                        buf.append(line.substring(i, colon + 1));
+                        String label = "op_" + (labelCount++);
+                        if (word.equals("default")) {
+                            defaultLabel = label;
+                        } else {
+                            entries.addElement("[" + stripComments(line.substring(end, colon)).trim() + "] = &&" + label);
+                        }
+                        buf.append(" DISPATCH_LABEL(" + label + ")");
+                        i = colon + 1;
+                        continue;
+                    }
+                    if (word.equals("continue") && loops.isEmpty() && line.startsWith(";", end)) {
+                        word = "DISPATCH";
+                    } else if (word.equals("for") || word.equals("while") || word.equals("do")) {
+                        pendingLoop = true;
+                    }
+                    buf.append(word);
+                    i = end;
+                    continue;
+                }
+                switch (ch) {
+                    case '(': parens++; break;
+                    case ')': parens--; break;
+                    case ';': if (parens == 0) pendingLoop = false; break;
+                    case '{': {
+                        depth++;
+                        if (bodyDepth == -1) {
+                            bodyDepth = depth;
+                        } else if (pendingLoop) {
+                            loops.push(new Integer(depth));
+                            pendingLoop = false;
+                        }
+                        break;
+                    }
+                    case '}': {
+                        if (!loops.isEmpty() && ((Integer)loops.peek()).intValue() == depth) {
+                            loops.pop();
+                        }
+                        depth--;
+                        if (depth < bodyDepth) {
+                            finished = true;
+                        }
+                        break;
+                    }
+                }
+                buf.append(ch);
+                i++;
+            }
+            return buf.toString();
+        }
+
+        /**
+         * Find the colon terminating a case label, skipping over comments.
+         */
+        private static int findLabelEnd(String line, int index) {
+            while (index < line.length()) {
+                if (line.startsWith(OPEN_C_COMMENT, index)) {
+                    int end = line.indexOf(CLOSE_C_COMMENT, index + 2);
+                    if (end == -1) {
+                        break;
+                    }
+                    index = end + 2;
+                } else if (line.charAt(index) == ':') {
+                    return index;
+                } else {
+                    index++;
+                }
+            }
+            throw new CommandFailedException("Cannot find end of case label in: " + line);
+        }
+
+        private static String stripComments(String s) {
+            int start;
+            while ((start = s.indexOf(OPEN_C_COMMENT)) != -1) {
+                int end = s.indexOf(CLOSE_C_COMMENT, start + 2);
+                s = s.substring(0, start) + s.substring(end + 2);
+            }
+            return s;
+        }
+
+        /**
+         * Write the label table. All opcodes without an explicit case are
+         * mapped to the default case.
+         */
+        void writeHeader(File file) throws IOException {
+            if (!finished) {
+                throw new CommandFailedException("Unterminated dispatch switch");
+            }
+            if (defaultLabel == null) {
+                throw new CommandFailedException("Dispatch switch requires a default case");
+            }
+            PrintStream out = new PrintStream(new FileOutputStream(file));
+            out.println("/**** Created by Squawk builder ****/");
+            out.println("static void *dispatchTable[256] = {");
+            out.print("    [0 ... 255] = &&" + defaultLabel);
+            for (Enumeration e = entries.elements(); e.hasMoreElements();) {
+                out.println(",");
+                out.print("    " + e.nextElement());
+            }
+            out.println();
+            out.println("};");
+            out.close();
+        }
+    }
+
     /**
      * Preprocess a Java source file to turn it into a C source file.
      * @param filelist
@@ -2653,11 +2872,25 @@ if (c.name().equals("jcard3")) {
                 boolean inConstantsDecl      = false;
                 boolean inConstantsArrayDecl = false;
 
+                // The switch statement being converted for threaded dispatch
+                DispatchSwitch dispatch = null;
+
                 while ((line = br.readLine()) != null) {
                     lineNo++;
                     String prefix = null;
                     if (line.startsWith("/*IFJ*/")) {
                         line = "/**** Line deleted by Squawk builder ****/";
+                    } else if (line.startsWith("/*DISPATCH*/")) {
+                        if (dispatch != null) {
+                            throw new CommandFailedException("Only one dispatch switch is supported per file: "+files[i]+":"+lineNo);
+                        }
+                        String header = new File(fileName).getName();
+                        header = header.substring(0, header.lastIndexOf('.')) + "_dispatch.h";
+                        dispatch = new DispatchSwitch(header);
+                        out.println("#ifdef THREADED");
+                        out.println("#include \""+header+"\"");
+                        out.println("#endif /* THREADED */");
+                        line = line.substring("/*DISPATCH*/".length());
                     } else if (line.startsWith("//IFC//")) {
                         line = line.substring(7);
                         if (line.length() > 0 && line.charAt(0) != '#') {
@@ -2773,6 +3006,9 @@ if (c.name().equals("jcard3")) {
                         if (line.startsWith("//")) {
                             line = "";
                         } else {
+                            if (dispatch != null && !dispatch.isFinished()) {
+                                line = dispatch.rewrite(line);
+                            }
                             if (prefix != null) {
                                 out.print(prefix);
                             }
@@ -2793,6 +3029,9 @@ if (c.name().equals("jcard3")) {
                 if (macro != null) {
                     throw new IOException("unclosed macro");
                 }
+                if (dispatch != null) {
+                    dispatch.writeHeader(new File(new File(fileName).getParentFile(), dispatch.headerName));
+                }
                 out.close();
                 fos.close();
             }
@@ -244,6 +244,10 @@ public class CodeGen {
         makex("this_putfield_o",    2, -1);
         makex("this_putfield_i2",   2, -2);
 
+        // Superinstructions
+
+        makex("this_getfield_return1", 2, 1);
+
         next   = 0;
 
         isLong = true;
@@ -120,6 +120,10 @@
         PANEL_GETFONTMETRICS     = 99,
         TOOLKIT_CREATEIMAGE      = 100,
 
+        /* Opcode for a display list of graphics opcodes (channels 2 and 3) */
+
+        DRAWLIST                 = 101,
+
         AWTEVENT_exit               = 0,
         AWTEVENT_update             = 1,
         AWTEVENT_paint              = 2,
@@ -265,7 +265,8 @@
         "this_putfield_b",
         "this_putfield_s",
         "this_putfield_o",
-        "this_putfield_i2"
+        "this_putfield_i2",
+        "this_getfield_return1"
     };
 //IFC//#endif
 //IFC//#ifdef TRACING
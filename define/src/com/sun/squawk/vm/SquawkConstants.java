@@ -211,6 +211,10 @@
     CLS_STATE_offsetToFields    = 2,
     CLS_STATE_TABLE_SIZE        = /*VAL*/16/*VM.CLASSSTATE_HASHTABLE_SIZE*/, /* Must be a power of 2. */
 
+    /* Invoke inline cache */
+
+    IC_TABLE_SIZE               = /*VAL*/256/*VM.INLINECACHE_SIZE*/, /* Must be a power of 2. */
+
     /* Internal exception codes */
 
     EXNO_None                   =  0,
@@ -243,6 +247,12 @@
     MMR_ramSize                 = 7,
     MMR_SIZE                    = 8,
 
+    /* Checkpoint delta file (see PlatformAbstraction.openImageDelta) */
+
+    CKPT_MAGICNUMBER            = 0x03021958,
+    CKPT_REGIONSHIFT            = 10,
+    CKPT_REGIONSIZE             = 1024,     /* Granularity (in bytes) of changed regions (1 << CKPT_REGIONSHIFT) */
+
 
     /* GC information record (all values are word offsets) */
 
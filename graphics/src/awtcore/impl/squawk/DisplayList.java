@@ -0,0 +1,151 @@
+package awtcore.impl.squawk;
+
+import com.sun.squawk.vm.ChannelOpcodes;
+
+/**
+ * The drawing operations that have not yet been sent to channel 2. Each
+ * one is encoded as its opcode followed by its operands, and the whole list
+ * is sent as a single DRAWLIST operation when the toolkit syncs, before any
+ * other channel 2 operation, before the event dispatcher blocks waiting for
+ * the next event and when the list is full. Drawing done outside a repaint
+ * pass by a thread that then goes on to do something else is sent by the
+ * flusher thread at most FLUSH_DELAY milliseconds after it was added.
+ */
+class DisplayList {
+
+    /**
+     * The maximum time in milliseconds that an operation stays in the list
+     * when nothing else causes it to be sent.
+     */
+    private static final int FLUSH_DELAY = 50;
+
+    private static int[] list = new int[1024];
+    private static int size;
+
+    private static final Flusher flusher = new Flusher();
+
+    static {
+        flusher.start();
+    }
+
+    /**
+     * The thread that sends the list once it has not been sent for
+     * FLUSH_DELAY milliseconds after something was added to it.
+     */
+    static class Flusher extends Thread {
+
+        private boolean pending;
+
+        /**
+         * Note that the list has gone from empty to non-empty.
+         */
+        synchronized void schedule() {
+            if (!pending) {
+                pending = true;
+                notify();
+            }
+        }
+
+        private synchronized void awaitSchedule() {
+            while (!pending) {
+                try {
+                    wait();
+                } catch (InterruptedException ex) {
+                }
+            }
+            pending = false;
+        }
+
+        public void run() {
+            while (true) {
+                awaitSchedule();
+                try {
+                    Thread.sleep(FLUSH_DELAY);
+                } catch (InterruptedException ex) {
+                }
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Make room for <code>n</code> more ints.
+     */
+    private static void reserve(int n) {
+        if (size + n > list.length) {
+            flush();
+            if (n > list.length) {
+                list = new int[n];
+            }
+        }
+        if (size == 0) {
+            flusher.schedule();
+        }
+    }
+
+    /**
+     * Add an operation with up to six operands.
+     */
+    static synchronized void add(int op, int count, int a, int b, int c, int d, int e, int f) {
+        reserve(count + 1);
+        list[size++] = op;
+        switch (count) {
+            case 6: list[size + 5] = f;
+            case 5: list[size + 4] = e;
+            case 4: list[size + 3] = d;
+            case 3: list[size + 2] = c;
+            case 2: list[size + 1] = b;
+            case 1: list[size    ] = a;
+        }
+        size += count;
+    }
+
+    /**
+     * Add an operation whose operands are two ints and a string. The
+     * characters are packed two to an int.
+     */
+    static synchronized void addString(int op, int x, int y, String s) {
+        int length = s.length();
+        reserve(4 + (length + 1) / 2);
+        list[size++] = op;
+        list[size++] = x;
+        list[size++] = y;
+        list[size++] = length;
+        for (int i = 0; i < length; i += 2) {
+            int hi = s.charAt(i);
+            int lo = (i + 1 < length) ? s.charAt(i + 1) : 0;
+            list[size++] = (hi << 16) | lo;
+        }
+    }
+
+    /**
+     * Add an operation whose operands are the points of a polygon.
+     */
+    static synchronized void addPolygon(int op, int[] x, int[] y, int count) {
+        reserve(2 + count * 2);
+        list[size++] = op;
+        list[size++] = count;
+        System.arraycopy(x, 0, list, size, count);
+        System.arraycopy(y, 0, list, size + count, count);
+        size += count * 2;
+    }
+
+    /**
+     * Send the list to the channel.
+     */
+    static synchronized void flush() {
+        if (size > 0) {
+            int n = size;
+            size = 0;
+            Native.execIO2(ChannelOpcodes.DRAWLIST, n, 0, 0, 0, 0, 0, list, null, null);
+        }
+    }
+
+    /**
+     * Execute any other operation on the channel once the list is sent.
+     */
+    static long execIO2(int op, int i1, int i2, int i3, int i4, int i5, int i6, Object send1, Object send2, Object receive1) {
+        flush();
+        return Native.execIO2(op, i1, i2, i3, i4, i5, i6, send1, send2, receive1);
+    }
+}
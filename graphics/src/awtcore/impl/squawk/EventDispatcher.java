@@ -42,6 +42,7 @@ public class EventDispatcher extends Thread {
     }
 
     private long getKeystroke() {
+        DisplayList.flush();
         try {
             return Native.execIO(1, ChannelOpcodes.READLONG, 0, 0, 0, 0, 0, 0, null, null, null);
         } catch(IOException ex) {
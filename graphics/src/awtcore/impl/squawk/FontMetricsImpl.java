@@ -2,13 +2,30 @@
 package awtcore.impl.squawk;
 
 import java.awt.*;
+import com.sun.squawk.util.IntHashtable;
 import com.sun.squawk.vm.ChannelOpcodes;
 
 public class FontMetricsImpl extends FontMetrics {
 
+    /**
+     * The length of the reply to CREATEFONTMETRICS: the font index, then the
+     * height, ascent and descent and the widths of the Latin-1 characters as
+     * shorts.
+     */
+    private final static int REPLY_LENGTH = 4 + (3 + 256) * 2;
+
+    /**
+     * The metrics already fetched from the host, keyed by size and boldness.
+     */
+    private static IntHashtable tables = new IntHashtable();
+
     static FontMetricsImpl defaultFontMetrics = FontMetricsImpl.create(new Font("plain", Font.PLAIN, 8));
 
     int fontIndex;
+    int height;
+    int ascent;
+    int descent;
+    char[] widths;
 
     static FontMetricsImpl create(Font font) {
         return new FontMetricsImpl(font);
@@ -16,40 +33,76 @@ public class FontMetricsImpl extends FontMetrics {
 
     private FontMetricsImpl(Font font) {
         super(font);
-        fontIndex = createFontMetrics(font.getSize(), font.isBold() ? 1 : 0);
+        FontMetricsImpl metrics = getMetrics(font.getSize(), font.isBold() ? 1 : 0);
+        if (metrics == null) {
+            createFontMetrics(font.getSize(), font.isBold() ? 1 : 0);
+            putMetrics(font.getSize(), font.isBold() ? 1 : 0, this);
+        } else {
+            fontIndex = metrics.fontIndex;
+            height    = metrics.height;
+            ascent    = metrics.ascent;
+            descent   = metrics.descent;
+            widths    = metrics.widths;
+        }
 //if (font.getSize() == 0) throw new RuntimeException();
     }
 
+    private static synchronized FontMetricsImpl getMetrics(int size, int isBold) {
+        return (FontMetricsImpl)tables.get((size << 1) + isBold);
+    }
+
+    private static synchronized void putMetrics(int size, int isBold, FontMetricsImpl metrics) {
+        tables.put((size << 1) + isBold, metrics);
+    }
+
+    /**
+     * The width of a string is summed from the width table unless it has
+     * characters outside the Latin-1 range, which only the host can measure.
+     */
     public int stringWidth(String s) {
-        return fontStringWidth(fontIndex, s);
+        int width = 0;
+        for (int i = 0 ; i < s.length() ; i++) {
+            char ch = s.charAt(i);
+            if (ch >= 256) {
+                return fontStringWidth(fontIndex, s);
+            }
+            width += widths[ch];
+        }
+        return width;
     }
 
     public int getHeight() {
-        return fontGetHeight(fontIndex);
+        return height;
     }
 
     public int getAscent() {
-        return fontGetAscent(fontIndex);
+        return ascent;
     }
 
     public int getDescent() {
-        return fontGetDescent(fontIndex);
+        return descent;
     }
 
-    private int createFontMetrics(int size, int isBold) {
-        return (int)Native.execIO2(ChannelOpcodes.CREATEFONTMETRICS, size, isBold, 0, 0, 0, 0, null, null, null);
-    }
-    private int fontStringWidth(int font, String string) {
-        return (int)Native.execIO2(ChannelOpcodes.FONTSTRINGWIDTH, font, 0, 0, 0, 0, 0, string, null, null);
+    /**
+     * Fetch the metrics of a font and its width table in one transition.
+     */
+    private void createFontMetrics(int size, int isBold) {
+        byte[] reply = new byte[REPLY_LENGTH];
+        DisplayList.execIO2(ChannelOpcodes.CREATEFONTMETRICS, 0, size, isBold, 0, 0, 0, null, null, reply);
+        fontIndex = ((reply[0] & 0xFF) << 24) | ((reply[1] & 0xFF) << 16) | ((reply[2] & 0xFF) << 8) | (reply[3] & 0xFF);
+        height    = getShort(reply, 4);
+        ascent    = getShort(reply, 6);
+        descent   = getShort(reply, 8);
+        widths    = new char[256];
+        for (int i = 0 ; i != 256 ; i++) {
+            widths[i] = (char)getShort(reply, 10 + i * 2);
+        }
     }
-    private int fontGetHeight(int font) {
-        return (int)Native.execIO2(ChannelOpcodes.FONTGETHEIGHT, font, 0, 0, 0, 0, 0, null, null, null);
+    private static int getShort(byte[] reply, int pos) {
+        return ((reply[pos] & 0xFF) << 8) | (reply[pos + 1] & 0xFF);
     }
-    private int fontGetAscent(int font) {
-        return (int)Native.execIO2(ChannelOpcodes.FONTGETASCENT, font, 0, 0, 0, 0, 0, null, null, null);
-    }
-    private int fontGetDescent(int font) {
-        return (int)Native.execIO2(ChannelOpcodes.FONTGETDESCENT, font, 0, 0, 0, 0, 0, null, null, null);
+    private int fontStringWidth(int font, String string) {
+        return (int)DisplayList.execIO2(ChannelOpcodes.FONTSTRINGWIDTH, font, 0, 0, 0, 0, 0, string, null, null);
     }
 
 }
@@ -10,7 +10,22 @@ import com.sun.squawk.vm.ChannelOpcodes;
 public class GraphicsImpl extends Graphics {
 
     static Graphics current;
-    static boolean dirty;
+
+    /**
+     * When ToolkitImpl.partialFlush is on, these record the rectangles drawn
+     * since the screen was last flushed, in screen coordinates. Up to
+     * MAXDIRTY of them are kept. A new rectangle is merged with any that it
+     * overlaps or touches, and when the list is full it is merged with the
+     * one whose bounds grow the least. They are only accessed while holding
+     * dirtyLock.
+     */
+    static final int MAXDIRTY = 4;
+    static final Object dirtyLock = new Object();
+    static int dirtyCount;
+    static final int[] dirtyX1 = new int[MAXDIRTY];
+    static final int[] dirtyY1 = new int[MAXDIRTY];
+    static final int[] dirtyX2 = new int[MAXDIRTY];
+    static final int[] dirtyY2 = new int[MAXDIRTY];
 
     private int orgX = 0;
     private int orgY = 0;
@@ -45,7 +60,6 @@ public class GraphicsImpl extends Graphics {
     private static int lastFont  = -1;
 
     void checkContext() {
-        dirty = true;
         if (current != this) {
             setClip0(clipX, clipY, clipW, clipH);
 
@@ -63,6 +77,94 @@ public class GraphicsImpl extends Graphics {
         }
     }
 
+    /**
+     * Add the part of a rectangle inside the clip to the dirty rectangles.
+     * The rectangle is in screen coordinates.
+     */
+    void addDirty(int x, int y, int w, int h) {
+        if (!ToolkitImpl.partialFlush) {
+            return;
+        }
+        int x1 = Math.max(x, clipX);
+        int y1 = Math.max(y, clipY);
+        int x2 = Math.min(x + w, clipX + clipW);
+        int y2 = Math.min(y + h, clipY + clipH);
+        if (x1 >= x2 || y1 >= y2) {
+            return;
+        }
+        synchronized (dirtyLock) {
+            addDirtyRect(x1, y1, x2, y2);
+        }
+    }
+
+    /**
+     * Add a rectangle to the dirty rectangles. The caller must hold
+     * dirtyLock.
+     */
+    static void addDirtyRect(int x1, int y1, int x2, int y2) {
+        // Absorb every rectangle that the new one overlaps or touches. The
+        // union can reach rectangles that were already checked, so start
+        // again after each merge.
+        int i = 0;
+        while (i < dirtyCount) {
+            if (x1 <= dirtyX2[i] && dirtyX1[i] <= x2 && y1 <= dirtyY2[i] && dirtyY1[i] <= y2) {
+                x1 = Math.min(x1, dirtyX1[i]);
+                y1 = Math.min(y1, dirtyY1[i]);
+                x2 = Math.max(x2, dirtyX2[i]);
+                y2 = Math.max(y2, dirtyY2[i]);
+                removeDirtyRect(i);
+                i = 0;
+            } else {
+                i++;
+            }
+        }
+        if (dirtyCount == MAXDIRTY) {
+            // Merge with the rectangle whose bounds grow the least
+            int best = 0;
+            int bestGrowth = Integer.MAX_VALUE;
+            for (i = 0; i != dirtyCount; i++) {
+                int w = Math.max(x2, dirtyX2[i]) - Math.min(x1, dirtyX1[i]);
+                int h = Math.max(y2, dirtyY2[i]) - Math.min(y1, dirtyY1[i]);
+                int growth = w * h - (dirtyX2[i] - dirtyX1[i]) * (dirtyY2[i] - dirtyY1[i]);
+                if (growth < bestGrowth) {
+                    best = i;
+                    bestGrowth = growth;
+                }
+            }
+            x1 = Math.min(x1, dirtyX1[best]);
+            y1 = Math.min(y1, dirtyY1[best]);
+            x2 = Math.max(x2, dirtyX2[best]);
+            y2 = Math.max(y2, dirtyY2[best]);
+            removeDirtyRect(best);
+            addDirtyRect(x1, y1, x2, y2);
+            return;
+        }
+        dirtyX1[dirtyCount] = x1;
+        dirtyY1[dirtyCount] = y1;
+        dirtyX2[dirtyCount] = x2;
+        dirtyY2[dirtyCount] = y2;
+        dirtyCount++;
+    }
+
+    /**
+     * Remove one of the dirty rectangles by moving the last one into its
+     * place. The caller must hold dirtyLock.
+     */
+    private static void removeDirtyRect(int i) {
+        int last = --dirtyCount;
+        dirtyX1[i] = dirtyX1[last];
+        dirtyY1[i] = dirtyY1[last];
+        dirtyX2[i] = dirtyX2[last];
+        dirtyY2[i] = dirtyY2[last];
+    }
+
+    /**
+     * Add the bounds of a line to the dirty rectangles.
+     */
+    void addDirtyLine(int x1, int y1, int x2, int y2) {
+        addDirty(Math.min(x1, x2), Math.min(y1, y2), Math.abs(x2 - x1) + 1, Math.abs(y2 - y1) + 1);
+    }
+
     public void clipRect(int x, int y, int w, int h) {
 //prtn("***clipRect "+x+":"+y+":"+w+":"+h);
 //if(w <= 0) throw new RuntimeException();
@@ -101,6 +203,7 @@ public class GraphicsImpl extends Graphics {
 
     public void clearRect(int x, int y, int w, int h) {
         checkContext();
+        addDirty(orgX+x, orgY+y, w, h);
         setColor0(0x0ffffff);
         fillRect0(orgX+x, orgY+y, w, h);
         setColor0(color.getRGB ());
@@ -110,6 +213,9 @@ public class GraphicsImpl extends Graphics {
     public boolean drawImage(Image image, int x, int y, ImageObserver observer) {
         checkContext ();
         ImageImpl imageImpl = (ImageImpl)image;
+        if (ToolkitImpl.partialFlush) {
+            addDirty(x+orgX, y+orgY, imageImpl.getWidth(null), imageImpl.getHeight(null));
+        }
         drawImage0(imageImpl.imageIndex, x+orgX, y+orgY);
         return true;
     }
@@ -121,6 +227,7 @@ public class GraphicsImpl extends Graphics {
 
     public void drawLine(int x1, int y1, int x2, int y2) {
         checkContext();
+        addDirtyLine(x1+orgX, y1+orgY, x2+orgX, y2+orgY);
         drawLine0(x1+orgX, y1+orgY, x2+orgX, y2+orgY);
     }
 
@@ -128,6 +235,7 @@ public class GraphicsImpl extends Graphics {
     public void drawPolyline(int[] xPoints, int[] yPoints, int nPoints) {
         checkContext();
         for (int i = 0; i < nPoints - 1; i++) {
+            addDirtyLine(xPoints[i]+orgX, yPoints[i]+orgY, xPoints[i+1]+orgX, yPoints[i+1]+orgY);
             drawLine0(xPoints[i]+orgX, yPoints[i]+orgY, xPoints[i+1]+orgX, yPoints[i+1]+orgY);
         }
     }
@@ -135,35 +243,43 @@ public class GraphicsImpl extends Graphics {
 
     public void drawRoundRect(int x, int y, int width, int height, int arcWidth, int arcHeight) {
         checkContext();
+        addDirty(orgX+x, orgY+y, width+1, height+1);
         drawRoundRect0(orgX+x, orgY+y, width, height, arcWidth, arcHeight);
     }
 
 
     public void drawString(String text, int x, int y) {
         checkContext();
+        if (ToolkitImpl.partialFlush) {
+            addDirty(orgX+x, orgY+y-fontMetrics.getAscent(), fontMetrics.stringWidth(text), fontMetrics.getHeight());
+        }
         drawString0(text, orgX+x, orgY+y);
     }
 
     public void drawOval(int x, int y, int w, int h) {
         checkContext();
+        addDirty(x+orgX, y+orgY, w+1, h+1);
         drawOval0(x+orgX, y+orgY, w, h);
     }
 
 
     public void drawRect(int x,  int y, int width, int height) {
         checkContext();
+        addDirty(x+orgX, y+orgY, width+1, height+1);
         drawRect0(x+orgX, y+orgY, width, height);
     }
 
 
     public void fillRect (int x, int y, int width, int height) {
         checkContext();
+        addDirty(orgX+x, orgY+y, width, height);
         fillRect0(orgX+x, orgY+y, width, height);
     }
 
 
     public void fillRoundRect(int x, int y, int width, int height, int arcWidth, int arcHeight) {
         checkContext();
+        addDirty(orgX+x, orgY+y, width, height);
         fillRoundRect0(orgX+x, orgY+y, width, height, arcWidth, arcHeight);
     }
 
@@ -225,11 +341,22 @@ public class GraphicsImpl extends Graphics {
 
     public void fillArc(int x, int y, int w, int h, int ba, int ea) {
         checkContext();
+        addDirty(orgX+x, orgY+y, w, h);
         fillArc0(orgX+x, orgY+y, w, h, ba, ea);
     }
 
     public void fillPolygon(int[] x, int[] y, int count) {
         checkContext();
+        if (ToolkitImpl.partialFlush && count > 0) {
+            int x1 = x[0], y1 = y[0], x2 = x[0], y2 = y[0];
+            for (int i = 1; i < count; i++) {
+                x1 = Math.min(x1, x[i]);
+                y1 = Math.min(y1, y[i]);
+                x2 = Math.max(x2, x[i]);
+                y2 = Math.max(y2, y[i]);
+            }
+            addDirty(x1, y1, x2 - x1 + 1, y2 - y1 + 1);
+        }
         fillPolygon0(x, y, count);
     }
 
@@ -238,43 +365,43 @@ public class GraphicsImpl extends Graphics {
 
 
     private void setFont0(int fontIndex) {
-        Native.execIO2(ChannelOpcodes.SETFONT, fontIndex, 0, 0, 0, 0, 0, null, null, null);
+        DisplayList.add(ChannelOpcodes.SETFONT, 1, fontIndex, 0, 0, 0, 0, 0);
     }
     private void setColor0(int rgb) {
-        Native.execIO2(ChannelOpcodes.SETCOLOR, rgb, 0, 0, 0, 0, 0, null, null, null);
+        DisplayList.add(ChannelOpcodes.SETCOLOR, 1, rgb, 0, 0, 0, 0, 0);
     }
     private void setClip0(int x, int y, int width, int height) {
-        Native.execIO2(ChannelOpcodes.SETCLIP, x, y, width, height, 0, 0, null, null, null);
+        DisplayList.add(ChannelOpcodes.SETCLIP, 4, x, y, width, height, 0, 0);
     }
     private void drawString0(String text, int x, int y) {
-        Native.execIO2(ChannelOpcodes.DRAWSTRING, x, y, 0, 0, 0, 0, text, null, null);
+        DisplayList.addString(ChannelOpcodes.DRAWSTRING, x, y, text);
     }
     private void drawLine0(int x1, int y1, int x2, int y2) {
-        Native.execIO2(ChannelOpcodes.DRAWLINE, x1, y1, x2, y2, 0, 0, null, null, null);
+        DisplayList.add(ChannelOpcodes.DRAWLINE, 4, x1, y1, x2, y2, 0, 0);
     }
     private void drawOval0(int x, int y, int width, int height) {
-        Native.execIO2(ChannelOpcodes.DRAWOVAL, x, y, width, height, 0, 0, null, null, null);
+        DisplayList.add(ChannelOpcodes.DRAWOVAL, 4, x, y, width, height, 0, 0);
     }
     private void drawRect0(int x,  int y, int width, int height) {
-        Native.execIO2(ChannelOpcodes.DRAWRECT, x, y, width, height, 0, 0, null, null, null);
+        DisplayList.add(ChannelOpcodes.DRAWRECT, 4, x, y, width, height, 0, 0);
     }
     private void fillRect0(int x, int y, int width, int height) {
-        Native.execIO2(ChannelOpcodes.FILLRECT, x, y, width, height, 0, 0, null, null, null);
+        DisplayList.add(ChannelOpcodes.FILLRECT, 4, x, y, width, height, 0, 0);
     }
     private void drawRoundRect0(int x, int y, int width, int height, int arcWidth, int arcHeight) {
-        Native.execIO2(ChannelOpcodes.DRAWROUNDRECT, x, y, width, height, arcWidth, arcHeight, null, null, null);
+        DisplayList.add(ChannelOpcodes.DRAWROUNDRECT, 6, x, y, width, height, arcWidth, arcHeight);
     }
     private void fillRoundRect0(int x, int y, int width, int height, int arcWidth, int arcHeight) {
-        Native.execIO2(ChannelOpcodes.FILLROUNDRECT, x, y, width, height, arcWidth, arcHeight, null, null, null);
+        DisplayList.add(ChannelOpcodes.FILLROUNDRECT, 6, x, y, width, height, arcWidth, arcHeight);
     }
     private void drawImage0(int imageIndex, int x, int y) {
-        Native.execIO2(ChannelOpcodes.DRAWIMAGE, imageIndex, x, y, 0, 0, 0, null, null, null);
+        DisplayList.add(ChannelOpcodes.DRAWIMAGE, 3, imageIndex, x, y, 0, 0, 0);
     }
     private void fillArc0(int x, int y, int width, int height, int ba, int ea) {
-        Native.execIO2(ChannelOpcodes.FILLARC, x, y, width, height, ba, ea, null, null, null);
+        DisplayList.add(ChannelOpcodes.FILLARC, 6, x, y, width, height, ba, ea);
     }
     private void fillPolygon0(int[] x ,int[] y, int count) {
-        Native.execIO2(ChannelOpcodes.FILLPOLYGON, count, 0, 0, 0, 0, 0, x, y, null);
+        DisplayList.addPolygon(ChannelOpcodes.FILLPOLYGON, x, y, count);
     }
 }
 
@@ -9,6 +9,8 @@ public class ImageImpl extends Image {
 
     int   imageIndex;
     int[] imageRgb;
+    int   width  = -1;
+    int   height = -1;
 
     ImageImpl(MemoryImageSource memoryImage) {
         imageIndex = createMemoryImage(
@@ -28,12 +30,22 @@ public class ImageImpl extends Image {
         imageIndex = getImage(ressourceName);
     }
 
+    /**
+     * The size of an image never changes once it is known, so it is only
+     * asked for until the host has it.
+     */
     public int getWidth (ImageObserver o) {
-        return imageWidth(imageIndex);
+        if (width < 0) {
+            width = imageWidth(imageIndex);
+        }
+        return width;
     }
 
     public int getHeight (ImageObserver o) {
-        return imageHeight(imageIndex);
+        if (height < 0) {
+            height = imageHeight(imageIndex);
+        }
+        return height;
     }
 
     public void flush () {
@@ -42,22 +54,22 @@ public class ImageImpl extends Image {
 
 
     private int createImage(byte[] data, int offset, int length) {
-        return (int)Native.execIO2(ChannelOpcodes.CREATEIMAGE, offset, length, 0, 0, 0, 0, data, null, null);
+        return (int)DisplayList.execIO2(ChannelOpcodes.CREATEIMAGE, offset, length, 0, 0, 0, 0, data, null, null);
     }
     private int createMemoryImage(int hs, int vs, int length, int stride) {
-        return (int)Native.execIO2(ChannelOpcodes.CREATEMEMORYIMAGE, hs, vs, length, stride, 0, 0, null, null, null);
+        return (int)DisplayList.execIO2(ChannelOpcodes.CREATEMEMORYIMAGE, hs, vs, length, stride, 0, 0, null, null, null);
     }
     private int getImage(String ressourceName) {
-        return (int)Native.execIO2(ChannelOpcodes.GETIMAGE, 0, 0, 0, 0, 0, 0, ressourceName, null, null);
+        return (int)DisplayList.execIO2(ChannelOpcodes.GETIMAGE, 0, 0, 0, 0, 0, 0, ressourceName, null, null);
     }
     private int imageWidth(int number) {
-        return (int)Native.execIO2(ChannelOpcodes.IMAGEWIDTH, number, 0, 0, 0, 0, 0, null, null, null);
+        return (int)DisplayList.execIO2(ChannelOpcodes.IMAGEWIDTH, number, 0, 0, 0, 0, 0, null, null, null);
     }
     private int imageHeight(int number) {
-        return (int)Native.execIO2(ChannelOpcodes.IMAGEHEIGHT, number, 0, 0, 0, 0, 0, null, null, null);
+        return (int)DisplayList.execIO2(ChannelOpcodes.IMAGEHEIGHT, number, 0, 0, 0, 0, 0, null, null, null);
     }
     private void flush0(int number, int[] image) {
-        Native.execIO2(ChannelOpcodes.FLUSHIMAGE, number, 0, 0, 0, 0, 0, image, null, null);
+        DisplayList.execIO2(ChannelOpcodes.FLUSHIMAGE, number, 0, 0, 0, 0, 0, image, null, null);
     }
 
 }
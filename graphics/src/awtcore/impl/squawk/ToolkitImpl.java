@@ -15,6 +15,27 @@ public class ToolkitImpl extends Toolkit {
         new EventDispatcher().start();
     }
 
+    /**
+     * When set, flushScreen copies only the rectangles drawn since the last
+     * flush to the screen instead of the whole offscreen
+     * image, and nothing at all if nothing has been drawn. It can be turned
+     * on with the awtcore.partialflush property.
+     */
+    static boolean partialFlush = "true".equals(System.getProperty("awtcore.partialflush"));
+
+    /**
+     * Turn partial flushing of the offscreen image on or off.
+     */
+    public static void setPartialFlush(boolean on) {
+        synchronized (GraphicsImpl.dirtyLock) {
+            if (on && !partialFlush) {
+                GraphicsImpl.dirtyCount = 0;
+                GraphicsImpl.addDirtyRect(0, 0, screenWidth(), screenHeight());
+            }
+            partialFlush = on;
+        }
+    }
+
     public ToolkitImpl() {
     }
 
@@ -30,11 +51,12 @@ public class ToolkitImpl extends Toolkit {
         return new awtcore.impl.squawk.ImageImpl(data, offset, length);
     }
 
-    //public void sync() {
-    //    if (GraphicsImpl.dirty) {
-    //        repaint();
-    //    }
-    //}
+    /**
+     * Send the drawing done since the last sync to the screen.
+     */
+    public void sync() {
+        DisplayList.flush();
+    }
 
     public Image createImage (ImageProducer producer) {
         return new ImageImpl((MemoryImageSource )producer);
@@ -47,16 +69,40 @@ public class ToolkitImpl extends Toolkit {
 
 
     static int screenWidth() {
-        return (int)Native.execIO2(ChannelOpcodes.SCREENWIDTH, 0, 0, 0, 0, 0, 0, null, null, null);
+        return (int)DisplayList.execIO2(ChannelOpcodes.SCREENWIDTH, 0, 0, 0, 0, 0, 0, null, null, null);
     }
     static int screenHeight() {
-        return (int)Native.execIO2(ChannelOpcodes.SCREENHEIGHT, 0, 0, 0, 0, 0, 0, null, null, null);
+        return (int)DisplayList.execIO2(ChannelOpcodes.SCREENHEIGHT, 0, 0, 0, 0, 0, 0, null, null, null);
     }
     public void beep() {
-        Native.execIO2(ChannelOpcodes.BEEP, 0, 0, 0, 0, 0, 0, null, null, null);
+        DisplayList.execIO2(ChannelOpcodes.BEEP, 0, 0, 0, 0, 0, 0, null, null, null);
     }
     public void flushScreen() {
-        Native.execIO2(ChannelOpcodes.FLUSHSCREEN, 0, 0, 0, 0, 0, 0, null, null, null);
+        int count = 0;
+        int[] rects = null;
+        synchronized (GraphicsImpl.dirtyLock) {
+            if (partialFlush) {
+                count = GraphicsImpl.dirtyCount;
+                if (count == 0) {
+                    return;
+                }
+                rects = new int[count * 4];
+                for (int i = 0; i != count; i++) {
+                    rects[i*4]   = GraphicsImpl.dirtyX1[i];
+                    rects[i*4+1] = GraphicsImpl.dirtyY1[i];
+                    rects[i*4+2] = GraphicsImpl.dirtyX2[i] - GraphicsImpl.dirtyX1[i];
+                    rects[i*4+3] = GraphicsImpl.dirtyY2[i] - GraphicsImpl.dirtyY1[i];
+                }
+            }
+            GraphicsImpl.dirtyCount = 0;
+        }
+        if (rects == null) {
+            DisplayList.execIO2(ChannelOpcodes.FLUSHSCREEN, 0, 0, 0, 0, 0, 0, null, null, null);
+        } else {
+            for (int i = 0; i != count; i++) {
+                DisplayList.execIO2(ChannelOpcodes.FLUSHSCREEN, rects[i*4], rects[i*4+1], rects[i*4+2], rects[i*4+3], 0, 0, null, null, null);
+            }
+        }
     }
 
 
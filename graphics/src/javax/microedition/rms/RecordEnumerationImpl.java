@@ -34,6 +34,9 @@ class RecordEnumerationImpl implements RecordEnumeration, RecordListener
     /** Array of recordId's of records included in the enumeration */
     private int[] records;
 
+    /** Number of entries of <code>records</code> in use */
+    private int count;
+
     /**
      * A constant recordId indicating the splice point between the
      * last and first records in the enumeration. Returned by
@@ -108,7 +111,7 @@ class RecordEnumerationImpl implements RecordEnumeration, RecordListener
     public synchronized int numRecords()
     {
 	checkDestroyed();
-	return records.length;
+	return count;
     }
 
 
@@ -148,7 +151,7 @@ class RecordEnumerationImpl implements RecordEnumeration, RecordListener
 	throws InvalidRecordIDException
     {
 	checkDestroyed();
-	if (index == records.length - 1)
+	if (index == count - 1)
 	    throw new InvalidRecordIDException();
 	if (index == NO_SUCH_RECORD) {
 	    index = 0;
@@ -196,10 +199,10 @@ class RecordEnumerationImpl implements RecordEnumeration, RecordListener
 	throws InvalidRecordIDException
     {
 	checkDestroyed();
-	if (index == 0 || records.length == 0)
+	if (index == 0 || count == 0)
 	    throw new InvalidRecordIDException();
 	if (index == NO_SUCH_RECORD) {
-	    index = records.length - 1;
+	    index = count - 1;
 	} else {
 	    index--;
 	}
@@ -215,7 +218,7 @@ class RecordEnumerationImpl implements RecordEnumeration, RecordListener
     public boolean hasNextElement()
     {
 	checkDestroyed();
-	return (index != records.length - 1);
+	return (index != count - 1);
     }
 
 
@@ -227,7 +230,7 @@ class RecordEnumerationImpl implements RecordEnumeration, RecordListener
     public boolean hasPreviousElement()
     {
 	checkDestroyed();
-	if (records.length == 0)
+	if (count == 0)
 	    return false;  // no records in the enumeration
 	return (index != 0);
     }
@@ -321,7 +324,13 @@ class RecordEnumerationImpl implements RecordEnumeration, RecordListener
     {
 	checkDestroyed();
 	synchronized (recordStore.rsLock) {
-	    filterAdd(recordId);
+	    byte[] data;
+	    try {
+		data = recordStore.getRecord(recordId);
+	    } catch (RecordStoreException rse) {
+		return;  // recordId does not exist
+	    }
+	    filterAdd(recordId, data);
 	}
     }
 
@@ -337,14 +346,30 @@ class RecordEnumerationImpl implements RecordEnumeration, RecordListener
 					       int recordId)
     {
 	checkDestroyed();
-	
+
+	if (filter == null && comparator == null)
+	    return;  // the record stays where it is
+
 	int recIndex = findIndexOfRecord(recordId);
-	if (recIndex < 0) 
+	if (recIndex < 0 && filter == null)
 	    return;  // not in the enumeration
 	
-	removeRecordAtIndex(recIndex);
 	synchronized (recordStore.rsLock) {
-	    filterAdd(recordId);
+	    byte[] data;
+	    try {
+		data = recordStore.getRecord(recordId);
+	    } catch (RecordStoreException rse) {
+		// recordId does not exist
+		if (recIndex >= 0)
+		    removeRecordAtIndex(recIndex);
+		return;
+	    }
+	    if (recIndex >= 0) {
+		if (comparator == null && filter.matches(data))
+		    return;  // still matches, position is unchanged
+		removeRecordAtIndex(recIndex);
+	    }
+	    filterAdd(recordId, data);
 	}
     }
     
@@ -389,6 +414,7 @@ class RecordEnumerationImpl implements RecordEnumeration, RecordListener
 	filter = null;
 	comparator = null;
 	records = null;
+	count = 0;
 	recordStore = null; // a signal that this is destroyed!
     }
 
@@ -415,44 +441,45 @@ class RecordEnumerationImpl implements RecordEnumeration, RecordListener
      *
      * First ensures that record <code>recordId</code> 
      * meets this enumeration's filter criteria.
-     * If it does it is added to records as array element
-     * 0.  If a comparator is defined for this enumeration,
-     * the helper method <code>sortAdd</code> is called to 
-     * properly position <code>recordId</code> within the ordered
-     * <code>records</code> array.
+     * If it does it is added to the end of records or,
+     * if a comparator is defined for this enumeration, the
+     * helper method <code>findInsertPoint</code> is called to
+     * find its position within the ordered <code>records</code>
+     * array.
      *
      * Should be called from within a 
      * synchronized (recordStore.rsLock) block.
      *
      * @param recordId the record to add to this enumeration
+     * @param data the contents of the record
      */
-    private void filterAdd(int recordId) {
-	int insertPoint = -1;
-	if (filter != null) {
-	    try {
-		if (!filter.matches(recordStore.getRecord(recordId)))
-		    return;  // recordId filtered out
-	    } catch (RecordStoreException rse) {
-		return;  // recordId does not exist
-	    }
-	}
+    private void filterAdd(int recordId, byte[] data) {
+	if (filter != null && !filter.matches(data))
+	    return;  // recordId filtered out
+
 	// the new record has been accepted by the filter
-	int[] newrecs = new int[records.length + 1];
-	newrecs[0] = recordId;  // insert new record at front of list
-	System.arraycopy(records, 0, newrecs, 1, records.length);
-	records = newrecs;
-	if (comparator != null) {  // move the new record into place
+	int insertPoint = count;
+	if (comparator != null) {  // find where the new record goes
 	    try {
-		insertPoint = sortInsert();
+		insertPoint = findInsertPoint(data);
 	    } catch (RecordStoreException rse) {
 		// NOTE: - should never be here
 		// throw a RSE?  destroy record enumeration?
 		System.out.println("Unexpected exception in filterAdd");
 	    }
 	}
+	if (count == records.length) {
+	    int[] newrecs = new int[count < 8 ? 16 : count * 2];
+	    System.arraycopy(records, 0, newrecs, 0, count);
+	    records = newrecs;
+	}
+	System.arraycopy(records, insertPoint, records, insertPoint + 1,
+			 count - insertPoint);
+	records[insertPoint] = recordId;
+	count++;
+
 	// keep index up to date as well
-	if (index != NO_SUCH_RECORD && insertPoint != -1 && 
-	    insertPoint < index) {
+	if (index != NO_SUCH_RECORD && insertPoint <= index) {
 	    index++;
 	}
     }
@@ -460,32 +487,28 @@ class RecordEnumerationImpl implements RecordEnumeration, RecordListener
 
     /**
      * Helper method called by <code>filterAdd</code>.
-     * Moves the posibly unsorted element zero in the
-     * <code>records</code> array to its sorted position
-     * within the array.
+     * Binary searches the sorted <code>records</code> array
+     * for the position of a new record, which is before the
+     * first record that the new one does not follow.
      *
-     * @return index of inserted element.
+     * @param data the contents of the new record
+     * @return index at which to insert the new record.
      * @exception RecordStoreException if an error occurs
      *            in the comparator function.
      */
-    private int sortInsert() throws RecordStoreException {
-	// bubble sort the first record in records into place
-	int tmp;
-	int i;
-	int j;
-	for (i = 0, j = 1; i < records.length - 1; i++, j++) {
-	    if (comparator.compare(recordStore.getRecord(records[i]),
-				   recordStore.getRecord(records[j])) ==
-		RecordComparator.FOLLOWS) {
-		// if i follows j swap them in records
-		tmp = records[i];
-		records[i] = records[j];
-		records[j] = tmp;
+    private int findInsertPoint(byte[] data) throws RecordStoreException {
+	int low = 0;
+	int high = count;
+	while (low < high) {
+	    int mid = (low + high) >>> 1;
+	    if (comparator.compare(data, recordStore.getRecord(records[mid]))
+		== RecordComparator.FOLLOWS) {
+		low = mid + 1;
 	    } else {
-		break;  // done sorting if compare returns EQUALS or PRECEDES 
+		high = mid;
 	    }
 	}
-	return i; // final index of new record in records
+	return low;
     }
     
     
@@ -499,7 +522,7 @@ class RecordEnumerationImpl implements RecordEnumeration, RecordListener
     private int findIndexOfRecord(int recordId) {
 	int idx;
 	int recIndex = -1;
-	for (idx = records.length - 1; idx >= 0; idx--) {
+	for (idx = count - 1; idx >= 0; idx--) {
 	    if (records[idx] == recordId) {
 		recIndex = idx;
 		break;
@@ -519,15 +542,11 @@ class RecordEnumerationImpl implements RecordEnumeration, RecordListener
      * @param recIndex the array element to remove.
      */
     private void removeRecordAtIndex(int recIndex) {
-	int[] tmp = new int[records.length - 1];
-	if (recIndex < records.length) {
-	    System.arraycopy(records, 0, tmp, 0, recIndex);
-	    System.arraycopy(records, recIndex + 1, tmp, 
-			     recIndex, (records.length - recIndex) - 1);
-	} else {
-	    System.arraycopy(records, 0, tmp, 0, records.length - 1);
+	if (recIndex < count) {
+	    System.arraycopy(records, recIndex + 1, records, 
+			     recIndex, (count - recIndex) - 1);
 	}
-	records = tmp;
+	count--;
 	
 	/* 
 	 * If a record prior to current index was deleted
@@ -535,7 +554,7 @@ class RecordEnumerationImpl implements RecordEnumeration, RecordListener
 	 */
 	if (index != NO_SUCH_RECORD && recIndex < index) {
 	    index --;
-	} else if (index == records.length) {
+	} else if (index == count) {
 	    // last element in records removed
 	    index --;
 	}
@@ -553,6 +572,9 @@ class RecordEnumerationImpl implements RecordEnumeration, RecordListener
     private void reFilterSort(int[] filtered)
     {
 	int filteredIndex = 0;
+	if (filtered == null) {
+	    filtered = new int[0];  // the record store is closed
+	}
 	if (filter == null) {
 	    /*
 	     * If this enumeration doesn't have any filters, the
@@ -560,6 +582,7 @@ class RecordEnumerationImpl implements RecordEnumeration, RecordListener
 	     * used as they are.
 	     */
 	    records = filtered;
+	    count = filtered.length;
 	} else {
 	    /*
 	     * If a filter has been specified, filter the recordStore
@@ -582,8 +605,8 @@ class RecordEnumerationImpl implements RecordEnumeration, RecordListener
 		}
 	    }
 	    
-	    records = new int[filteredIndex];
-	    System.arraycopy(filtered, 0, records, 0, filteredIndex);
+	    records = filtered;
+	    count = filteredIndex;
 	}
 	/*
 	 * If a comparator has been specified, sort the remaining
@@ -592,7 +615,7 @@ class RecordEnumerationImpl implements RecordEnumeration, RecordListener
 	 */
 	if (comparator != null) {
 	    try {
-		QuickSort(records, 0, records.length - 1, comparator);
+		QuickSort(records, 0, count - 1, comparator);
 	    }
 	    catch (RecordStoreException de) {
 		// NOTE: - should never be here
@@ -106,6 +106,22 @@ public class RecordStore
     /** size of the buffer for compacting record store */
     private static final int DB_COMPACTBUFFER_SIZE = 64;
 
+    /**
+     * number of size classes in the free block map. Class n holds
+     * blocks of 2^n to 2^(n+1)-1 DB_BLOCK_SIZE units, and the last
+     * class holds everything larger.
+     */
+    private static final int DB_FREE_BUCKETS = 16;
+
+    /**
+     * incremental compaction starts once more than 1/DB_COMPACT_RATIO
+     * of the data area is free blocks
+     */
+    private static final int DB_COMPACT_RATIO = 8;
+
+    /** maximum compaction steps taken after deleting or moving a record */
+    private static final int DB_COMPACT_STEPS = 2;
+
     /** cache of open RecordStore instances */
     private static java.util.Vector dbCache = new java.util.Vector(3);
 
@@ -133,6 +149,27 @@ public class RecordStore
     /** number of direct mapped cache entries */
     private static int CACHE_SIZE = 8;
 
+    /**
+     * index of record ids to record offsets, or null if it has not
+     * been built yet
+     */
+    private RecordIndex recIndex;
+
+    /** map of free blocks by size, or null if it has not been built yet */
+    private FreeBlockMap freeMap;
+
+    /** number of nested <code>beginBatch</code> calls not yet committed */
+    private int batchDepth;
+
+    /** true if the db state changed during the current batch */
+    private boolean dbStateDirty;
+
+    /** signature of a record index stored after the end of data */
+    private static final int DB_INDEX_MAGIC = 0x72696478; // 'ridx'
+
+    /** size of the record index header (magic, version, count) */
+    private static final int DB_INDEX_HEADER_LENGTH = 12;
+
     /** static buffer used in loading/storing RecordHeader data */
     private static byte[] recHeadBuf = new byte[DB_RECORD_HEADER_LENGTH];
 
@@ -270,6 +307,8 @@ public class RecordStore
     // Create a RecordStoreFile for storing the record store.
     try {
         dbraf = new RecordStoreFile(recordStoreName);
+        // Finish or roll back a batch interrupted by a crash
+        dbraf.recover();
         /*
          * At this point we've opened the RecordStoreFile.  If we
          * created a new record store, initialize the db attributes.
@@ -284,33 +323,13 @@ public class RecordStore
         RecordStore.putInt(48, DB_INIT, RS_DATA_END);
         dbraf.write(DB_INIT);
         } else {
-        /*
-         * Create a buffer and read the database attributes
-         * Read the record store attributes. Set up internal state.
-         */
-        byte[] buf = new byte[DB_INIT.length];
-        dbraf.seek(RS_SIGNATURE);
-        dbraf.read(buf);
-        /*
-         * Verify that the file is actually a record store
-         * by verifying the record store "signature."
-         */
-        for (int i = 0; i < SIGNATURE_LENGTH; i++) {
-            if (buf[i] != DB_INIT[i])
-            throw new RecordStoreException("invalid record "+
-                               "store contents");
-        }
+        // Read the record store attributes. Set up internal state.
+        loadDBState();
 
-        // Convert byte array to internal state variables.
-        dbNumLiveRecords = RecordStore.getInt(buf, RS_NUM_LIVE);
-        dbVersion = RecordStore.getInt(buf, RS_VERSION);
-        dbNextRecordID = RecordStore.getInt(buf, RS_NEXT_ID);
-        dbFirstRecordOffset = RecordStore.getInt(buf, RS_REC_START);
-        dbFirstFreeBlockOffset = RecordStore.getInt(buf,
-                                RS_FREE_START);
-        dbLastModified = RecordStore.getLong(buf, RS_LAST_MODIFIED);
-        dbDataStart = RecordStore.getInt(buf, RS_DATA_START);
-        dbDataEnd = RecordStore.getInt(buf, RS_DATA_END);
+        // Pick up the record index written when the store was
+        // last closed. If it is missing or out of date, it is
+        // rebuilt by the first findRecord() that needs it.
+        recIndex = loadRecordIndex();
         }
 
     } catch (java.io.IOException ioe) {
@@ -555,10 +574,14 @@ public class RecordStore
         rh = findRecord(recordId, false);
         freeRecord(rh); // calls rh.store
         recHeadCache.invalidate(rh.id);
+        if (recIndex != null) {
+            recIndex.remove(recordId);
+        }
         } catch (java.io.IOException ioe) {
         throw new RecordStoreException("error updating file after" +
                            " record deletion");
         }
+        compactIncrementally();
         // update database header info and sync to file
         dbNumLiveRecords--;
         dbVersion++;
@@ -611,12 +634,27 @@ public class RecordStore
             if (!recordListener.isEmpty()) {
                 recordListener.removeAllElements();
             }
+            // a batch still open is committed by the close
+            if (batchDepth > 0) {
+                batchDepth = 0;
+                try {
+                endBatch();
+                } catch (RecordStoreException rse) {
+                dbraf.close();
+                throw rse;
+                }
+            }
             // close native fd
             if (dbFirstFreeBlockOffset != 0) {
                 compactRecords();  // compact before close
                 // truncate file to compacted size
                 dbraf.truncate(dbDataEnd);
             }
+            if (recIndex != null) {
+                // keep the index for the next open
+                int end = recIndex.store(dbDataEnd);
+                dbraf.truncate(end);
+            }
             dbraf.close();
             } catch (java.io.IOException ioe) {
             throw new RecordStoreException("error closing .db " +
@@ -624,6 +662,8 @@ public class RecordStore
             } finally {
             dbraf = null;
             recHeadCache = null;
+            recIndex = null;
+            freeMap = null;
             }
         }
         }
@@ -825,6 +865,7 @@ public class RecordStore
             throw new RecordStoreException("error moving record " +
                            "data");
         }
+        compactIncrementally();
         }
 
         // update database header info and sync to file
@@ -834,6 +875,121 @@ public class RecordStore
     }
     }
 
+    /**
+     * Starts a batch of updates. Until the matching
+     * <code>commitBatch</code>, the changes made by <code>addRecord</code>,
+     * <code>setRecord</code> and <code>deleteRecord</code> are kept in
+     * memory, with adjacent writes merged, and the record store header is
+     * only written once when the batch is committed. Either all or none of
+     * the changes in a batch survive a crash. Batches may be nested, in
+     * which case only the outermost <code>commitBatch</code> writes the
+     * changes to storage. A batch still in progress when the record store
+     * is closed is committed.
+     *
+     * This is an extension to the MIDP record store API for loading
+     * large numbers of records.
+     *
+     * @exception RecordStoreNotOpenException if the record store is not open.
+     * @exception RecordStoreException if a batch could not be started.
+     */
+    public void beginBatch()
+    throws RecordStoreNotOpenException, RecordStoreException
+    {
+    synchronized (rsLock) {
+        checkOpen();
+        if (batchDepth == 0) {
+        try {
+            dbraf.beginBatch();
+        } catch (java.io.IOException ioe) {
+            throw new RecordStoreException("error starting batch");
+        }
+        }
+        batchDepth++;
+    }
+    }
+
+    /**
+     * Commits the batch of updates started by the matching
+     * <code>beginBatch</code>.
+     *
+     * If the batch cannot be committed, none of its changes are kept and
+     * the record store is as it was before the batch. If it was committed
+     * but could not then be written to the record store, its changes can
+     * still be read but the record store cannot be changed again until it
+     * is reopened, which completes the write.
+     *
+     * @exception RecordStoreNotOpenException if the record store is not open.
+     * @exception RecordStoreException if there is no batch in progress or
+     *            the changes could not be written.
+     */
+    public void commitBatch()
+    throws RecordStoreNotOpenException, RecordStoreException
+    {
+    synchronized (rsLock) {
+        checkOpen();
+        if (batchDepth == 0) {
+        throw new RecordStoreException("no batch in progress");
+        }
+        if (--batchDepth == 0) {
+        endBatch();
+        }
+    }
+    }
+
+    /**
+     * Write the record store header if it changed during the batch that
+     * has just ended, then write the batch to the file.
+     *
+     * @exception RecordStoreException if the changes could not be written.
+     */
+    private void endBatch() throws RecordStoreException
+    {
+    if (dbStateDirty) {
+        dbStateDirty = false;
+        storeDBState();
+    }
+    try {
+        dbraf.commitBatch();
+    } catch (java.io.IOException ioe) {
+        if (dbraf.hasUnwrittenBatch()) {
+        // the journal will be written to the file when it is next opened
+        throw new RecordStoreException("error writing batch");
+        }
+        rollBackBatch();
+        throw new RecordStoreException("error committing batch");
+    }
+    }
+
+    /**
+     * Discard the changes made by a batch that could not be committed.
+     * None of them reached the file, so the internal state is read back
+     * from it and the caches and indexes built from the batch are
+     * dropped. Enumerations that are kept updated are rebuilt.
+     *
+     * @exception RecordStoreException if the state could not be read.
+     */
+    private void rollBackBatch() throws RecordStoreException
+    {
+    dbraf.abortBatch();
+    dbStateDirty = false;
+    recHeadCache = new RecordHeaderCache(CACHE_SIZE);
+    recIndex = null;
+    freeMap = null;
+    try {
+        loadDBState();
+    } catch (java.io.IOException ioe) {
+        throw new RecordStoreException("error reading record store " +
+                       "attributes");
+    }
+    for (int i = 0; i < recordListener.size(); i++) {
+        Object rl = recordListener.elementAt(i);
+        if (rl instanceof RecordEnumerationImpl &&
+        ((RecordEnumerationImpl)rl).isKeptUpdated()) {
+        ((RecordEnumerationImpl)rl).rebuild();
+        }
+    }
+    }
+
     /*
      * Public RecordStore accessor methods
      */
@@ -1099,10 +1255,29 @@ public class RecordStore
 
     /*
      * requested record header is NOT in cache...
-     * search through the linked list of records
-     * in the file.
+     * look up its offset in the record index, building
+     * the index on the first miss after opening.
+     */
+    if (recIndex == null) {
+        recIndex = buildRecordIndex();
+    }
+    offset = recIndex.get(recordId);
+    if (offset == 0) {
+        throw new InvalidRecordIDException();
+    }
+    rh = new RecordHeader(offset);
+    if (rh.id == recordId) {
+        if (addToCache)
+        recHeadCache.insert(rh);
+        return rh;
+    }
+
+    /*
+     * The index is out of step with the file, which should
+     * not happen. Drop it and search through the linked list
+     * of records in the file.
      */
-    rh = new RecordHeader();
+    recIndex = null;
     while (cur_offset != 0) {
         rh.load(cur_offset);
         if (rh.id == recordId) {
@@ -1122,6 +1297,71 @@ public class RecordStore
     }
 
 
+    /**
+     * Build the record index by walking the linked list of
+     * records in the file once.
+     *
+     * @return an index of all the live records in the file.
+     *
+     * @exception IOException if there is an error reading the
+     *            underlying RecordStoreFile.
+     */
+    private RecordIndex buildRecordIndex() throws java.io.IOException
+    {
+    RecordIndex index = new RecordIndex(dbNumLiveRecords);
+    RecordHeader rh = new RecordHeader();
+    int offset = dbFirstRecordOffset;
+    while (offset != 0) {
+        rh.load(offset);
+        if (rh.id > 0) {
+        index.append(rh.id, offset);
+        }
+        offset = rh.nextOffset;
+    }
+    index.sort();
+    return index;
+    }
+
+    /**
+     * Load the record index stored after the end of data by
+     * the last <code>closeRecordStore</code>. The stored index
+     * is only used if it was written at the current version of
+     * the record store; any later change to the file bumps the
+     * version and so invalidates it.
+     *
+     * @return the stored record index or null if there is no
+     *         usable one.
+     *
+     * @exception IOException if there is an error reading the
+     *            underlying RecordStoreFile.
+     */
+    private RecordIndex loadRecordIndex() throws java.io.IOException
+    {
+    if (dbraf.length() < dbDataEnd + DB_INDEX_HEADER_LENGTH) {
+        return null;
+    }
+    byte[] buf = new byte[DB_INDEX_HEADER_LENGTH];
+    dbraf.seek(dbDataEnd);
+    dbraf.readFully(buf);
+    int count = RecordStore.getInt(buf, 8);
+    if (RecordStore.getInt(buf, 0) != DB_INDEX_MAGIC ||
+        RecordStore.getInt(buf, 4) != dbVersion ||
+        count != dbNumLiveRecords ||
+        dbraf.length() < dbDataEnd + DB_INDEX_HEADER_LENGTH + count * 8) {
+        return null;
+    }
+
+    buf = new byte[count * 8];
+    dbraf.readFully(buf);
+    RecordIndex index = new RecordIndex(count);
+    for (int i = 0; i < buf.length; i += 8) {
+        index.append(RecordStore.getInt(buf, i),
+             RecordStore.getInt(buf, i + 4));
+    }
+    return index;
+    }
+
+
     /**
      * Return the block allocation size for a record with <code>numBytes
      * </code> data bytes.  This includes space for the record header
@@ -1147,9 +1387,9 @@ public class RecordStore
      * Returns a new record header for record <code>id</code> large
      * enough to hold <code>dataSize</code> bytes of record data.
      *
-     * Picks a free block using a first fit strategy that is
-     * large enough for a record header and the associated
-     * record data.  The block will be a multiple of DB_BLOCK_SIZE.
+     * Picks the smallest free block that is large enough for a
+     * record header and the associated record data, using the
+     * free block map.  The block will be a multiple of DB_BLOCK_SIZE.
      *
      * @param id the record id to assign to the returned record header.
      * @param dataSize length of record data that will be
@@ -1166,23 +1406,17 @@ public class RecordStore
     boolean foundBlock = false;
 
     /*
-     * Traverse the free block linked list in the file, looking
-     * for the first fit
+     * Look up the best fit in the free block map
      */
-    RecordHeader block = new RecordHeader();
-    try {
-        int offset = dbFirstFreeBlockOffset;
-        while (offset != 0) {
-        block.load(offset);
-        // If block is big enough, use it.
-        if (block.blockSize >= allocSize) {
-            foundBlock = true;
-            break; // use this free block
-        }
-        offset = block.dataLenOrNextFree; // next free block
+    RecordHeader block = null;
+    int slot = getFreeMap().bestFit(allocSize);
+    if (slot >= 0) {
+        try {
+        block = new RecordHeader(freeMap.getOffset(slot));
+        foundBlock = true;
+        } catch (java.io.IOException ioe) {
+        throw new RecordStoreException("error finding best fit block");
         }
-    } catch (java.io.IOException ioe) {
-        throw new RecordStoreException("error finding first fit block");
     }
 
     if (foundBlock == false) {
@@ -1216,7 +1450,7 @@ public class RecordStore
                            " is not a free block!");
         }
 
-        removeFreeBlock(block);  // remove from free block list
+        removeFreeBlock(slot);  // remove from free block list
 
         block.id = id;
         if (block.blockSize - allocSize >=
@@ -1231,8 +1465,11 @@ public class RecordStore
                            "after alloc");
         }
     }
-    // add new record to cache
+    // add new record to cache and index
     recHeadCache.insert(block);
+    if (recIndex != null) {
+        recIndex.put(id, block.offset);
+    }
     return block;
     }
 
@@ -1268,8 +1505,8 @@ public class RecordStore
                      extraSpace, 0);
         try {
         freeRecord(newfb); // write new free block to disk
-        RecordHeader prh = new RecordHeader(recHead.offset +
-                            recHead.blockSize);
+        // link the block after the split one to the new free block
+        RecordHeader prh = new RecordHeader(fboffset + extraSpace);
         prh.nextOffset = fboffset;
         prh.store();
         recHeadCache.invalidate(prh.id);
@@ -1314,52 +1551,228 @@ public class RecordStore
         } catch (java.io.IOException ioe) {
         throw new RecordStoreException("free record failed");
         }
+        if (freeMap != null) {
+        freeMap.addFirst(rh.offset, rh.blockSize);
+        }
     }
     }
 
     /**
-     * Remove a free block from the free block linked list
+     * Remove a free block from the free block linked list and
+     * the free block map.
      *
-     * @param blockToFree record header for the free block to remove
+     * @param slot the free block's slot in the free block map
      *
      * @exception recordStoreException if error occurs during the
      *            update.
      */
-    private void removeFreeBlock(RecordHeader blockToFree)
+    private void removeFreeBlock(int slot)
     throws RecordStoreException
     {
-    RecordHeader block = new RecordHeader();
-    RecordHeader prev = new RecordHeader();
-    RecordHeader tmp = null;
-    try {
+    int next = freeMap.getNextOffset(slot);
+    int prev = freeMap.getPrevOffset(slot);
+    if (prev == 0) {
+        // Set next free block as new freelist head
+        dbFirstFreeBlockOffset = next;
+    } else {
+        /*
+         * Update previous block's pointer to the
+         * block this block was pointing to
+         */
+        try {
+        RecordHeader prh = new RecordHeader(prev);
+        prh.dataLenOrNextFree = next;
+        prh.store();
+        } catch (java.io.IOException ioe) {
+        throw new RecordStoreException("removeFreeBlock error");
+        }
+    }
+    freeMap.remove(slot);
+    }
+
+    /**
+     * Returns the free block map, building it from the free block
+     * linked list in the file the first time it is needed.
+     *
+     * @return the free block map.
+     *
+     * @exception RecordStoreException if there is an error reading
+     *            the free block list
+     */
+    private FreeBlockMap getFreeMap() throws RecordStoreException
+    {
+    if (freeMap == null) {
+        FreeBlockMap map = new FreeBlockMap();
+        RecordHeader block = new RecordHeader();
+        try {
         int offset = dbFirstFreeBlockOffset;
         while (offset != 0) {
-        block.load(offset);
-        if (block.offset == blockToFree.offset) {
-            if (block.id != -1) {
-            throw new RecordStoreException("removeFreeBlock id" +
-                               " is not -1");
-            }
-            if (prev.offset == 0) {
-            // Set next free block as new freelist head
-            dbFirstFreeBlockOffset = block.dataLenOrNextFree;
-            } else {
-            /*
-             * Update previous block's pointer to the
-             * block this block was pointing to
-             */
-            prev.dataLenOrNextFree = block.dataLenOrNextFree;
-            prev.store();
-            }
+            block.load(offset);
+            map.append(offset, block.blockSize);
+            offset = block.dataLenOrNextFree; // next free block
+        }
+        } catch (java.io.IOException ioe) {
+        throw new RecordStoreException("error reading free block list");
+        }
+        freeMap = map;
+    }
+    return freeMap;
+    }
+
+    /**
+     * Take a few compaction steps if the free blocks make up more than
+     * 1/DB_COMPACT_RATIO of the data area. This keeps fragmentation
+     * down as the record store is used, a record at a time, instead of
+     * leaving it all for <code>closeRecordStore</code>.
+     *
+     * MUST be called after obtaining rsLock and before the caller's
+     * call to <code>storeDBState</code>.
+     *
+     * @exception RecordStoreException if an error occurs during
+     *            compaction
+     */
+    private void compactIncrementally() throws RecordStoreException
+    {
+    if (dbFirstFreeBlockOffset == 0) {
+        return;
+    }
+    FreeBlockMap map = getFreeMap();
+    for (int i = 0; i < DB_COMPACT_STEPS; i++) {
+        if (map.getFreeBytes() * DB_COMPACT_RATIO <=
+        dbDataEnd - dbDataStart) {
+        break;
+        }
+        if (!compactStep()) {
+        break;
         }
-        offset = block.dataLenOrNextFree;
-        // avoid creating lots of garbage!
-        tmp = prev;
-        prev = block;
-        block = tmp;
+    }
+    }
+
+    /**
+     * Take one step towards compacting the record store. The free
+     * block with the lowest offset is either merged with the free
+     * block after it, swapped with the record after it (moving the
+     * record down), or dropped if it is at the end of the data. The
+     * record store is consistent between steps so other operations
+     * can run in between.
+     *
+     * After calling this method the caller must call
+     * <code>storeDBState</code>.
+     *
+     * @return false if there was nothing that could be compacted.
+     *
+     * @exception RecordStoreException if an error occurs during
+     *            compaction
+     */
+    private boolean compactStep() throws RecordStoreException
+    {
+    FreeBlockMap map = getFreeMap();
+    int slot = map.getLowest();
+    if (slot < 0) {
+        return false;
+    }
+    try {
+        RecordHeader fb = new RecordHeader(map.getOffset(slot));
+        if (fb.id != -1 || fb.nextOffset >= fb.offset) {
+        // the block is not linked into the record list properly,
+        // leave it for compactRecords
+        return false;
+        }
+
+        int above = fb.offset + fb.blockSize;
+        if (above >= dbDataEnd) {
+        // drop free space at the end of the file
+        removeFreeBlock(slot);
+        dbFirstRecordOffset = fb.nextOffset;
+        dbDataEnd = fb.offset;
+        return true;
+        }
+
+        RecordHeader rh = new RecordHeader(above);
+        int top = above + rh.blockSize;
+        int linkTo;
+        if (rh.id == -1) {
+        // merge two adjacent free blocks
+        int rslot = map.find(rh.offset);
+        if (rslot < 0) {
+            return false;
+        }
+        removeFreeBlock(rslot);
+        // unlinking rh may have rewritten fb's next pointer on disk
+        fb.load(fb.offset);
+        fb.blockSize += rh.blockSize;
+        fb.store();
+        map.resize(slot, fb.blockSize);
+        linkTo = fb.offset;
+        } else {
+        // move the record down over the free block
+        removeFreeBlock(slot);
+        int oldOffset = rh.offset;
+        moveData(oldOffset + DB_RECORD_HEADER_LENGTH,
+             fb.offset + DB_RECORD_HEADER_LENGTH,
+             rh.blockSize - DB_RECORD_HEADER_LENGTH);
+        rh.offset = fb.offset;
+        rh.nextOffset = fb.nextOffset;
+        rh.store();
+        recHeadCache.invalidate(rh.id);
+        if (recIndex != null) {
+            recIndex.put(rh.id, rh.offset);
+        }
+        if (oldOffset == dbFirstRecordOffset) {
+            // the free block would be at the end of the file
+            dbFirstRecordOffset = rh.offset;
+            dbDataEnd = rh.offset + rh.blockSize;
+            return true;
+        }
+        fb.offset = rh.offset + rh.blockSize;
+        fb.nextOffset = rh.offset;
+        freeRecord(fb);
+        linkTo = fb.offset;
+        }
+
+        if (top < dbDataEnd) {
+        RecordHeader prh = new RecordHeader(top);
+        prh.nextOffset = linkTo;
+        prh.store();
+        recHeadCache.invalidate(prh.id);
+        } else {
+        dbFirstRecordOffset = linkTo;
         }
     } catch (java.io.IOException ioe) {
-        throw new RecordStoreException("removeFreeBlock block not found");
+        throw new RecordStoreException("error compacting record store");
+    }
+    return true;
+    }
+
+    /**
+     * Copy <code>length</code> bytes of the record store file from
+     * <code>from</code> down to <code>to</code>. The two regions
+     * may overlap as long as <code>to</code> is less than
+     * <code>from</code>.
+     *
+     * @param from offset of the data to move
+     * @param to offset to move the data to
+     * @param length number of bytes to move
+     *
+     * @exception IOException if there is an error reading or
+     *            writing the underlying RecordStoreFile.
+     */
+    private void moveData(int from, int to, int length)
+    throws java.io.IOException
+    {
+    byte[] chunkBuffer = new byte[DB_COMPACTBUFFER_SIZE];
+    while (length > 0) {
+        int numToMove = length;
+        if (numToMove > DB_COMPACTBUFFER_SIZE) {
+        numToMove = DB_COMPACTBUFFER_SIZE;
+        }
+        dbraf.seek(from);
+        dbraf.read(chunkBuffer, 0, numToMove);
+        dbraf.seek(to);
+        dbraf.write(chunkBuffer, 0, numToMove);
+        from += numToMove;
+        to += numToMove;
+        length -= numToMove;
     }
     }
 
@@ -1374,6 +1787,11 @@ public class RecordStore
      */
     private void storeDBState() throws RecordStoreException
     {
+    if (batchDepth > 0) {
+        // written once by commitBatch
+        dbStateDirty = true;
+        return;
+    }
     try {
         // set modification time
         dbLastModified = System.currentTimeMillis();
@@ -1398,6 +1816,36 @@ public class RecordStore
     }
     }
 
+    /**
+     * Helper method that reads the internal state variables from
+     * the record store file, after checking that it is a record
+     * store by verifying its signature.
+     *
+     * dbraf must be open.
+     */
+    private void loadDBState() throws java.io.IOException,
+    RecordStoreException
+    {
+    byte[] buf = new byte[DB_INIT.length];
+    dbraf.seek(RS_SIGNATURE);
+    dbraf.read(buf);
+    for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+        if (buf[i] != DB_INIT[i])
+        throw new RecordStoreException("invalid record "+
+                       "store contents");
+    }
+
+    // Convert byte array to internal state variables.
+    dbNumLiveRecords = RecordStore.getInt(buf, RS_NUM_LIVE);
+    dbVersion = RecordStore.getInt(buf, RS_VERSION);
+    dbNextRecordID = RecordStore.getInt(buf, RS_NEXT_ID);
+    dbFirstRecordOffset = RecordStore.getInt(buf, RS_REC_START);
+    dbFirstFreeBlockOffset = RecordStore.getInt(buf, RS_FREE_START);
+    dbLastModified = RecordStore.getLong(buf, RS_LAST_MODIFIED);
+    dbDataStart = RecordStore.getInt(buf, RS_DATA_START);
+    dbDataEnd = RecordStore.getInt(buf, RS_DATA_END);
+    }
+
     /*
      * Private Utility Methods
      */
@@ -1583,8 +2031,10 @@ public class RecordStore
      * beginning of the file, and updating record store meta-data
      * as it progresses.
      *
-     * Warning: This is a slow operation that scales linearly
-     * with rsFile size.
+     * Compaction starts at the lowest free block, so the records
+     * below it are not read.  Warning: This is a slow operation
+     * that scales linearly with the size of <code>rsFile</code>
+     * above that block.
      *
      * @exception RecordStoreNotOpenException if this record store
      *            is closed
@@ -1597,12 +2047,24 @@ public class RecordStore
     int offset = dbDataStart;  // after record store header structure
     int target = 0;
     int bytesLeft;
-    int numToMove;
-    byte[] chunkBuffer = new byte[DB_COMPACTBUFFER_SIZE];
 
     RecordHeader rh = new RecordHeader();
 
     int prevRec = 0;
+    int slot = getFreeMap().getLowest();
+    if (slot >= 0) {
+        try {
+        rh.load(freeMap.getOffset(slot));
+        if (rh.nextOffset < rh.offset) {
+            // everything below the lowest free block stays put
+            offset = rh.offset;
+            prevRec = rh.nextOffset;
+        }
+        } catch (java.io.IOException ioe) {
+        // NOTE - should throw some exception here
+        System.out.println("Unexpected IOException in CompactRS!");
+        }
+    }
     while (offset < dbDataEnd) {
         try {
         rh.load(offset);
@@ -1626,25 +2088,17 @@ public class RecordStore
             // Move a record back in the file
             rh.offset = target;
             rh.nextOffset = prevRec;
+            if (recIndex != null) {
+                recIndex.put(rh.id, target);
+            }
             try {
             rh.store();
             offset += DB_RECORD_HEADER_LENGTH;
             target += DB_RECORD_HEADER_LENGTH;
             bytesLeft = (rh.blockSize - DB_RECORD_HEADER_LENGTH);
-            while (bytesLeft > 0) {
-                if (bytesLeft < DB_COMPACTBUFFER_SIZE) {
-                numToMove = bytesLeft;
-                } else {
-                numToMove = DB_COMPACTBUFFER_SIZE;
-                }
-                dbraf.seek(offset);
-                dbraf.read(chunkBuffer, 0, numToMove);
-                dbraf.seek(target);
-                dbraf.write(chunkBuffer, 0, numToMove);
-                offset += numToMove;
-                target += numToMove;
-                bytesLeft -= numToMove;
-            }
+            moveData(offset, target, bytesLeft);
+            offset += bytesLeft;
+            target += bytesLeft;
             } catch (java.io.IOException ioe) {
             // NOTE - should throw some exception here
             System.out.println("Unexpected IOException " +
@@ -1654,10 +2108,13 @@ public class RecordStore
         }
         }
     }
-    if (rh.offset != 0)
-        dbDataEnd = rh.offset + rh.blockSize;
-    dbFirstRecordOffset = rh.offset;
+    if (target != 0) {
+        // the data now ends after the last record moved
+        dbDataEnd = target;
+        dbFirstRecordOffset = prevRec;
+    }
     dbFirstFreeBlockOffset = 0;
+    freeMap = null;
     storeDBState();
     }
 
@@ -1922,4 +2379,567 @@ public class RecordStore
         }
     }
     }
+
+
+    /**
+     * RecordIndex maps record ids to the offsets of their record
+     * headers so that a record can be found without walking the
+     * on disk linked list of records. The ids are kept sorted in
+     * ascending order and looked up with a binary search. Because
+     * new records are always given the highest id so far, adding a
+     * record appends to the end of the table.
+     *
+     * The index is written after the end of data when the record
+     * store is closed and read back when it is next opened.
+     */
+    private class RecordIndex {
+
+    /** record ids in ascending order */
+    private int[] ids;
+
+    /** record header offsets, parallel to <code>ids</code> */
+    private int[] offsets;
+
+    /** number of entries in use */
+    private int count;
+
+    /**
+     * Returns a new, empty RecordIndex.
+     *
+     * @param size initial number of entries to allocate.
+     */
+    RecordIndex(int size) {
+        if (size < CACHE_SIZE) {
+        size = CACHE_SIZE;
+        }
+        ids = new int[size];
+        offsets = new int[size];
+    }
+
+    /**
+     * Returns the position of <code>rec_id</code> in the table or,
+     * if it is not present, <code>-(insertion point + 1)</code>.
+     *
+     * @param rec_id record id to search for.
+     *
+     * @return the position of the record id.
+     */
+    private int find(int rec_id) {
+        int lo = 0;
+        int hi = count - 1;
+        while (lo <= hi) {
+        int mid = (lo + hi) >>> 1;
+        int id = ids[mid];
+        if (id < rec_id) {
+            lo = mid + 1;
+        } else if (id > rec_id) {
+            hi = mid - 1;
+        } else {
+            return mid;
+        }
+        }
+        return -(lo + 1);
+    }
+
+    /**
+     * Make room for at least one more entry.
+     */
+    private void grow() {
+        if (count == ids.length) {
+        int[] newIds = new int[count * 2];
+        int[] newOffsets = new int[count * 2];
+        System.arraycopy(ids, 0, newIds, 0, count);
+        System.arraycopy(offsets, 0, newOffsets, 0, count);
+        ids = newIds;
+        offsets = newOffsets;
+        }
+    }
+
+    /**
+     * Returns the offset of the header of record <code>rec_id</code>.
+     *
+     * @param rec_id the record id to look up.
+     *
+     * @return the offset of the record header or 0 if
+     *         there is no such record.
+     */
+    int get(int rec_id) {
+        int i = find(rec_id);
+        return (i < 0) ? 0 : offsets[i];
+    }
+
+    /**
+     * Adds an entry for record <code>rec_id</code> or updates
+     * the offset of the existing one.
+     *
+     * @param rec_id the record id.
+     * @param offset the offset of the record header.
+     */
+    void put(int rec_id, int offset) {
+        int i = find(rec_id);
+        if (i >= 0) {
+        offsets[i] = offset;
+        return;
+        }
+        i = -(i + 1);
+        grow();
+        if (i < count) {
+        System.arraycopy(ids, i, ids, i + 1, count - i);
+        System.arraycopy(offsets, i, offsets, i + 1, count - i);
+        }
+        ids[i] = rec_id;
+        offsets[i] = offset;
+        count++;
+    }
+
+    /**
+     * Removes the entry for record <code>rec_id</code> if it
+     * exists, otherwise does nothing.
+     *
+     * @param rec_id the record id to remove.
+     */
+    void remove(int rec_id) {
+        int i = find(rec_id);
+        if (i >= 0) {
+        count--;
+        System.arraycopy(ids, i + 1, ids, i, count - i);
+        System.arraycopy(offsets, i + 1, offsets, i, count - i);
+        }
+    }
+
+    /**
+     * Adds an entry to the end of the table without keeping it
+     * sorted. Used while loading or building the index, which
+     * must be followed by a call to <code>sort</code> unless the
+     * entries were appended in ascending order.
+     *
+     * @param rec_id the record id.
+     * @param offset the offset of the record header.
+     */
+    void append(int rec_id, int offset) {
+        grow();
+        ids[count] = rec_id;
+        offsets[count] = offset;
+        count++;
+    }
+
+    /**
+     * Sorts the table by record id. The linked list of records
+     * is mostly in descending id order, so the table is reversed
+     * first and then shell sorted.
+     */
+    void sort() {
+        for (int i = 0, j = count - 1; i < j; i++, j--) {
+        swap(i, j);
+        }
+        for (int gap = count / 2; gap > 0; gap /= 2) {
+        for (int i = gap; i < count; i++) {
+            for (int j = i - gap; j >= 0 && ids[j] > ids[j + gap];
+             j -= gap) {
+            swap(j, j + gap);
+            }
+        }
+        }
+    }
+
+    /**
+     * Swap two entries in the table.
+     *
+     * @param i the first entry.
+     * @param j the second entry.
+     */
+    private void swap(int i, int j) {
+        int t = ids[i];
+        ids[i] = ids[j];
+        ids[j] = t;
+        t = offsets[i];
+        offsets[i] = offsets[j];
+        offsets[j] = t;
+    }
+
+    /**
+     * Writes the index to the RecordStoreFile at <code>_offset</code>,
+     * tagged with the current version of the record store.
+     *
+     * @param _offset seek offset in RecordStoreFile to write to.
+     *
+     * @return the offset of the first byte after the index.
+     *
+     * @exception IOException if there is an error writing the
+     *            underlying RecordStoreFile.
+     */
+    int store(int _offset) throws java.io.IOException {
+        byte[] buf = new byte[DB_INDEX_HEADER_LENGTH + count * 8];
+        RecordStore.putInt(DB_INDEX_MAGIC, buf, 0);
+        RecordStore.putInt(dbVersion, buf, 4);
+        RecordStore.putInt(count, buf, 8);
+        int pos = DB_INDEX_HEADER_LENGTH;
+        for (int i = 0; i < count; i++) {
+        pos += RecordStore.putInt(ids[i], buf, pos);
+        pos += RecordStore.putInt(offsets[i], buf, pos);
+        }
+        dbraf.seek(_offset);
+        dbraf.write(buf);
+        return _offset + buf.length;
+    }
+    }
+
+    /**
+     * FreeBlockMap keeps the free blocks of the record store in memory,
+     * grouped into size classes, so that allocation can pick the best
+     * fit without reading the free block list from the file. It also
+     * mirrors the order of the free block linked list in the file so
+     * that a block can be unlinked there with a single header update.
+     *
+     * Blocks are held in slots; a slot number is valid until the block
+     * is removed.
+     */
+    private class FreeBlockMap {
+
+    /** offset of the free block in each slot */
+    private int[] offsets = new int[CACHE_SIZE];
+
+    /** size of the free block in each slot */
+    private int[] sizes = new int[CACHE_SIZE];
+
+    /** next slot in the file's free list, or the next unused slot */
+    private int[] listNext = new int[CACHE_SIZE];
+
+    /** previous slot in the file's free list */
+    private int[] listPrev = new int[CACHE_SIZE];
+
+    /** next slot in the same size class */
+    private int[] bucketNext = new int[CACHE_SIZE];
+
+    /** previous slot in the same size class */
+    private int[] bucketPrev = new int[CACHE_SIZE];
+
+    /** first slot of each size class */
+    private int[] buckets = new int[DB_FREE_BUCKETS];
+
+    /** the slots in use, sorted by offset */
+    private int[] byOffset = new int[CACHE_SIZE];
+
+    /** number of slots in use */
+    private int used;
+
+    /** first and last slots in the file's free list */
+    private int listHead = -1;
+    private int listTail = -1;
+
+    /** first slot of the chain of unused slots */
+    private int unused = -1;
+
+    /** number of slots ever used */
+    private int count;
+
+    /** total size of the free blocks */
+    private int freeBytes;
+
+    /**
+     * Returns a new, empty FreeBlockMap.
+     */
+    FreeBlockMap() {
+        for (int i = 0; i < DB_FREE_BUCKETS; i++) {
+        buckets[i] = -1;
+        }
+    }
+
+    /**
+     * Returns the size class for a block of <code>size</code> bytes.
+     *
+     * @param size the block size.
+     *
+     * @return the size class.
+     */
+    private int bucketOf(int size) {
+        int b = 0;
+        size /= DB_BLOCK_SIZE;
+        while (size > 1 && b < DB_FREE_BUCKETS - 1) {
+        size >>= 1;
+        b++;
+        }
+        return b;
+    }
+
+    /**
+     * Returns a copy of <code>a</code> twice as long.
+     *
+     * @param a the array to copy.
+     *
+     * @return the new array.
+     */
+    private int[] expand(int[] a) {
+        int[] b = new int[a.length * 2];
+        System.arraycopy(a, 0, b, 0, a.length);
+        return b;
+    }
+
+    /**
+     * Returns a slot for a new free block.
+     *
+     * @param offset the free block offset.
+     * @param size the free block size.
+     *
+     * @return the slot.
+     */
+    private int newSlot(int offset, int size) {
+        int slot;
+        if (unused >= 0) {
+        slot = unused;
+        unused = listNext[slot];
+        } else {
+        if (count == offsets.length) {
+            offsets = expand(offsets);
+            sizes = expand(sizes);
+            listNext = expand(listNext);
+            listPrev = expand(listPrev);
+            bucketNext = expand(bucketNext);
+            bucketPrev = expand(bucketPrev);
+            byOffset = expand(byOffset);
+        }
+        slot = count++;
+        }
+        offsets[slot] = offset;
+        sizes[slot] = size;
+        freeBytes += size;
+        bucketAdd(slot);
+
+        int i = -(search(offset) + 1);
+        System.arraycopy(byOffset, i, byOffset, i + 1, used - i);
+        byOffset[i] = slot;
+        used++;
+        return slot;
+    }
+
+    /**
+     * Binary searches the slots sorted by offset.
+     *
+     * @param offset the free block offset to search for.
+     *
+     * @return the position of the slot in <code>byOffset</code> or,
+     *         if there is none, <code>-(insertion point + 1)</code>.
+     */
+    private int search(int offset) {
+        int lo = 0;
+        int hi = used - 1;
+        while (lo <= hi) {
+        int mid = (lo + hi) >>> 1;
+        int o = offsets[byOffset[mid]];
+        if (o < offset) {
+            lo = mid + 1;
+        } else if (o > offset) {
+            hi = mid - 1;
+        } else {
+            return mid;
+        }
+        }
+        return -(lo + 1);
+    }
+
+    /**
+     * Adds a slot to the front of its size class.
+     *
+     * @param slot the slot.
+     */
+    private void bucketAdd(int slot) {
+        int b = bucketOf(sizes[slot]);
+        bucketPrev[slot] = -1;
+        bucketNext[slot] = buckets[b];
+        if (buckets[b] >= 0) {
+        bucketPrev[buckets[b]] = slot;
+        }
+        buckets[b] = slot;
+    }
+
+    /**
+     * Removes a slot from its size class.
+     *
+     * @param slot the slot.
+     */
+    private void bucketRemove(int slot) {
+        if (bucketPrev[slot] >= 0) {
+        bucketNext[bucketPrev[slot]] = bucketNext[slot];
+        } else {
+        buckets[bucketOf(sizes[slot])] = bucketNext[slot];
+        }
+        if (bucketNext[slot] >= 0) {
+        bucketPrev[bucketNext[slot]] = bucketPrev[slot];
+        }
+    }
+
+    /**
+     * Adds a free block that is at the end of the file's free list.
+     *
+     * @param offset the free block offset.
+     * @param size the free block size.
+     */
+    void append(int offset, int size) {
+        int slot = newSlot(offset, size);
+        listNext[slot] = -1;
+        listPrev[slot] = listTail;
+        if (listTail >= 0) {
+        listNext[listTail] = slot;
+        } else {
+        listHead = slot;
+        }
+        listTail = slot;
+    }
+
+    /**
+     * Adds a free block that is at the front of the file's free list.
+     *
+     * @param offset the free block offset.
+     * @param size the free block size.
+     */
+    void addFirst(int offset, int size) {
+        int slot = newSlot(offset, size);
+        listPrev[slot] = -1;
+        listNext[slot] = listHead;
+        if (listHead >= 0) {
+        listPrev[listHead] = slot;
+        } else {
+        listTail = slot;
+        }
+        listHead = slot;
+    }
+
+    /**
+     * Removes a free block from the map.
+     *
+     * @param slot the free block's slot.
+     */
+    void remove(int slot) {
+        bucketRemove(slot);
+        if (listPrev[slot] >= 0) {
+        listNext[listPrev[slot]] = listNext[slot];
+        } else {
+        listHead = listNext[slot];
+        }
+        if (listNext[slot] >= 0) {
+        listPrev[listNext[slot]] = listPrev[slot];
+        } else {
+        listTail = listPrev[slot];
+        }
+        freeBytes -= sizes[slot];
+        listNext[slot] = unused;
+        unused = slot;
+
+        int i = search(offsets[slot]);
+        used--;
+        System.arraycopy(byOffset, i + 1, byOffset, i, used - i);
+    }
+
+    /**
+     * Changes the size of a free block.
+     *
+     * @param slot the free block's slot.
+     * @param size the new size.
+     */
+    void resize(int slot, int size) {
+        bucketRemove(slot);
+        freeBytes += size - sizes[slot];
+        sizes[slot] = size;
+        bucketAdd(slot);
+    }
+
+    /**
+     * Returns the smallest free block of at least <code>size</code>
+     * bytes. Only the size class for <code>size</code> is searched
+     * through; every block in a larger class is big enough, so the
+     * smallest of the first non-empty one is taken.
+     *
+     * @param size the number of bytes needed.
+     *
+     * @return the slot of the free block or -1 if there is none
+     *         big enough.
+     */
+    int bestFit(int size) {
+        for (int b = bucketOf(size); b < DB_FREE_BUCKETS; b++) {
+        int best = -1;
+        for (int slot = buckets[b]; slot >= 0; slot = bucketNext[slot]) {
+            if (sizes[slot] >= size &&
+            (best < 0 || sizes[slot] < sizes[best])) {
+            best = slot;
+            if (sizes[slot] == size) {
+                break;
+            }
+            }
+        }
+        if (best >= 0) {
+            return best;
+        }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the free block at <code>offset</code>.
+     *
+     * @param offset the free block offset.
+     *
+     * @return the slot of the free block or -1 if there is no
+     *         free block at that offset.
+     */
+    int find(int offset) {
+        int i = search(offset);
+        return (i < 0) ? -1 : byOffset[i];
+    }
+
+    /**
+     * Returns the free block with the lowest offset.
+     *
+     * @return the slot of the free block or -1 if there are no
+     *         free blocks.
+     */
+    int getLowest() {
+        return (used == 0) ? -1 : byOffset[0];
+    }
+
+    /**
+     * Returns the offset of a free block.
+     *
+     * @param slot the free block's slot.
+     *
+     * @return the offset.
+     */
+    int getOffset(int slot) {
+        return offsets[slot];
+    }
+
+    /**
+     * Returns the offset of the free block after this one in the
+     * file's free list.
+     *
+     * @param slot the free block's slot.
+     *
+     * @return the offset or 0 if this is the last free block.
+     */
+    int getNextOffset(int slot) {
+        int next = listNext[slot];
+        return (next < 0) ? 0 : offsets[next];
+    }
+
+    /**
+     * Returns the offset of the free block before this one in the
+     * file's free list.
+     *
+     * @param slot the free block's slot.
+     *
+     * @return the offset or 0 if this is the first free block.
+     */
+    int getPrevOffset(int slot) {
+        int prev = listPrev[slot];
+        return (prev < 0) ? 0 : offsets[prev];
+    }
+
+    /**
+     * Returns the total size of the free blocks.
+     *
+     * @return the number of free bytes.
+     */
+    int getFreeBytes() {
+        return freeBytes;
+    }
+    }
 }
@@ -1,8 +1,63 @@
 package javax.microedition.rms;
 
+import java.util.Vector;
+
 class RecordStoreFile extends java.io.RandomAccessFile {
+
+    /** suffix of the journal file written when a batch is committed */
+    private static final String JOURNAL_SUFFIX = ".jnl";
+
+    /** signature at the start of a journal */
+    private static final int JOURNAL_MAGIC = 0x726d736a; // 'rmsj'
+
+    /** commit marker written after the body of a journal */
+    private static final int JOURNAL_COMMIT = 0x636f6d74; // 'comt'
+
+    /** name of the journal for this file */
+    private String journalName;
+
+    /**
+     * Writes buffered while a batch is in progress. Each element is an
+     * Extent; the extents are sorted by offset and never overlap or
+     * touch, as adjacent writes are merged.
+     */
+    private Vector extents;
+
+    /** file pointer while a batch is in progress */
+    private int pos;
+
+    /**
+     * true if a batch was committed to the journal but could not then be
+     * written to the file. The extents are kept so that reads still see
+     * the batch, nothing more can be written, and <code>recover</code>
+     * writes the batch when the file is next opened.
+     */
+    private boolean unwritten;
+
+    /**
+     * A run of bytes written while a batch is in progress.
+     */
+    private static class Extent {
+        /** file offset of the first byte */
+        int offset;
+        /** number of bytes of <code>buf</code> in use */
+        int length;
+        /** the bytes */
+        byte[] buf;
+
+        Extent(int offset, int capacity) {
+            this.offset = offset;
+            buf = new byte[capacity];
+        }
+
+        int end() {
+            return offset + length;
+        }
+    }
+
 	RecordStoreFile(String filename) throws java.io.IOException {
 	    super(filename, "rw");
+	    journalName = filename + JOURNAL_SUFFIX;
 	}
 
 	public static boolean exists(String filename) {
@@ -11,6 +66,7 @@ class RecordStoreFile extends java.io.RandomAccessFile {
 	}
 
     public static boolean deleteFile(String filename) {
+        new java.io.File(filename + JOURNAL_SUFFIX).delete();
         java.io.File file = new java.io.File(filename);
         return file.delete();
     }
@@ -20,10 +76,333 @@ class RecordStoreFile extends java.io.RandomAccessFile {
     }
 
     public void truncate(int n) throws java.io.IOException {
+        if (unwritten) {
+            throw new java.io.IOException("batch not written");
+        }
         setLength(n);
     }
 
     public static String[] listRecordStores() {
         return null;
     }
+
+    /*
+     * Batches
+     */
+
+    /**
+     * Start buffering writes in memory. Reads see the buffered writes.
+     * Nothing is written to the file until <code>commitBatch</code>.
+     */
+    void beginBatch() throws java.io.IOException {
+        if (unwritten) {
+            throw new java.io.IOException("batch not written");
+        }
+        if (extents == null) {
+            pos = (int)super.getFilePointer();
+            extents = new Vector();
+        }
+    }
+
+    /**
+     * Write the buffered writes to the file. They are first written to a
+     * journal followed by a commit marker, then to the file, and then the
+     * journal is deleted. If this is interrupted before the commit marker
+     * is written, <code>recover</code> throws the journal away and the file
+     * is as it was before the batch. If it is interrupted after that,
+     * <code>recover</code> writes the journal to the file again.
+     * <p>
+     * If the journal cannot be written, the batch is still in progress
+     * when this throws and the file is unchanged. If the file cannot be
+     * written once the journal has been, <code>hasUnwrittenBatch</code>
+     * returns true.
+     */
+    void commitBatch() throws java.io.IOException {
+        Vector ext = extents;
+        if (ext == null || unwritten) {
+            return;
+        }
+        if (ext.isEmpty()) {
+            extents = null;
+            return;
+        }
+
+        int size = 8;
+        for (int i = 0; i < ext.size(); i++) {
+            size += 8 + ((Extent)ext.elementAt(i)).length;
+        }
+        byte[] journal = new byte[size];
+        RecordStore.putInt(JOURNAL_MAGIC, journal, 0);
+        RecordStore.putInt(ext.size(), journal, 4);
+        int p = 8;
+        for (int i = 0; i < ext.size(); i++) {
+            Extent e = (Extent)ext.elementAt(i);
+            p += RecordStore.putInt(e.offset, journal, p);
+            p += RecordStore.putInt(e.length, journal, p);
+            System.arraycopy(e.buf, 0, journal, p, e.length);
+            p += e.length;
+        }
+        byte[] marker = new byte[8];
+        RecordStore.putInt(JOURNAL_COMMIT, marker, 0);
+        RecordStore.putInt(checksum(journal, size), marker, 4);
+
+        try {
+            java.io.RandomAccessFile jnl = new java.io.RandomAccessFile(journalName, "rw");
+            try {
+                jnl.setLength(0);
+                jnl.write(journal);
+                jnl.write(marker);
+            } finally {
+                jnl.close();
+            }
+        } catch (java.io.IOException ioe) {
+            // the batch is not committed so recover must not replay it
+            new java.io.File(journalName).delete();
+            throw ioe;
+        }
+
+        try {
+            for (int i = 0; i < ext.size(); i++) {
+                Extent e = (Extent)ext.elementAt(i);
+                super.seek(e.offset);
+                super.write(e.buf, 0, e.length);
+            }
+        } catch (java.io.IOException ioe) {
+            unwritten = true;
+            throw ioe;
+        }
+        extents = null;
+        super.seek(pos);
+        new java.io.File(journalName).delete();
+    }
+
+    /**
+     * Throw away the buffered writes of a batch that could not be
+     * committed.
+     */
+    void abortBatch() {
+        if (!unwritten) {
+            extents = null;
+        }
+    }
+
+    /**
+     * Returns true if a batch was committed to the journal but could not
+     * be written to the file.
+     */
+    boolean hasUnwrittenBatch() {
+        return unwritten;
+    }
+
+    /**
+     * Finish a batch that was interrupted by a crash. A complete journal
+     * is written to the file; a torn one is thrown away.
+     */
+    void recover() throws java.io.IOException {
+        java.io.File file = new java.io.File(journalName);
+        if (!file.exists()) {
+            return;
+        }
+        java.io.RandomAccessFile jnl = new java.io.RandomAccessFile(journalName, "r");
+        byte[] journal;
+        try {
+            journal = new byte[(int)jnl.length()];
+            jnl.readFully(journal);
+        } finally {
+            jnl.close();
+        }
+
+        int size = journal.length - 8;
+        if (size >= 8 &&
+            RecordStore.getInt(journal, 0) == JOURNAL_MAGIC &&
+            RecordStore.getInt(journal, size) == JOURNAL_COMMIT &&
+            RecordStore.getInt(journal, size + 4) == checksum(journal, size)) {
+            int count = RecordStore.getInt(journal, 4);
+            int p = 8;
+            for (int i = 0; i < count; i++) {
+                int offset = RecordStore.getInt(journal, p);
+                int length = RecordStore.getInt(journal, p + 4);
+                super.seek(offset);
+                super.write(journal, p + 8, length);
+                p += 8 + length;
+            }
+        }
+        file.delete();
+    }
+
+    /**
+     * Returns a checksum of the first <code>length</code> bytes of
+     * <code>data</code>.
+     */
+    private static int checksum(byte[] data, int length) {
+        int sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum = (sum * 31) + (data[i] & 0xFF);
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the index of the first extent that ends at or after
+     * <code>offset</code>, or the number of extents if there is none.
+     */
+    private int findExtent(int offset) {
+        int lo = 0;
+        int hi = extents.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (((Extent)extents.elementAt(mid)).end() < offset) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Buffer a write, merging it with the extents it overlaps or touches.
+     */
+    private void bufferWrite(byte[] b, int off, int len) {
+        int start = pos;
+        int end = pos + len;
+        int i = findExtent(start);
+        Extent target;
+        if (i < extents.size() && ((Extent)extents.elementAt(i)).offset <= start) {
+            target = (Extent)extents.elementAt(i);
+            i++;
+        } else {
+            target = new Extent(start, len);
+            extents.insertElementAt(target, i);
+            i++;
+        }
+
+        // Work out how far the merged extent reaches
+        int newEnd = Math.max(end, target.end());
+        int last = i;
+        while (last < extents.size() && ((Extent)extents.elementAt(last)).offset <= newEnd) {
+            newEnd = Math.max(newEnd, ((Extent)extents.elementAt(last)).end());
+            last++;
+        }
+
+        int needed = newEnd - target.offset;
+        if (needed > target.buf.length) {
+            byte[] buf = new byte[Math.max(needed, target.buf.length * 2)];
+            System.arraycopy(target.buf, 0, buf, 0, target.length);
+            target.buf = buf;
+        }
+
+        // Absorb the following extents, then lay the new bytes on top
+        while (last > i) {
+            Extent e = (Extent)extents.elementAt(i);
+            System.arraycopy(e.buf, 0, target.buf, e.offset - target.offset, e.length);
+            extents.removeElementAt(i);
+            last--;
+        }
+        System.arraycopy(b, off, target.buf, start - target.offset, len);
+        target.length = needed;
+        pos = end;
+    }
+
+    /*
+     * RandomAccessFile overrides that go through the batch buffer
+     */
+
+    public long getFilePointer() throws java.io.IOException {
+        return (extents == null) ? super.getFilePointer() : pos;
+    }
+
+    public void seek(long p) throws java.io.IOException {
+        if (extents == null) {
+            super.seek(p);
+        } else {
+            pos = (int)p;
+        }
+    }
+
+    public long length() throws java.io.IOException {
+        long length = super.length();
+        if (extents != null && !extents.isEmpty()) {
+            length = Math.max(length, ((Extent)extents.lastElement()).end());
+        }
+        return length;
+    }
+
+    public int read() throws java.io.IOException {
+        byte[] b = new byte[1];
+        return (read(b, 0, 1) == 1) ? (b[0] & 0xFF) : -1;
+    }
+
+    public int read(byte[] b) throws java.io.IOException {
+        return read(b, 0, b.length);
+    }
+
+    public int read(byte[] b, int off, int len) throws java.io.IOException {
+        if (extents == null) {
+            return super.read(b, off, len);
+        }
+        int length = (int)length();
+        if (pos >= length) {
+            return -1;
+        }
+        if (len > length - pos) {
+            len = length - pos;
+        }
+
+        int end = pos + len;
+        int first = findExtent(pos + 1);
+        if (first < extents.size()) {
+            Extent e = (Extent)extents.elementAt(first);
+            if (e.offset <= pos && e.end() >= end) {
+                // all of it was written in this batch
+                System.arraycopy(e.buf, pos - e.offset, b, off, len);
+                pos = end;
+                return len;
+            }
+        }
+
+        // Read what is in the file, then overlay the buffered writes
+        int n = 0;
+        super.seek(pos);
+        while (n < len) {
+            int r = super.read(b, off + n, len - n);
+            if (r <= 0) {
+                break;
+            }
+            n += r;
+        }
+        while (n < len) {
+            b[off + n++] = 0;  // the file will be extended by the batch
+        }
+        for (int i = first; i < extents.size(); i++) {
+            Extent e = (Extent)extents.elementAt(i);
+            if (e.offset >= end) {
+                break;
+            }
+            int from = Math.max(pos, e.offset);
+            int to = Math.min(end, e.end());
+            System.arraycopy(e.buf, from - e.offset, b, off + from - pos, to - from);
+        }
+        pos = end;
+        return len;
+    }
+
+    public void write(int b) throws java.io.IOException {
+        write(new byte[] { (byte)b }, 0, 1);
+    }
+
+    public void write(byte[] b) throws java.io.IOException {
+        write(b, 0, b.length);
+    }
+
+    public void write(byte[] b, int off, int len) throws java.io.IOException {
+        if (unwritten) {
+            throw new java.io.IOException("batch not written");
+        }
+        if (extents == null) {
+            super.write(b, off, len);
+        } else if (len > 0) {
+            bufferWrite(b, off, len);
+        }
+    }
 }
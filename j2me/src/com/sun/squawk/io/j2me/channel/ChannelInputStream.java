@@ -13,10 +13,42 @@ import java.io.*;
 
 /**
  * ChannelInputStream
+ * <p>
+ * Bytes are read from the channel a buffer at a time with READBUF so that
+ * reading a byte or a number does not need an I/O operation of its own.
+ * Reads bigger than the buffer go straight into the caller's array.
  */
 public class ChannelInputStream extends DataInputStream {
 
+    /**
+     * The size of the buffer.
+     */
+    private final static int BUFFER_SIZE = 512;
+
     int chan;
+
+    /**
+     * The output stream of the same connection. Its buffered bytes are
+     * written before this stream waits for input, as the input may well be
+     * the reply to them.
+     */
+    ChannelOutputStream out;
+
+    /**
+     * The buffered bytes are those from pos up to count.
+     */
+    private byte[] buf = new byte[BUFFER_SIZE];
+    private int pos;
+    private int count;
+
+    /**
+     * The position of the mark in the buffer, or -1 if there is none. The
+     * bytes from the mark on are kept until more than marklimit bytes have
+     * been read after it.
+     */
+    private int markpos = -1;
+    private int marklimit;
+
     public ChannelInputStream(int chan) throws IOException {
         super(null);
         this.chan = chan;
@@ -24,30 +56,79 @@ public class ChannelInputStream extends DataInputStream {
     }
 
     public void close() throws IOException {
+        pos = count = 0;
+        markpos = -1;
         Native.execIO(chan, ChannelOpcodes.CLOSEINPUT, 0, 0, 0, 0, 0, 0, null, null, null);
     }
 
-    public int read() throws IOException {
-        return (int)Native.execIO(chan, ChannelOpcodes.READBYTE, 0, 0, 0, 0, 0, 0, null, null, null);
-    }
-
-    public int readUnsignedShort() throws IOException {
-        return (int)Native.execIO(chan, ChannelOpcodes.READSHORT, 0, 0, 0, 0, 0, 0, null, null, null);
-    }
-
-    public int readInt() throws IOException {
-        return (int)Native.execIO(chan, ChannelOpcodes.READINT, 0, 0, 0, 0, 0, 0, null, null, null);
+    /**
+     * Read more bytes into the buffer, making room for them by discarding
+     * the bytes that have been read unless they are needed for the mark.
+     *
+     * @return the number of bytes read, or -1 at the end of the input
+     */
+    private int fill() throws IOException {
+        if (markpos < 0) {
+            pos = 0;
+        } else if (pos >= buf.length) {
+            if (markpos > 0) {
+                System.arraycopy(buf, markpos, buf, 0, pos - markpos);
+                pos -= markpos;
+                markpos = 0;
+            } else if (buf.length >= marklimit) {
+                markpos = -1;
+                pos = 0;
+            } else {
+                byte[] newbuf = new byte[Math.min(buf.length * 2, marklimit)];
+                System.arraycopy(buf, 0, newbuf, 0, pos);
+                buf = newbuf;
+            }
+        }
+        count = pos;
+        if (out != null) {
+            out.flushBuffer();
+        }
+        int n = (int)Native.execIO(chan, ChannelOpcodes.READBUF, pos, buf.length - pos, 0, 0, 0, 0, null, null, buf);
+        if (n > 0) {
+            count = pos + n;
+        }
+        return n;
     }
 
-    public long readLong() throws IOException {
-        return Native.execIO(chan, ChannelOpcodes.READLONG, 0, 0, 0, 0, 0, 0, null, null, null);
+    public int read() throws IOException {
+        if (pos >= count && fill() <= 0) {
+            return -1;
+        }
+        return buf[pos++] & 0xFF;
     }
 
     public int read(byte b[], int off, int len) throws IOException {
         if (b == null) {
             throw new NullPointerException();
         }
-        return (int)Native.execIO(chan, ChannelOpcodes.READBUF, off, len, 0, 0, 0, 0, null, null, b);
+        if (off < 0 || len < 0 || off + len > b.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        int avail = count - pos;
+        if (avail <= 0) {
+            if (len >= buf.length && markpos < 0) {
+                if (out != null) {
+                    out.flushBuffer();
+                }
+                return (int)Native.execIO(chan, ChannelOpcodes.READBUF, off, len, 0, 0, 0, 0, null, null, b);
+            }
+            if (fill() <= 0) {
+                return -1;
+            }
+            avail = count - pos;
+        }
+        int n = (avail < len) ? avail : len;
+        System.arraycopy(buf, pos, b, off, n);
+        pos += n;
+        return n;
     }
 
     public int read(byte b[]) throws IOException {
@@ -55,31 +136,42 @@ public class ChannelInputStream extends DataInputStream {
     }
 
     public long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        long avail = count - pos;
+        if (avail > 0 || markpos >= 0) {
+            if (avail <= 0) {
+                if (fill() <= 0) {
+                    return 0;
+                }
+                avail = count - pos;
+            }
+            long skipped = (avail < n) ? avail : n;
+            pos += (int)skipped;
+            return skipped;
+        }
         return Native.execIO(chan, ChannelOpcodes.SKIP, (int)(n >>> 32), (int)n, 0, 0, 0, 0, null, null, null);
     }
 
     public int available() throws IOException {
-        return (int)Native.execIO(chan, ChannelOpcodes.AVAILABLE, 0, 0, 0, 0, 0, 0, null, null, null);
+        return (count - pos) + (int)Native.execIO(chan, ChannelOpcodes.AVAILABLE, 0, 0, 0, 0, 0, 0, null, null, null);
     }
 
     public void mark(int readlimit) {
-        try {
-            Native.execIO(chan, ChannelOpcodes.MARK, readlimit, 0, 0, 0, 0, 0, null, null, null);
-        } catch (IOException ex) {}
-
+        marklimit = readlimit;
+        markpos = pos;
     }
 
     public void reset() throws IOException {
-        Native.execIO(chan, ChannelOpcodes.RESET, 0, 0, 0, 0, 0, 0, null, null, null);
+        if (markpos < 0) {
+            throw new IOException("Resetting to invalid mark");
+        }
+        pos = markpos;
     }
 
     public boolean markSupported() {
-        try {
-            long res = Native.execIO(chan, ChannelOpcodes.MARK, 0, 0, 0, 0, 0, 0, null, null, null);
-            return res != 0;
-        } catch (IOException ex) {
-            return false;
-        }
+        return true;
     }
 
 }
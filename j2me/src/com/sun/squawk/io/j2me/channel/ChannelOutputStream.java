@@ -9,35 +9,145 @@
 package com.sun.squawk.io.j2me.channel;
 
 import java.io.*;
+import com.sun.squawk.util.IntHashtable;
 import com.sun.squawk.vm.ChannelOpcodes;
 
 /**
  * ChannelOutputStream
+ * <p>
+ * Bytes are collected in a buffer and written to the channel with WRITEBUF
+ * when it is full or the stream is flushed or closed. Writes bigger than
+ * the buffer go straight from the caller's array.
+ * <p>
+ * The host end of the channel may buffer as well, so bytes written are only
+ * sure to reach their destination once the stream is flushed or closed.
+ * A stream written to since it was last flushed is recorded against its
+ * channel. It is flushed when its channel connection is closed or finalized
+ * (see Protocol) or the VM exits (see VMExtension.stopVM), so that output
+ * is not lost if a program does none of these. A stream that is dropped
+ * is held by the record no longer than its connection.
  */
 public class ChannelOutputStream extends DataOutputStream {
 
+    /**
+     * The size of the buffer.
+     */
+    private final static int BUFFER_SIZE = 512;
+
     int chan;
 
+    /**
+     * The buffered bytes are those before count.
+     */
+    private byte[] buf = new byte[BUFFER_SIZE];
+    private int count;
+
+    /**
+     * The stream written to since it was last flushed for each channel,
+     * keyed by channel number.
+     */
+    private static IntHashtable unflushed = new IntHashtable();
+    private boolean isUnflushed;
+
     public ChannelOutputStream(int chan) throws IOException {
         super(null);
         this.chan = chan;
         Native.execIO(chan, ChannelOpcodes.OPENOUTPUT, 0, 0, 0, 0, 0, 0, null, null, null);
     }
 
+    /**
+     * Record this stream as unflushed if it is not already. This is called
+     * before every write. Another unflushed stream on the same channel is
+     * flushed first so that its bytes go out before this stream's.
+     */
+    private void written() throws IOException {
+        if (!isUnflushed) {
+            flushChannel(chan);
+            setUnflushed(this, true);
+        }
+    }
+
+    /**
+     * Record a stream as unflushed or forget it.
+     */
+    private static synchronized void setUnflushed(ChannelOutputStream s, boolean add) {
+        if (s.isUnflushed == add) {
+            return;
+        }
+        s.isUnflushed = add;
+        if (add) {
+            unflushed.put(s.chan, s);
+        } else {
+            unflushed.remove(s.chan);
+        }
+    }
+
+    /**
+     * Flush the stream on a channel that has been written to since it was
+     * last flushed, if there is one.
+     *
+     * @param chan the channel number
+     */
+    static void flushChannel(int chan) throws IOException {
+        ChannelOutputStream s = (ChannelOutputStream)unflushed.get(chan);
+        if (s != null) {
+            s.flush();
+        }
+    }
+
+    /**
+     * Flush every stream written to since it was last flushed. Errors are
+     * ignored as this is only called when the VM is exiting.
+     */
+    public static void flushAll() {
+        while (!unflushed.isEmpty()) {
+            ChannelOutputStream s = (ChannelOutputStream)unflushed.get(unflushed.getFirstKey());
+            try {
+                s.flush();
+            } catch (IOException ex) {
+                setUnflushed(s, false);
+            }
+        }
+    }
+
+    /**
+     * Write the buffered bytes to the channel.
+     */
+    void flushBuffer() throws IOException {
+        if (count > 0) {
+            int n = count;
+            count = 0;
+            Native.execIO(chan, ChannelOpcodes.WRITEBUF, 0, n, 0, 0, 0, 0, buf, null, null);
+        }
+    }
+
     public void flush() throws IOException {
+        setUnflushed(this, false);
+        flushBuffer();
         Native.execIO(chan, ChannelOpcodes.FLUSH, 0, 0, 0, 0, 0, 0, null, null, null);
     }
 
     public void close() throws IOException {
+        setUnflushed(this, false);
+        flushBuffer();
         Native.execIO(chan, ChannelOpcodes.CLOSEOUTPUT, 0, 0, 0, 0, 0, 0, null, null, null);
     }
 
     public void write(int v) throws IOException {
-        Native.execIO(chan, ChannelOpcodes.WRITEBYTE, v, 0, 0, 0, 0, 0, null, null, null);
+        if (count == buf.length) {
+            flushBuffer();
+        }
+        written();
+        buf[count++] = (byte)v;
     }
 
     public void writeShort(int v) throws IOException {
-        Native.execIO(chan, ChannelOpcodes.WRITESHORT, v, 0, 0, 0, 0, 0, null, null, null);
+        if (count + 2 > buf.length) {
+            flushBuffer();
+        }
+        written();
+        buf[count++] = (byte)(v >>> 8);
+        buf[count++] = (byte)v;
     }
 
     public void writeChar(int v) throws IOException {
@@ -45,20 +155,39 @@ public class ChannelOutputStream extends DataOutputStream {
     }
 
     public void writeInt(int v) throws IOException {
-        Native.execIO(chan, ChannelOpcodes.WRITEINT, v, 0, 0, 0, 0, 0, null, null, null);
+        if (count + 4 > buf.length) {
+            flushBuffer();
+        }
+        written();
+        buf[count++] = (byte)(v >>> 24);
+        buf[count++] = (byte)(v >>> 16);
+        buf[count++] = (byte)(v >>> 8);
+        buf[count++] = (byte)v;
     }
 
     public void writeLong(long v) throws IOException {
-        Native.execIO(chan, ChannelOpcodes.WRITELONG, (int)(v >>> 32), (int)v, 0, 0, 0, 0, null, null, null);
+        writeInt((int)(v >>> 32));
+        writeInt((int)v);
     }
 
     public void write(byte b[], int off, int len) throws IOException {
         if (b == null) {
             throw new NullPointerException();
         }
-        Native.execIO(chan, ChannelOpcodes.WRITEBUF, off, len, 0, 0, 0, 0, b, null, null);
+        if (off < 0 || len < 0 || off + len > b.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        written();
+        if (len >= buf.length) {
+            flushBuffer();
+            Native.execIO(chan, ChannelOpcodes.WRITEBUF, off, len, 0, 0, 0, 0, b, null, null);
+            return;
+        }
+        if (len > buf.length - count) {
+            flushBuffer();
+        }
+        System.arraycopy(b, off, buf, count, len);
+        count += len;
     }
 
 }
-
-
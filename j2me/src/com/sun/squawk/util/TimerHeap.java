@@ -0,0 +1,195 @@
+package com.sun.squawk.util;
+
+/**
+ * A priority queue of objects ordered by the time at which they are due.
+ * It is a binary heap, so adding an object and removing the first or any
+ * other object takes O(log n) time. The scheduler uses one for sleeping
+ * and timed waiting threads and java.util.Timer uses one for its tasks.
+ * <p>
+ * To make removal of an arbitrary object cheap, each object remembers its
+ * position in the heap. A subclass records the position in a field of the
+ * object when <code>setIndex</code> is called.
+ * <p>
+ * This class is not synchronized and does not allocate anything other than
+ * its arrays, which only grow.
+ */
+public abstract class TimerHeap {
+
+    /**
+     * The objects in heap order. The first object is at index 1 so that the
+     * children of index i are at 2i and 2i+1.
+     */
+    private Object[] items;
+
+    /**
+     * The time at which each object in <code>items</code> is due.
+     */
+    private long[] times;
+
+    /**
+     * The number of objects in the heap.
+     */
+    private int size;
+
+    /**
+     * Create a new heap.
+     *
+     * @param capacity the number of objects it can hold before it must grow
+     */
+    protected TimerHeap(int capacity) {
+        items = new Object[capacity + 1];
+        times = new long[capacity + 1];
+    }
+
+    /**
+     * Record the position of an object in the heap.
+     *
+     * @param item  an object in the heap
+     * @param index its new index, or 0 if it has been removed
+     */
+    protected abstract void setIndex(Object item, int index);
+
+    /**
+     * Get the number of objects in the heap.
+     */
+    public final int size() {
+        return size;
+    }
+
+    /**
+     * Test whether the heap is empty.
+     */
+    public final boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Get the object that is due first, or null if the heap is empty.
+     */
+    public final Object getFirst() {
+        return items[1];
+    }
+
+    /**
+     * Get the time at which the first object is due. The heap must not be
+     * empty.
+     */
+    public final long getFirstTime() {
+        return times[1];
+    }
+
+    /**
+     * Add an object to the heap.
+     *
+     * @param item the object
+     * @param time the time at which it is due
+     */
+    public final void add(Object item, long time) {
+        if (++size == items.length) {
+            Object[] oldItems = items;
+            long[] oldTimes = times;
+            items = new Object[oldItems.length * 2];
+            times = new long[oldTimes.length * 2];
+            System.arraycopy(oldItems, 0, items, 0, size);
+            System.arraycopy(oldTimes, 0, times, 0, size);
+        }
+        siftUp(size, item, time);
+    }
+
+    /**
+     * Remove the object that is due first. The heap must not be empty.
+     *
+     * @return the object
+     */
+    public final Object removeFirst() {
+        return remove(1);
+    }
+
+    /**
+     * Remove the object at a given position.
+     *
+     * @param index the position most recently passed to <code>setIndex</code>
+     *              for the object
+     * @return the object
+     */
+    public final Object remove(int index) {
+        Object item = items[index];
+        Object last = items[size];
+        long lastTime = times[size];
+        items[size--] = null;
+        setIndex(item, 0);
+        if (index <= size) {
+            reposition(index, last, lastTime);
+        }
+        return item;
+    }
+
+    /**
+     * Change the time at which the object at a given position is due.
+     *
+     * @param index the position of the object
+     * @param time  its new time
+     */
+    public final void setTime(int index, long time) {
+        reposition(index, items[index], time);
+    }
+
+    /**
+     * Remove all the objects.
+     */
+    public final void clear() {
+        while (size > 0) {
+            setIndex(items[size], 0);
+            items[size--] = null;
+        }
+    }
+
+    /**
+     * Put an object into the hole at a given index and move it up or down
+     * to restore the heap order.
+     */
+    private void reposition(int index, Object item, long time) {
+        if (index > 1 && times[index >> 1] > time) {
+            siftUp(index, item, time);
+        } else {
+            siftDown(index, item, time);
+        }
+    }
+
+    private void siftUp(int index, Object item, long time) {
+        while (index > 1) {
+            int parent = index >> 1;
+            if (times[parent] <= time) {
+                break;
+            }
+            move(parent, index);
+            index = parent;
+        }
+        put(index, item, time);
+    }
+
+    private void siftDown(int index, Object item, long time) {
+        int child;
+        while ((child = index << 1) <= size) {
+            if (child < size && times[child + 1] < times[child]) {
+                child++;
+            }
+            if (time <= times[child]) {
+                break;
+            }
+            move(child, index);
+            index = child;
+        }
+        put(index, item, time);
+    }
+
+    private void move(int from, int to) {
+        put(to, items[from], times[from]);
+    }
+
+    private void put(int index, Object item, long time) {
+        items[index] = item;
+        times[index] = time;
+        setIndex(item, index);
+    }
+}
@@ -56,13 +56,17 @@ public final class Klass {
     public final StringOfSymbols symbols; /*@vmaccessed: read */
 
     /**
-     * The ordered set of interface types implemented by this class.
+     * The set of interface types implemented by this class. For a
+     * non-abstract class this is an open addressed hash table keyed on the
+     * interface type (0 marks an empty entry) that also includes the
+     * interfaces implemented by its superclasses.
      */
     public final char[] interfaceTypes; /*@vmaccessed: read */
 
     /**
      * The mapping from the logical offset of each interface method
-     * implemented to the virtual methods that implement them.
+     * implemented to the virtual methods that implement them. This is
+     * parallel to <code>interfaceTypes</code>.
      */
     public final byte[][] interfaceSlotTables; /*@vmaccessed: read */
 
@@ -100,6 +104,11 @@ public final class Klass {
      * overridden will be null in this class's vtable. This is so the
      * VM can efficiently set the current class pointer when resolving
      * a method executing an INVOKEVIRTUAL instruction.
+     *
+     * If the loader was configured to flatten vtables then the vtable may
+     * instead start at index 0 and contain every virtual method in the
+     * class's hierarchy. The VM then gets the current class pointer from the
+     * suite and class numbers in the method's header.
      */
     public final byte[][] virtualMethods; /*@vmaccessed: read */
 
@@ -379,9 +388,14 @@ public final class Klass {
                 * interface types specified in the class file less those defined in the
                 * superclass hierarchy. Therefore it is only necessary to check this list
                 * and not the interfaces implemented by the interfaces, and then to do this
-                * to the superclasses until it is matched.
+                * to the superclasses until it is matched. The list of a non-abstract
+                * class is a hash table (see KlassBuilder) in which 0 marks an empty
+                * entry.
                 */
                 for (int i = 0 ; i < thisClass.interfaceTypes.length ; i++) {
+                    if (thisClass.interfaceTypes[i] == 0) {
+                        continue;
+                    }
                     Klass k = SuiteManager.lookup(thisClass.interfaceTypes[i]);
                     if (k == klass) {
                         return true;
@@ -447,6 +461,13 @@ public final class Klass {
         return symbols.equalsClassName(name);
     }
 
+    /**
+     * Returns the hash code of the internal class name
+     */
+    public int hashInternalName() {
+        return symbols.hashClassName();
+    }
+
 //=============================================================================================================================
 //                                                     Class initialization
 //=============================================================================================================================
@@ -82,6 +82,7 @@ public class Native {
     native   static void                stringcopy0(Object src, int spos, Object dst, int dpos, int lth);
     native   static StringOfSymbols     makeStringOfSymbols(String s);
     native   static boolean             inRam(Object ref); /*@stub: { return true; } */
+    native   static int                 getIdentityHashCode(Object ref); /*@stub: { return 0; } */
     native   public static byte[]       newPersistentByteArray(int size); /*@stub: { return new byte[size]; } */
 
 /*if[FLOATS]*/
@@ -167,6 +167,14 @@ class ObjectAssociation implements
      * getHashcode
      */
     static int getHashCode(Object object) {
+       /*
+        * Most objects keep their hash code in their header. Only arrays and
+        * objects outside RAM need an association.
+        */
+        int hashCode = Native.getIdentityHashCode(object);
+        if (hashCode != 0) {
+            return hashCode;
+        }
         ObjectAssociation assn = getAssociation(object);
         while (assn.hashCode == 0) {
             assn.hashCode = nextHashcode++;
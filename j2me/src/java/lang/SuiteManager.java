@@ -9,6 +9,32 @@ public class SuiteManager {
     /** This field needs to be accessible by the romizer. */
     /*private*/ static Suite[] suites = (Suite[])PersistentMemory.getSuites();
 
+    /**
+     * The class name hash index of each suite, indexed by suite number.
+     * An index is an open addressed table of (name hash, class number + 1)
+     * pairs. It is built when a suite is added (or the first time a ROM
+     * suite is searched) and dropped when the suite is removed. The indexes
+     * are only held in RAM as the suites may be in ROM or EEPROM.
+     */
+    private static int[][] indexes;
+
+    /**
+     * The suite each entry in 'indexes' was built for.
+     */
+    private static Suite[] indexedSuites;
+
+    /**
+     * Names recently passed to forName that did not match any installed
+     * class, indexed by the low bits of their hash codes. This is cleared
+     * when a suite is added.
+     */
+    private static String[] missing;
+
+    /**
+     * The number of entries in 'missing'. Must be a power of 2.
+     */
+    private final static int MISSING_SIZE = 32;
+
     /**
      * Get the Class instance corresponding to a specified suite and class
      * identifier.
@@ -28,14 +54,15 @@ public class SuiteManager {
      * @return the found Class instance or null if there isn't one.
      */
     public static Klass lookup(String[] suiteNames, String internalName) {
-        Klass klass = (suites.length == 0 || suites[0] == null) ? null : suites[0].lookup(internalName);
+        int hash = internalName.hashCode();
+        Klass klass = (suites.length == 0 || suites[0] == null) ? null : lookup(0, internalName, hash, 1);
         if (klass == null) {
             search:
             for (int i = 1; i < suites.length; i++) {
                 Suite suite = suites[i];
                 if (suite != null) {
                     if (suite.nameMatches(suiteNames)) {
-                        klass = suite.lookup(internalName);
+                        klass = lookup(i, internalName, hash, 1);
                         if (klass != null) {
                             break search;
                         }
@@ -54,17 +81,112 @@ public class SuiteManager {
     public static Klass forName(String name) {
 //Native.print("SuiteManager.forName ");
 //Native.print(name);
+        int hash = name.hashCode();
+        if (missing != null) {
+            String miss = missing[hash & (MISSING_SIZE - 1)];
+            if (miss != null && miss.equals(name)) {
+//Native.println(" -- Fail (cached)");
+                return null;
+            }
+        }
         for (int i = 0 ; i < suites.length ; i++) {
-            Klass klass = suites[i].forName(name);
-            if (klass != null) {
+            if (suites[i] != null) {
+                Klass klass = lookup(i, name, hash, 0);
+                if (klass != null) {
 //Native.println(" -- Okay");
-                return klass;
+                    return klass;
+                }
             }
         }
+        if (missing == null) {
+            missing = new String[MISSING_SIZE];
+        }
+        missing[hash & (MISSING_SIZE - 1)] = name;
 //Native.println(" -- Fail");
         return null;
     }
 
+    /**
+     * Find a class by name in an installed suite using the suite's
+     * name index.
+     *
+     * @param number The suite number.
+     * @param name The name of the class in internal form.
+     * @param hash The hash code of 'name'.
+     * @param first The lowest class number that may be returned.
+     * @return the found Class instance or null if there isn't one.
+     */
+    private static Klass lookup(int number, String name, int hash, int first) {
+        Klass[] classes = suites[number].classes;
+        int[] index = getIndex(number);
+        int mask = (index.length / 2) - 1;
+        for (int i = hash & mask ;; i = (i + 1) & mask) {
+            int cno = index[i * 2 + 1] - 1;
+            if (cno < 0) {
+                return null;
+            }
+            if (index[i * 2] == hash && cno >= first && classes[cno].equalsInternalName(name)) {
+                return classes[cno];
+            }
+        }
+    }
+
+    /**
+     * Get the name index of an installed suite, building it if necessary.
+     *
+     * @param number The suite number.
+     * @return the index.
+     */
+    private static int[] getIndex(int number) {
+        Suite suite = suites[number];
+        if (indexes == null || number >= indexes.length) {
+            int length = (suites.length > number) ? suites.length : number + 1;
+            int[][] newIndexes = new int[length][];
+            Suite[] newIndexedSuites = new Suite[length];
+            if (indexes != null) {
+                System.arraycopy(indexes, 0, newIndexes, 0, indexes.length);
+                System.arraycopy(indexedSuites, 0, newIndexedSuites, 0, indexedSuites.length);
+            }
+            indexes = newIndexes;
+            indexedSuites = newIndexedSuites;
+        }
+        int[] index = indexes[number];
+        if (index == null || indexedSuites[number] != suite) {
+            index = buildIndex(suite.classes);
+            indexes[number] = index;
+            indexedSuites[number] = suite;
+        }
+        return index;
+    }
+
+    /**
+     * Build the name index for the classes of a suite.
+     *
+     * @param classes The classes in the suite.
+     * @return the index.
+     */
+    private static int[] buildIndex(Klass[] classes) {
+        int size = 8;
+        while (size < classes.length * 2) {
+            size *= 2;
+        }
+        int[] index = new int[size * 2];
+        int mask = size - 1;
+        for (int cno = 0 ; cno < classes.length ; cno++) {
+            Klass klass = classes[cno];
+            if (klass != null) {
+                int hash = klass.hashInternalName();
+                int i = hash & mask;
+                while (index[i * 2 + 1] != 0) {
+                    i = (i + 1) & mask;
+                }
+                index[i * 2] = hash;
+                index[i * 2 + 1] = cno + 1;
+            }
+        }
+        return index;
+    }
+
     /**
      * Adjust the reference count of a specified list of suites by a specified
      * value.
@@ -125,6 +247,11 @@ public class SuiteManager {
         // Atomic update of word in persistent memory
         suites[number] = suite;
 
+        // Index the new suite's classes and forget the names that could
+        // not be found before
+        getIndex(number);
+        missing = null;
+
 /*if[DEBUG.LOADER]*/
         PersistentMemory.gc();
         Suite garbage = new Suite(name, dependentSuiteNames, classes);
@@ -147,6 +274,10 @@ public class SuiteManager {
                 boolean removed = suite.remove();
                 if (removed) {
                     suites[i] = null;
+                    if (indexes != null && i < indexes.length) {
+                        indexes[i] = null;
+                        indexedSuites[i] = null;
+                    }
                 }
                 return removed;
             }
@@ -54,6 +54,13 @@ public class Test {
         x36();
         x37();
         x38();
+        x39();
+        x40();
+        x41();
+        x42();
+        x43();
+        x44();
+        x45();
         Native.print("Xpassed\n");
         System.exit(12345);
     }
@@ -261,4 +268,179 @@ public class Test {
         return x;
     }
 
+    static void x39() {
+        long start = System.currentTimeMillis();
+        try {
+            Thread.sleep(50);
+        } catch (InterruptedException ex) {
+        }
+        result("x39", System.currentTimeMillis() - start >= 50);
+    }
+
+    static void x40() {
+        Object o = new Object();
+        long start = System.currentTimeMillis();
+        synchronized(o) {
+            try {
+                o.wait(50);
+            } catch (InterruptedException ex) {
+            }
+        }
+        result("x40", System.currentTimeMillis() - start >= 50);
+    }
+
+    static int x41Count;
+
+    static void x41() {
+        final int[] order = new int[3];
+        Thread[] threads = new Thread[3];
+        for (int i = 0 ; i < 3 ; i++) {
+            final int n = i;
+            threads[i] = new Thread() {
+                public void run() {
+                    try {
+                        Thread.sleep(100 - n * 40);
+                    } catch (InterruptedException ex) {
+                    }
+                    order[x41Count++] = n;
+                }
+            };
+        }
+        for (int i = 0 ; i < 3 ; i++) {
+            threads[i].start();
+        }
+        for (int i = 0 ; i < 3 ; i++) {
+            try {
+                threads[i].join();
+            } catch (InterruptedException ex) {
+            }
+        }
+        result("x41", order[0] == 2 && order[1] == 1 && order[2] == 0);
+    }
+
+    interface X42I {
+        int x42i();
+    }
+
+    interface X42J {
+        int x42j();
+    }
+
+    static abstract class X42A implements X42I, X42J {
+        public int x42i() {
+            return 1;
+        }
+    }
+
+    static class X42B extends X42A {
+        public int x42j() {
+            return 2;
+        }
+    }
+
+    static void x42() {
+        Object o = new X42B();
+        result("x42", ((X42I)o).x42i() == 1 && ((X42J)o).x42j() == 2);
+    }
+
+    static class X43_ClassWithANameLongerThan127CharactersSoThatTheLengthOfItsNameIsEncodedInTwoCharactersInTheSymbolsOfTheClassItself {
+    }
+
+    static void x43() {
+        Klass klass = new X43_ClassWithANameLongerThan127CharactersSoThatTheLengthOfItsNameIsEncodedInTwoCharactersInTheSymbolsOfTheClassItself().getKlass();
+        String name = klass.getNameInternal();
+        result("x43", name.length() >= 128 && SuiteManager.forName(name) == klass);
+    }
+
+    static boolean x44Read;
+    static boolean x44Written;
+
+    static void x44() {
+        final int size = 16 * 1024 * 1024;
+        try {
+            javax.microedition.io.StreamConnectionNotifier server = (javax.microedition.io.StreamConnectionNotifier)javax.microedition.io.Connector.open("serversocket://:12344");
+            javax.microedition.io.StreamConnection client = (javax.microedition.io.StreamConnection)javax.microedition.io.Connector.open("socket://localhost:12344");
+            javax.microedition.io.StreamConnection peer = server.acceptAndOpen();
+            final java.io.InputStream in = client.openInputStream();
+            final java.io.OutputStream out = client.openOutputStream();
+
+           /*
+            * Block a reader and a writer on the same channel. The peer does
+            * not read until both are waiting, so the writer fills the socket.
+            */
+            new Thread() {
+                public void run() {
+                    try {
+                        x44Read = in.read() == 44;
+                    } catch (java.io.IOException ex) {
+                    }
+                }
+            }.start();
+            new Thread() {
+                public void run() {
+                    try {
+                        byte[] buf = new byte[64 * 1024];
+                        for (int n = 0 ; n != size ; n += buf.length) {
+                            out.write(buf);
+                        }
+                        out.flush();
+                        x44Written = true;
+                    } catch (java.io.IOException ex) {
+                    }
+                }
+            }.start();
+            Thread.sleep(500);
+
+            java.io.InputStream pin = peer.openInputStream();
+            java.io.OutputStream pout = peer.openOutputStream();
+            byte[] buf = new byte[64 * 1024];
+            for (int n = 0 ; n != size ; ) {
+                int count = pin.read(buf);
+                if (count < 0) {
+                    break;
+                }
+                n += count;
+            }
+            pout.write(44);
+            pout.flush();
+            for (int i = 0 ; i != 100 && !(x44Read && x44Written) ; i++) {
+                Thread.sleep(50);
+            }
+            client.close();
+            peer.close();
+            server.close();
+        } catch (Exception ex) {
+        }
+        result("x44", x44Read && x44Written);
+    }
+
+    static class X45Node {
+        X45Node next;
+    }
+
+    static void x45Fill(X45Node list) {
+        while (true) {
+            X45Node node = new X45Node();
+            node.hashCode();
+            node.next = list;
+            list = node;
+        }
+    }
+
+    static void x45() {
+        X45Node first = new X45Node();
+        int hashCode = first.hashCode();
+
+       /*
+        * Fill the heap with hashed objects. Each one grows by a word when it
+        * is first moved, so the collector must leave room for those words.
+        */
+        try {
+            x45Fill(first);
+        } catch (OutOfMemoryError ex) {
+        }
+        Native.gc();
+        result("x45", first.hashCode() == hashCode);
+    }
+
 }
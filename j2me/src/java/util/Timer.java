@@ -10,16 +10,287 @@
 
 package java.util;
 
+import com.sun.squawk.util.TimerHeap;
 
+/**
+ * A facility for threads to schedule tasks for future execution in a
+ * background thread.  Tasks may be scheduled for one-time execution, or for
+ * repeated execution at regular intervals.
+ * <p>
+ * The tasks are kept in the same kind of binary heap that the scheduler uses
+ * for sleeping threads, so scheduling a task takes O(log n) time no matter
+ * how many tasks are pending.
+ *
+ * @see     TimerTask
+ * @see     Object#wait(long)
+ * @since   1.3
+ */
 public class Timer {
 
+    /**
+     * The pending tasks, shared with the timer thread.
+     */
+    private TaskQueue queue = new TaskQueue();
+
+    /**
+     * The thread that runs the tasks.
+     */
+    private TimerThread thread = new TimerThread(queue);
+
+    /**
+     * Creates a new timer.
+     */
+    public Timer() {
+        thread.start();
+    }
+
+    /**
+     * Schedules the specified task for execution after the specified delay.
+     *
+     * @param task  task to be scheduled.
+     * @param delay delay in milliseconds before task is to be executed.
+     * @throws IllegalArgumentException if <tt>delay</tt> is negative.
+     * @throws IllegalStateException if task was already scheduled or
+     *         cancelled, or timer was cancelled.
+     */
+    public void schedule(TimerTask task, long delay) {
+        if (delay < 0) {
+            throw new IllegalArgumentException("Negative delay.");
+        }
+        sched(task, System.currentTimeMillis() + delay, 0);
+    }
+
+    /**
+     * Schedules the specified task for execution at the specified time.  If
+     * the time is in the past, the task is scheduled for immediate execution.
+     *
+     * @param task task to be scheduled.
+     * @param time time at which task is to be executed.
+     * @throws IllegalArgumentException if <tt>time.getTime()</tt> is negative.
+     * @throws IllegalStateException if task was already scheduled or
+     *         cancelled, or timer was cancelled.
+     */
+    public void schedule(TimerTask task, Date time) {
+        sched(task, time.getTime(), 0);
+    }
 
+    /**
+     * Schedules the specified task for repeated <i>fixed-delay execution</i>,
+     * beginning after the specified delay.  Each execution is scheduled
+     * relative to the actual execution time of the previous one.
+     *
+     * @param task   task to be scheduled.
+     * @param delay  delay in milliseconds before task is to be executed.
+     * @param period time in milliseconds between successive task executions.
+     * @throws IllegalArgumentException if <tt>delay</tt> is negative or
+     *         <tt>period</tt> is not positive.
+     * @throws IllegalStateException if task was already scheduled or
+     *         cancelled, or timer was cancelled.
+     */
     public void schedule(TimerTask task, long delay, long period) {
-        throw new RuntimeException();
+        if (delay < 0) {
+            throw new IllegalArgumentException("Negative delay.");
+        }
+        if (period <= 0) {
+            throw new IllegalArgumentException("Non-positive period.");
+        }
+        sched(task, System.currentTimeMillis() + delay, -period);
     }
 
+    /**
+     * Schedules the specified task for repeated <i>fixed-delay execution</i>,
+     * beginning at the specified time.
+     *
+     * @param task      task to be scheduled.
+     * @param firstTime first time at which task is to be executed.
+     * @param period    time in milliseconds between successive task executions.
+     * @throws IllegalArgumentException if <tt>time.getTime()</tt> is negative
+     *         or <tt>period</tt> is not positive.
+     * @throws IllegalStateException if task was already scheduled or
+     *         cancelled, or timer was cancelled.
+     */
+    public void schedule(TimerTask task, Date firstTime, long period) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Non-positive period.");
+        }
+        sched(task, firstTime.getTime(), -period);
+    }
+
+    /**
+     * Schedules the specified task for repeated <i>fixed-rate execution</i>,
+     * beginning after the specified delay.  Each execution is scheduled
+     * relative to the scheduled execution time of the first one.
+     *
+     * @param task   task to be scheduled.
+     * @param delay  delay in milliseconds before task is to be executed.
+     * @param period time in milliseconds between successive task executions.
+     * @throws IllegalArgumentException if <tt>delay</tt> is negative or
+     *         <tt>period</tt> is not positive.
+     * @throws IllegalStateException if task was already scheduled or
+     *         cancelled, or timer was cancelled.
+     */
+    public void scheduleAtFixedRate(TimerTask task, long delay, long period) {
+        if (delay < 0) {
+            throw new IllegalArgumentException("Negative delay.");
+        }
+        if (period <= 0) {
+            throw new IllegalArgumentException("Non-positive period.");
+        }
+        sched(task, System.currentTimeMillis() + delay, period);
+    }
+
+    /**
+     * Schedules the specified task for repeated <i>fixed-rate execution</i>,
+     * beginning at the specified time.
+     *
+     * @param task      task to be scheduled.
+     * @param firstTime first time at which task is to be executed.
+     * @param period    time in milliseconds between successive task executions.
+     * @throws IllegalArgumentException if <tt>time.getTime()</tt> is negative
+     *         or <tt>period</tt> is not positive.
+     * @throws IllegalStateException if task was already scheduled or
+     *         cancelled, or timer was cancelled.
+     */
+    public void scheduleAtFixedRate(TimerTask task, Date firstTime, long period) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Non-positive period.");
+        }
+        sched(task, firstTime.getTime(), period);
+    }
+
+    /**
+     * Schedule a task at the given time with the given period. A positive
+     * period is fixed-rate, a negative one is fixed-delay and 0 means the
+     * task runs once.
+     */
+    private void sched(TimerTask task, long time, long period) {
+        if (time < 0) {
+            throw new IllegalArgumentException("Illegal execution time.");
+        }
+        synchronized(queue) {
+            if (!thread.newTasksMayBeScheduled) {
+                throw new IllegalStateException("Timer already cancelled.");
+            }
+            synchronized(task.lock) {
+                if (task.state != TimerTask.VIRGIN) {
+                    throw new IllegalStateException("Task already scheduled or cancelled");
+                }
+                task.nextExecutionTime = time;
+                task.period = period;
+                task.state = TimerTask.SCHEDULED;
+            }
+            queue.add(task, time);
+            if (queue.getFirst() == task) {
+                queue.notify();
+            }
+        }
+    }
+
+    /**
+     * Terminates this timer, discarding any currently scheduled tasks.
+     * Does not interfere with a currently executing task (if it exists).
+     * Once a timer has been terminated, its execution thread terminates
+     * gracefully, and no more tasks may be scheduled on it.
+     */
     public void cancel() {
-        throw new RuntimeException();
+        synchronized(queue) {
+            thread.newTasksMayBeScheduled = false;
+            queue.clear();
+            queue.notify();
+        }
     }
+}
 
+/**
+ * The thread that waits for the first task in a timer's queue to become due
+ * and then runs it.
+ */
+class TimerThread extends Thread {
+
+    /**
+     * Set to false by Timer.cancel() or when this thread stops. Guarded by
+     * the queue's lock.
+     */
+    boolean newTasksMayBeScheduled = true;
+
+    private TaskQueue queue;
+
+    TimerThread(TaskQueue queue) {
+        this.queue = queue;
+    }
+
+    public void run() {
+        try {
+            mainLoop();
+        } finally {
+            synchronized(queue) {
+                newTasksMayBeScheduled = false;
+                queue.clear();
+            }
+        }
+    }
+
+    private void mainLoop() {
+        while (true) {
+            try {
+                TimerTask task;
+                boolean taskFired;
+                synchronized(queue) {
+                    while (queue.isEmpty() && newTasksMayBeScheduled) {
+                        queue.wait();
+                    }
+                    if (queue.isEmpty()) {
+                        break; // cancelled
+                    }
+
+                    long currentTime, executionTime;
+                    task = (TimerTask)queue.getFirst();
+                    synchronized(task.lock) {
+                        if (task.state == TimerTask.CANCELLED) {
+                            queue.removeFirst();
+                            continue;
+                        }
+                        currentTime = System.currentTimeMillis();
+                        executionTime = task.nextExecutionTime;
+                        taskFired = (executionTime <= currentTime);
+                        if (taskFired) {
+                            if (task.period == 0) {
+                                queue.removeFirst();
+                                task.state = TimerTask.EXECUTED;
+                            } else {
+                                long next = (task.period < 0) ? currentTime - task.period
+                                                              : executionTime + task.period;
+                                task.nextExecutionTime = next;
+                                queue.setTime(1, next);
+                            }
+                        }
+                    }
+                    if (!taskFired) {
+                        queue.wait(executionTime - currentTime);
+                    }
+                }
+                if (taskFired) {
+                    task.run();
+                }
+            } catch(InterruptedException e) {
+            }
+        }
+    }
+}
+
+/**
+ * The tasks of a timer ordered by their next execution time.
+ */
+class TaskQueue extends TimerHeap {
+
+    TaskQueue() {
+        super(8);
+    }
+
+    /**
+     * Tasks are only ever removed or rescheduled from the front of the
+     * queue, so their positions do not need to be recorded.
+     */
+    protected void setIndex(Object item, int index) {
+    }
 }
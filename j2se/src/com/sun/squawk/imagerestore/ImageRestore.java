@@ -0,0 +1,219 @@
+package com.sun.squawk.imagerestore;
+
+import java.io.*;
+import com.sun.squawk.vm.SquawkConstants;
+
+/**
+ * Rebuild the complete image for a checkpoint written by the VM's
+ * -Xcheckpoint option. The first checkpoint in a chain is a complete image
+ * ("<base>0.image") and each later one is a delta file ("<base><i>.delta")
+ * holding the MMR and the regions of memory that changed since the previous
+ * checkpoint. The image for checkpoint <n> is rebuilt by applying deltas 1
+ * to <n> to the first image.
+ *
+ * With -verify, the image rebuilt after each delta is compared with the
+ * complete image that the VM wrote for the same checkpoint when it was run
+ * with -XcheckpointImages.
+ */
+
+public class ImageRestore {
+
+    /**
+     * Command line entrance point.
+     */
+    public static void main(String[] args) throws IOException {
+        String output = null;
+        boolean verify = false;
+
+        int i = 0;
+        for (; i < args.length ; i++) {
+            if (args[i].charAt(0) != '-') {
+                break;
+            }
+            String arg = args[i];
+            if (arg.equals("-o")) {
+                output = args[++i];
+            } else if (arg.equals("-verify")) {
+                verify = true;
+            } else {
+                usage("Bad switch: "+arg);
+                return;
+            }
+        }
+
+        if (i + 2 != args.length) {
+            usage("Missing checkpoint base or number");
+            return;
+        }
+        String base = args[i];
+        int checkpoint;
+        try {
+            checkpoint = Integer.parseInt(args[i + 1]);
+        } catch (NumberFormatException e) {
+            usage("Bad checkpoint number: "+args[i + 1]);
+            return;
+        }
+        if (output == null) {
+            output = base + checkpoint + ".image";
+        }
+
+        ImageRestore restore = new ImageRestore(base + "0.image");
+        for (int n = 1; n <= checkpoint; n++) {
+            restore.applyDelta(base + n + ".delta");
+            if (verify) {
+                String expected = base + n + ".image";
+                int offset = restore.compare(new ImageRestore(expected));
+                if (offset != -1) {
+                    System.out.println("Checkpoint " + n + " differs from " + expected + " at offset " + offset);
+                    System.exit(1);
+                }
+            }
+        }
+        if (verify) {
+            System.out.println("Verified checkpoints 1 to " + checkpoint);
+            return;
+        }
+        restore.write(output);
+        System.out.println("Wrote checkpoint " + checkpoint + " to " + output);
+    }
+
+    /**
+     * The byte order of the image, taken from its magic number.
+     */
+    private boolean isBigEndian;
+
+    /**
+     * The master memory record of the most recently applied checkpoint.
+     */
+    private int[] mmr = new int[SquawkConstants.MMR_SIZE];
+
+    /**
+     * The memory contents of the most recently applied checkpoint.
+     */
+    private byte[] image;
+
+    /**
+     * Load a complete image file.
+     * @param imageFileName
+     */
+    ImageRestore(String imageFileName) throws IOException {
+        File file = new File(imageFileName);
+        DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        int magic = dis.readInt();
+        if (magic == SquawkConstants.MMR_MAGICNUMBER) {
+            isBigEndian = true;
+        } else if (magic == SquawkConstants.MMR_MAGICNUMBER_REVERSED) {
+            isBigEndian = false;
+        } else {
+            throw new IOException(imageFileName + " is not an image file");
+        }
+        mmr[0] = SquawkConstants.MMR_MAGICNUMBER;
+        for (int i = 1; i != mmr.length; i++) {
+            mmr[i] = readWord(dis);
+        }
+        image = new byte[(int)file.length() - (mmr.length * 4)];
+        dis.readFully(image);
+        dis.close();
+    }
+
+    /**
+     * Apply the changed regions in a checkpoint delta file to the image.
+     * @param deltaFileName
+     */
+    void applyDelta(String deltaFileName) throws IOException {
+        DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(deltaFileName)));
+        if (readWord(dis) != SquawkConstants.CKPT_MAGICNUMBER) {
+            throw new IOException(deltaFileName + " is not a checkpoint delta file");
+        }
+        for (int i = 0; i != mmr.length; i++) {
+            mmr[i] = readWord(dis);
+        }
+        int imageSize = readWord(dis);
+        if (imageSize != image.length) {
+            throw new IOException(deltaFileName + " has image size " + imageSize + " (expected " + image.length + ")");
+        }
+        for (;;) {
+            int offset = readWord(dis);
+            if (offset == -1) {
+                break;
+            }
+            int length = readWord(dis);
+            if (offset < 0 || length < 0 || offset + length > imageSize) {
+                throw new IOException(deltaFileName + " has a bad region: offset=" + offset + " length=" + length);
+            }
+            dis.readFully(image, offset, length);
+        }
+        dis.close();
+    }
+
+    /**
+     * Compare this image with another one.
+     * @param other
+     * @return the offset in the image file of the first byte that differs or
+     * -1 if the images are identical
+     */
+    int compare(ImageRestore other) {
+        for (int i = 0; i != mmr.length; i++) {
+            if (mmr[i] != other.mmr[i]) {
+                return i * 4;
+            }
+        }
+        int length = Math.min(image.length, other.image.length);
+        for (int i = 0; i != length; i++) {
+            if (image[i] != other.image[i]) {
+                return (mmr.length * 4) + i;
+            }
+        }
+        return image.length == other.image.length ? -1 : (mmr.length * 4) + length;
+    }
+
+    /**
+     * Write the image in the same format as the VM.
+     * @param imageFileName
+     */
+    void write(String imageFileName) throws IOException {
+        DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(imageFileName)));
+        for (int i = 0; i != mmr.length; i++) {
+            writeWord(dos, mmr[i]);
+        }
+        dos.write(image);
+        dos.close();
+    }
+
+    private int readWord(DataInputStream dis) throws IOException {
+        int value = dis.readInt();
+        if (!isBigEndian) {
+            value = (value >>> 24)               |
+                    (value >>  8) & 0x0000FF00   |
+                    (value <<  8) & 0x00FF0000   |
+                    (value << 24);
+        }
+        return value;
+    }
+
+    private void writeWord(DataOutputStream dos, int value) throws IOException {
+        if (isBigEndian) {
+            dos.writeInt(value);
+        } else {
+            dos.writeByte((byte)(value      ));
+            dos.writeByte((byte)(value >> 8 ));
+            dos.writeByte((byte)(value >> 16));
+            dos.writeByte((byte)(value >> 24));
+        }
+    }
+
+    static void usage(String errMsg) {
+        PrintStream out = System.out;
+        if (errMsg != null) {
+            out.println(errMsg);
+        }
+        out.println("Usage: ImageRestore [-options] base n");
+        out.println("Rebuild the image for checkpoint <n> from '<base>0.image' and the");
+        out.println("deltas '<base>1.delta' to '<base><n>.delta'.");
+        out.println("where options include:");
+        out.println("    -o <file>           output file (default = '<base><n>.image')");
+        out.println("    -verify             compare the image after each delta with '<base><i>.image'");
+        out.println("                        instead of writing the output file");
+        out.println();
+    }
+}
@@ -0,0 +1,245 @@
+package com.sun.squawk.io.j2se;
+
+import java.io.*;
+import java.nio.channels.*;
+import java.util.*;
+
+/**
+ * Waits for the readiness of all the non-blocking channels used by the
+ * socket and server socket protocols. There is one selector and one thread
+ * for the whole process however many connections are open.
+ * <p>
+ * Interest is registered one operation at a time with a <code>Runnable</code>
+ * that is run (on the selector thread) the first time the channel becomes
+ * ready for that operation. The interest is then dropped, so a caller that
+ * finds the channel is still not ready must register again. If the channel
+ * is closed, everything waiting on it is run so that no one waits forever.
+ */
+public class ChannelSelector implements Runnable {
+
+    /**
+     * The selector shared by all connections.
+     */
+    private static ChannelSelector instance;
+
+    /**
+     * Get the selector, starting its thread the first time.
+     */
+    public static synchronized ChannelSelector getInstance() throws IOException {
+        if (instance == null) {
+            instance = new ChannelSelector();
+            Thread thread = new Thread(instance, "ChannelSelector");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        return instance;
+    }
+
+    /**
+     * Something waiting for a channel to become ready.
+     */
+    private static class Waiter {
+        int ops;
+        Runnable ready;
+
+        Waiter(int ops, Runnable ready) {
+            this.ops = ops;
+            this.ready = ready;
+        }
+    }
+
+    /**
+     * Wakes up a thread blocked in <code>await</code>.
+     */
+    private static class Latch implements Runnable {
+        boolean fired;
+
+        public synchronized void run() {
+            fired = true;
+            notifyAll();
+        }
+
+        synchronized void await() throws IOException {
+            try {
+                while (!fired) {
+                    wait();
+                }
+            } catch (InterruptedException ex) {
+                throw new InterruptedIOException();
+            }
+        }
+    }
+
+    /**
+     * The selector.
+     */
+    private Selector selector;
+
+    /**
+     * Maps each channel to the Vector of its Waiters.
+     */
+    private Hashtable waiters = new Hashtable();
+
+    /**
+     * The channels whose interest set must be updated by the selector thread
+     * before it next selects. Channels can only be registered with the
+     * selector while it is not selecting, so other threads leave the work
+     * to the selector thread.
+     */
+    private Vector changed = new Vector();
+
+    private ChannelSelector() throws IOException {
+        selector = Selector.open();
+    }
+
+    /**
+     * Run <code>ready</code> once the channel is ready for any of the given
+     * operations.
+     *
+     * @param channel a channel in non-blocking mode
+     * @param ops     the SelectionKey operations
+     * @param ready   what to run when the channel is ready
+     */
+    public void register(SelectableChannel channel, int ops, Runnable ready) {
+        synchronized (this) {
+            Vector list = (Vector)waiters.get(channel);
+            if (list == null) {
+                list = new Vector();
+                waiters.put(channel, list);
+            }
+            list.addElement(new Waiter(ops, ready));
+            changed.addElement(channel);
+        }
+        selector.wakeup();
+    }
+
+    /**
+     * Block the calling thread until the channel is ready for any of the
+     * given operations. This is only for threads that may block; the VM
+     * uses <code>register</code> instead so that only the Squawk thread
+     * doing the I/O waits.
+     *
+     * @param channel a channel in non-blocking mode
+     * @param ops     the SelectionKey operations
+     */
+    public void await(SelectableChannel channel, int ops) throws IOException {
+        Latch latch = new Latch();
+        register(channel, ops, latch);
+        latch.await();
+    }
+
+    /**
+     * Release everything waiting on a channel that has been closed.
+     *
+     * @param channel the closed channel
+     */
+    public void cancel(SelectableChannel channel) {
+        synchronized (this) {
+            changed.addElement(channel);
+        }
+        selector.wakeup();
+    }
+
+    /**
+     * The selector thread.
+     */
+    public void run() {
+        for (;;) {
+            try {
+                updateInterest();
+                selector.select();
+                Iterator keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = (SelectionKey)keys.next();
+                    keys.remove();
+                    fire(key.channel(), key.isValid() ? key.readyOps() : ~0);
+                }
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Bring the interest sets of the changed channels up to date.
+     */
+    private void updateInterest() {
+        for (;;) {
+            SelectableChannel channel;
+            synchronized (this) {
+                if (changed.isEmpty()) {
+                    return;
+                }
+                channel = (SelectableChannel)changed.lastElement();
+                changed.removeElementAt(changed.size() - 1);
+            }
+            if (!channel.isOpen()) {
+                fire(channel, ~0);
+                continue;
+            }
+            int ops = interestOps(channel);
+            SelectionKey key = channel.keyFor(selector);
+            try {
+                if (key == null) {
+                    if (ops != 0) {
+                        channel.register(selector, ops);
+                    }
+                } else {
+                    key.interestOps(ops);
+                }
+            } catch (ClosedChannelException ex) {
+                fire(channel, ~0);
+            } catch (CancelledKeyException ex) {
+                fire(channel, ~0);
+            }
+        }
+    }
+
+    /**
+     * Get the operations anything is waiting for on a channel.
+     */
+    private synchronized int interestOps(SelectableChannel channel) {
+        int ops = 0;
+        Vector list = (Vector)waiters.get(channel);
+        if (list != null) {
+            for (int i = 0; i != list.size(); i++) {
+                ops |= ((Waiter)list.elementAt(i)).ops;
+            }
+        }
+        return ops;
+    }
+
+    /**
+     * Run and remove the waiters for the operations a channel is ready for.
+     */
+    private void fire(SelectableChannel channel, int readyOps) {
+        Vector ready = new Vector();
+        synchronized (this) {
+            Vector list = (Vector)waiters.get(channel);
+            if (list != null) {
+                for (int i = 0; i < list.size(); ) {
+                    Waiter w = (Waiter)list.elementAt(i);
+                    if ((w.ops & readyOps) != 0) {
+                        ready.addElement(w.ready);
+                        list.removeElementAt(i);
+                    } else {
+                        i++;
+                    }
+                }
+                if (list.isEmpty()) {
+                    waiters.remove(channel);
+                }
+            }
+        }
+        SelectionKey key = channel.keyFor(selector);
+        if (key != null) {
+            try {
+                key.interestOps(interestOps(channel));
+            } catch (CancelledKeyException ex) {
+            }
+        }
+        for (int i = 0; i != ready.size(); i++) {
+            ((Runnable)ready.elementAt(i)).run();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.sun.squawk.io.j2se;
+
+import java.io.*;
+
+/**
+ * A connection whose I/O is done on non-blocking channels waited for by the
+ * ChannelSelector. Its streams still block like any others, but the VM asks
+ * <code>isReady</code> first so that it only does an operation once it can
+ * be done without blocking. Until then only the Squawk thread that wants to
+ * do it waits; the rest of the VM keeps running.
+ */
+public interface SelectableConnection {
+
+    /**
+     * Accepting a connection from a server socket.
+     */
+    public final static int ACCEPT = 1;
+
+    /**
+     * Reading <code>count</code> bytes from the input stream.
+     */
+    public final static int READ = 2;
+
+    /**
+     * Writing to the output stream.
+     */
+    public final static int WRITE = 3;
+
+    /**
+     * Flushing or closing the output stream.
+     */
+    public final static int FLUSH = 4;
+
+    /**
+     * Test whether an operation can be done without blocking. If not,
+     * <code>ready</code> will be run by the selector thread once it may be
+     * possible, and the caller should then ask again.
+     *
+     * @param op    ACCEPT, READ, WRITE or FLUSH
+     * @param count for READ, the number of bytes to be read
+     * @param ready what to run when the connection may be ready
+     * @return true if the operation will not block
+     */
+    public boolean isReady(int op, int count, Runnable ready) throws IOException;
+}
@@ -24,20 +24,30 @@ package com.sun.squawk.io.j2se.serversocket;
 
 import java.io.*;
 import java.net.*;
+import java.nio.channels.*;
 import javax.microedition.io.*;
 import com.sun.squawk.io.j2se.*;
 import com.sun.squawk.io.*;
 
 /**
  * StreamConnectionNotifier to the Palm Server Socket API.
+ * <p>
+ * The server socket is a non-blocking channel so that the VM can wait for
+ * a connection with the ChannelSelector instead of blocking in accept.
  *
  * @author  Nik Shaylor
  * @version 1.0 10/08/99
  */
-public class Protocol extends ConnectionBase implements StreamConnectionNotifier {
+public class Protocol extends ConnectionBase implements StreamConnectionNotifier, SelectableConnection {
 
-    /** Server Socket object */
-    ServerSocket ssocket;
+    /** Server socket channel */
+    ServerSocketChannel channel;
+
+    /** The selector that waits for the channel */
+    ChannelSelector selector;
+
+    /** A connection accepted by isReady but not yet opened */
+    SocketChannel accepted;
 
     /**
      * Open the connection
@@ -64,7 +74,15 @@ public class Protocol extends ConnectionBase implements StreamConnectionNotifier
             port = Integer.parseInt(name);
 
             /* Open the socket */
-            ssocket = new ServerSocket(port);
+            channel = ServerSocketChannel.open();
+            try {
+                channel.socket().bind(new InetSocketAddress(port));
+                channel.configureBlocking(false);
+            } catch(IOException x) {
+                channel.close();
+                throw x;
+            }
+            selector = ChannelSelector.getInstance();
         } catch(NumberFormatException x) {
             throw new IllegalArgumentException("Invalid port number in "+name);
         }
@@ -79,13 +97,47 @@ public class Protocol extends ConnectionBase implements StreamConnectionNotifier
      *                          input stream.
      */
     public StreamConnection acceptAndOpen() throws IOException {
-        Socket soc = ssocket.accept();
+        SocketChannel soc;
+        for (;;) {
+            synchronized (this) {
+                if (accept()) {
+                    soc = accepted;
+                    accepted = null;
+                    break;
+                }
+            }
+            selector.await(channel, SelectionKey.OP_ACCEPT);
+        }
+        soc.configureBlocking(false);
         com.sun.squawk.io.j2se.socket.Protocol con =
             new com.sun.squawk.io.j2se.socket.Protocol();
         con.open(soc);
         return con;
     }
 
+    /**
+     * Accept a connection if there is one waiting.
+     *
+     * @return true if there is an accepted connection to be opened
+     */
+    private synchronized boolean accept() throws IOException {
+        if (accepted == null) {
+            accepted = channel.accept();
+        }
+        return accepted != null;
+    }
+
+    /**
+     * Test whether acceptAndOpen can be done without blocking.
+     */
+    public boolean isReady(int op, int count, Runnable ready) throws IOException {
+        if (op != ACCEPT || accept()) {
+            return true;
+        }
+        selector.register(channel, SelectionKey.OP_ACCEPT, ready);
+        return false;
+    }
+
     /**
      * Returns an input stream for this socket.
      *
@@ -115,7 +167,17 @@ public class Protocol extends ConnectionBase implements StreamConnectionNotifier
      *                          connection.
      */
     public void close() throws IOException {
-        ssocket.close();
+        try {
+            channel.close();
+        } finally {
+            selector.cancel(channel);
+            synchronized (this) {
+                if (accepted != null) {
+                    accepted.close();
+                    accepted = null;
+                }
+            }
+        }
     }
 
 }
@@ -24,25 +24,54 @@ package com.sun.squawk.io.j2se.socket;
 
 import java.io.*;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
 import javax.microedition.io.*;
 import com.sun.squawk.io.j2se.*;
 import com.sun.squawk.io.*;
 
 /**
  * GenericStreamConnection to the J2SE socket API.
+ * <p>
+ * The socket is a non-blocking channel. Bytes are read into and written
+ * from buffers here, and the ChannelSelector waits for the channel when a
+ * buffer cannot be filled or emptied. Output that the socket will not take
+ * straight away is sent by the selector thread as the socket drains, so
+ * only the output is shared with that thread and locked.
  *
  * @author  Nik Shaylor
  * @version 1.0 10/08/99
  */
 
-public class Protocol extends ConnectionBase implements StreamConnection {
+public class Protocol extends ConnectionBase implements StreamConnection, SelectableConnection {
 
-    /** Socket object */
-    Socket socket;
+    /** Size of the input buffer */
+    private final static int INPUT_SIZE = 8192;
+
+    /** Amount of unsent output above which writers wait */
+    private final static int OUTPUT_LIMIT = 8192;
+
+    /** Socket channel */
+    SocketChannel channel;
+
+    /** The selector that waits for the channel */
+    ChannelSelector selector;
 
     /** Open count */
     int opens = 0;
 
+    /** Bytes received but not yet read, between position and limit */
+    ByteBuffer input;
+
+    /** True when the end of the input has been received */
+    boolean eof;
+
+    /** Bytes written but not yet sent, between 0 and position */
+    ByteBuffer output;
+
+    /** True while the selector thread is waiting to send output */
+    boolean draining;
+
     /**
      * Open the connection
      */
@@ -59,6 +88,9 @@ public class Protocol extends ConnectionBase implements StreamConnection {
      * <p>
      * The name string for this protocol should be:
      * "<name or IP number>:<port number>
+     * <p>
+     * The connection is only started here. Reads and writes wait for it
+     * to complete.
      */
     public Connection open(String protocol, String name, int mode, boolean timeouts) throws IOException {
 
@@ -99,9 +131,16 @@ public class Protocol extends ConnectionBase implements StreamConnection {
             /* Get the port number */
             port = Integer.parseInt(name.substring(colon+1));
 
-            /* Open the socket */
-            socket = new Socket(nameOrIP, port);
-            opens++;
+            /* Start connecting the socket */
+            SocketChannel sc = SocketChannel.open();
+            try {
+                sc.configureBlocking(false);
+                sc.connect(new InetSocketAddress(nameOrIP, port));
+            } catch(IOException x) {
+                sc.close();
+                throw x;
+            }
+            open(sc);
             return this;
         } catch(NumberFormatException x) {
             throw new IllegalArgumentException("Invalid port number in "+name);
@@ -110,12 +149,19 @@ public class Protocol extends ConnectionBase implements StreamConnection {
 
     /**
      * Open the connection
-     * @param socket an already formed socket
+     * @param channel a non-blocking socket channel that is connected or
+     *        connecting
      * <p>
-     * This function is only used by com.sun.kjava.system.palm.protocol.socketserver;
+     * This function is used by the serversocket protocol for accepted
+     * connections.
      */
-    public void open(Socket socket) throws IOException {
-        this.socket = socket;
+    public void open(SocketChannel channel) throws IOException {
+        this.channel = channel;
+        selector = ChannelSelector.getInstance();
+        input = ByteBuffer.allocate(INPUT_SIZE);
+        input.limit(0);
+        output = ByteBuffer.allocate(OUTPUT_LIMIT);
+        opens++;
     }
 
     /**
@@ -126,7 +172,7 @@ public class Protocol extends ConnectionBase implements StreamConnection {
      *                          input stream.
      */
     public InputStream openInputStream() throws IOException {
-        InputStream is = new UniversalFilterInputStream(this, socket.getInputStream());
+        InputStream is = new SocketInputStream();
         opens++;
         return is;
     }
@@ -139,7 +185,7 @@ public class Protocol extends ConnectionBase implements StreamConnection {
      *                          output stream.
      */
     public OutputStream openOutputStream() throws IOException {
-        OutputStream os = new UniversalFilterOutputStream(this, socket.getOutputStream());
+        OutputStream os = new SocketOutputStream();
         opens++;
         return os;
     }
@@ -152,8 +198,238 @@ public class Protocol extends ConnectionBase implements StreamConnection {
      */
     public void close() throws IOException {
         if(--opens == 0) {
-            socket.close();
+            try {
+                flush();
+            } finally {
+                channel.close();
+                selector.cancel(channel);
+            }
+        }
+    }
+
+    /**
+     * Test whether an operation can be done without blocking.
+     */
+    public boolean isReady(int op, int count, Runnable ready) throws IOException {
+        boolean ok;
+        int ops;
+        if (!isConnected()) {
+            ok = false;
+            ops = SelectionKey.OP_CONNECT;
+        } else if (op == READ) {
+            ok = fill(count);
+            ops = SelectionKey.OP_READ;
+        } else if (op == WRITE) {
+            ok = send() < OUTPUT_LIMIT;
+            ops = SelectionKey.OP_WRITE;
+        } else if (op == FLUSH) {
+            ok = send() == 0;
+            ops = SelectionKey.OP_WRITE;
+        } else {
+            return true;
+        }
+        if (!ok) {
+            selector.register(channel, ops, ready);
         }
+        return ok;
+    }
+
+    /**
+     * Finish connecting if the connection has been established.
+     *
+     * @return true if the socket is connected
+     */
+    private boolean isConnected() throws IOException {
+        return !channel.isConnectionPending() || channel.finishConnect();
+    }
+
+    /**
+     * Block until the socket is ready for an operation.
+     */
+    private void await(int ops) throws IOException {
+        selector.await(channel, isConnected() ? ops : SelectionKey.OP_CONNECT);
     }
 
+    /**
+     * Read whatever the socket has without blocking until there are at least
+     * <code>count</code> bytes in the input buffer.
+     *
+     * @return true if there are <code>count</code> bytes or the end of the
+     *         input has been reached
+     */
+    private boolean fill(int count) throws IOException {
+        while (input.remaining() < count && !eof) {
+            input.compact();
+            int n = channel.read(input);
+            input.flip();
+            if (n < 0) {
+                eof = true;
+            } else if (n == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Block until there is some input or the end of the input is reached.
+     *
+     * @return the number of bytes in the input buffer
+     */
+    private int fillOrBlock() throws IOException {
+        while (!(isConnected() && fill(1))) {
+            await(SelectionKey.OP_READ);
+        }
+        return input.remaining();
+    }
+
+    /**
+     * Send as much output as the socket will take without blocking.
+     *
+     * @return the number of bytes still to be sent
+     */
+    private synchronized int send() throws IOException {
+        if (output.position() > 0 && isConnected()) {
+            output.flip();
+            channel.write(output);
+            output.compact();
+        }
+        if (output.position() > 0 && !draining) {
+            draining = true;
+            selector.register(channel, SelectionKey.OP_WRITE | SelectionKey.OP_CONNECT, new Runnable() {
+                public void run() {
+                    drain();
+                }
+            });
+        }
+        return output.position();
+    }
+
+    /**
+     * Send more output when the selector finds that the socket can take it.
+     */
+    private synchronized void drain() {
+        draining = false;
+        if (channel.isOpen()) {
+            try {
+                send();
+            } catch (IOException ex) {
+                output.clear(); // the error will be seen by the next write
+            }
+        }
+    }
+
+    /**
+     * Add bytes to the output, blocking while too much is waiting to be sent.
+     */
+    private void write(byte[] b, int off, int len) throws IOException {
+        while (send() >= OUTPUT_LIMIT) {
+            await(SelectionKey.OP_WRITE);
+        }
+        append(b, off, len);
+    }
+
+    /**
+     * Add bytes to the output and send what the socket will take.
+     */
+    private synchronized void append(byte[] b, int off, int len) throws IOException {
+        if (output.remaining() < len) {
+            ByteBuffer buf = ByteBuffer.allocate(Math.max(output.capacity() * 2, output.position() + len));
+            output.flip();
+            buf.put(output);
+            output = buf;
+        }
+        output.put(b, off, len);
+        send();
+    }
+
+    /**
+     * Block until all the output has been sent.
+     */
+    private void flush() throws IOException {
+        while (send() != 0) {
+            await(SelectionKey.OP_WRITE);
+        }
+    }
+
+    /**
+     * The input stream of the socket.
+     */
+    class SocketInputStream extends InputStream {
+
+        boolean closed;
+
+        public int read() throws IOException {
+            if (fillOrBlock() == 0) {
+                return -1;
+            }
+            return input.get() & 0xFF;
+        }
+
+        public int read(byte b[], int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            int n = Math.min(fillOrBlock(), len);
+            if (n == 0) {
+                return -1;
+            }
+            input.get(b, off, n);
+            return n;
+        }
+
+        public long skip(long n) throws IOException {
+            if (n <= 0) {
+                return 0;
+            }
+            int skipped = (int)Math.min(fillOrBlock(), n);
+            input.position(input.position() + skipped);
+            return skipped;
+        }
+
+        public int available() throws IOException {
+            if (isConnected()) {
+                fill(1);
+            }
+            return input.remaining();
+        }
+
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                Protocol.this.close();
+            }
+        }
+    }
+
+    /**
+     * The output stream of the socket.
+     */
+    class SocketOutputStream extends OutputStream {
+
+        boolean closed;
+
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte)b }, 0, 1);
+        }
+
+        public void write(byte b[], int off, int len) throws IOException {
+            Protocol.this.write(b, off, len);
+        }
+
+        public void flush() throws IOException {
+            Protocol.this.flush();
+        }
+
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                try {
+                    Protocol.this.flush();
+                } finally {
+                    Protocol.this.close();
+                }
+            }
+        }
+    }
 }
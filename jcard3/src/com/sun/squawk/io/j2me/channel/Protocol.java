@@ -36,6 +36,10 @@ public class Protocol extends ConnectionBase implements StreamConnection, Stream
     /** Channel number */
     int chan = 0;
 
+    /** The most recently opened streams */
+    ChannelInputStream in;
+    ChannelOutputStream out;
+
     /**
      * execChan
      */
@@ -72,14 +76,20 @@ public class Protocol extends ConnectionBase implements StreamConnection, Stream
      * openInputStream
      */
     public InputStream openInputStream() throws IOException {
-        return new ChannelInputStream(chan);
+        in = new ChannelInputStream(chan);
+        in.out = out;
+        return in;
     }
 
     /**
      * openOutputStream
      */
     public OutputStream openOutputStream() throws IOException {
-        return new ChannelOutputStream(chan);
+        out = new ChannelOutputStream(chan);
+        if (in != null) {
+            in.out = out;
+        }
+        return out;
     }
 
     /**
@@ -91,9 +101,11 @@ public class Protocol extends ConnectionBase implements StreamConnection, Stream
     }
 
     /**
-     * Close the connection.
+     * Close the connection, first flushing the output stream that has been
+     * written to since it was last flushed, if any.
      */
     synchronized public void close() throws IOException {
+        ChannelOutputStream.flushChannel(chan);
         Native.execIO(chan, ChannelOpcodes.CLOSE, 0, 0, 0, 0, 0, 0, null, null, null);
     }
 
@@ -101,6 +113,10 @@ public class Protocol extends ConnectionBase implements StreamConnection, Stream
      * finalize
      */
     protected void finalize() {
+        try {
+            ChannelOutputStream.flushChannel(chan);
+        } catch (IOException ex) {
+        }
         Native.freeChannel(chan);
         chan = -1;
     }
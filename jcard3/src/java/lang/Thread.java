@@ -460,6 +460,9 @@ public class Thread implements Runnable {
     private static void reschedule() {
         Thread thread;
         boolean oldIsDead = false;
+/*if[FAST.MONITORS]*/
+        inflateFastLocks();
+/*end[FAST.MONITORS]*/
         Thread oldThread  = scheduler.currentThread;
         if (oldThread != null) {
             oldIsDead = oldThread.state == DEAD;
@@ -550,22 +553,34 @@ public class Thread implements Runnable {
 
 
     /**
-     * Block a thread
+     * Block a thread. Several threads can wait for the same event (e.g. a
+     * reader and a writer on one channel), so they are chained through
+     * nextThread and all restarted by the event.
      */
     static void waitForEvent(int event) {
         startFinalizers();
-        scheduler.events().put(event, scheduler.currentThread);
+        Thread thread = scheduler.currentThread;
+        Native.assume(thread.nextThread == null);
+        thread.nextThread = (Thread)scheduler.events().get(event);
+        scheduler.events().put(event, thread);
         reschedule();
     }
 
 
     /**
-     * Restart a blocked thread
+     * Restart the threads blocked on an event. A woken thread retries its
+     * operation and blocks again if it still cannot proceed. An event can
+     * arrive after an earlier one has already restarted its waiters, in
+     * which case there is nothing to do.
      */
     private static void signalEvent(int event) {
         Thread thread = (Thread)scheduler.events().remove(event);
-        Native.assume(thread != null);
-        scheduler.runnableThreads.add(thread);
+        while (thread != null) {
+            Thread next = thread.nextThread;
+            thread.nextThread = null;
+            scheduler.runnableThreads.add(thread);
+            thread = next;
+        }
     }
 
 
@@ -644,6 +659,9 @@ public class Thread implements Runnable {
      */
     static void monitorEnter(Object object) {
         Native.assume(scheduler.currentThread != null);
+/*if[FAST.MONITORS]*/
+        inflateFastLocks();
+/*end[FAST.MONITORS]*/
         Monitor monitor = getMonitor(object);
         if (monitor.owner == null) {
 
@@ -685,6 +703,9 @@ public class Thread implements Runnable {
      */
     static void monitorExit(Object object) {
         Native.assume(scheduler.currentThread != null);
+/*if[FAST.MONITORS]*/
+        inflateFastLocks();
+/*end[FAST.MONITORS]*/
         Monitor monitor = getMonitor(object);
 
        /*
@@ -720,6 +741,9 @@ public class Thread implements Runnable {
      * monitiorWait
      */
     static void monitorWait(Object object, long delta) throws InterruptedException {
+/*if[FAST.MONITORS]*/
+        inflateFastLocks();
+/*end[FAST.MONITORS]*/
         Monitor monitor = getMonitor(object);
 
        /*
@@ -773,6 +797,9 @@ public class Thread implements Runnable {
      * monitorNotify
      */
     static void monitorNotify(Object object, boolean notifyAll) {
+/*if[FAST.MONITORS]*/
+        inflateFastLocks();
+/*end[FAST.MONITORS]*/
         Monitor monitor = getMonitor(object);
         int count = 0;
 
@@ -831,6 +858,51 @@ public class Thread implements Runnable {
         return monitor;
     }
 
+/*if[FAST.MONITORS]*/
+
+    /**
+     * The objects that the interpreter has locked for the current thread
+     * without a Monitor. Each entry is one level of locking and the
+     * entries in use are followed by null.
+     */
+    private static Object[] fastLockStack;
+
+    /**
+     * setFastLockStack
+     */
+    static void setFastLockStack(Object[] stack) {
+        fastLockStack = stack;
+        Native.setFastLockStack(stack);
+    }
+
+    /**
+     * Give the current thread a real Monitor for each object it has locked
+     * in the interpreter and empty the fast lock stack. This is done before
+     * a thread switch and before any monitor operation the interpreter
+     * could not do itself.
+     */
+    private static void inflateFastLocks() {
+        Object[] stack = fastLockStack;
+        if (stack == null || stack[0] == null) {
+            return;
+        }
+        Native.assume(scheduler.currentThread != null);
+        for (int i = 0 ; i != stack.length && stack[i] != null ; i++) {
+            Monitor monitor = getMonitor(stack[i]);
+            if (monitor.owner == null) {
+                monitor.owner = scheduler.currentThread;
+                monitor.depth = 1;
+            } else {
+                Native.assume(monitor.owner == scheduler.currentThread);
+                monitor.depth++;
+            }
+            stack[i] = null;
+        }
+        Native.setFastLockStack(stack);
+    }
+
+/*end[FAST.MONITORS]*/
+
     /**
      * freeMonitor
      */
@@ -912,9 +984,9 @@ public class Thread implements Runnable {
     int       priority;                 /* Execution priority                                                */
     private   int state;                /* Aliveness                                                         */
     boolean   inQueue;                  /* Flag to show if thread is in a queue                              */
-    Thread    nextThread;               /* For enqueueing in the ready, monitor wait, or condvar wait queues */
+    Thread    nextThread;               /* For the ready, monitor wait, condvar wait and event wait queues   */
     boolean   inTimerQueue;             /* Flag to show if thread is in a queue                              */
-    Thread    nextTimerThread;          /* For enqueueing in the timer queue                                 */
+    int       timerIndex;               /* Position in the timer queue (0 if not in it)                      */
     long      time;                     /* Time to emerge from the timer queue                               */
     short     monitorDepth;             /* Saved monitor nesting depth                                       */
     Monitor   monitor;                  /* Monitor when thread is in the condvar queue                       */
@@ -1170,15 +1242,24 @@ class ThreadQueue {
  * Note - All the code in the following class is run with preemption disabled
  */
 
-class TimerQueue {
+class TimerQueue extends TimerHeap {
 
-    Thread first;
+    TimerQueue() {
+        super(8);
+    }
+
+    /**
+     * setIndex
+     */
+    protected void setIndex(Object item, int index) {
+        ((Thread)item).timerIndex = index;
+    }
 
     /**
      * add
      */
     void add(Thread thread, long delta) {
-        Native.assume(thread.nextTimerThread == null);
+        Native.assume(thread.timerIndex == 0);
         thread.setInTimerQueue();
         thread.time = System.currentTimeMillis() + delta;
         if (thread.time < 0) {
@@ -1190,34 +1271,18 @@ class TimerQueue {
             */
             thread.time = Long.MAX_VALUE;
         }
-        if (first == null) {
-            first = thread;
-        } else {
-            if (first.time > thread.time) {
-                thread.nextTimerThread = first;
-                first = thread;
-            } else {
-                Thread last = first;
-                while (last.nextTimerThread != null && last.nextTimerThread.time < thread.time) {
-                    last = last.nextTimerThread;
-                }
-                thread.nextTimerThread = last.nextTimerThread;
-                last.nextTimerThread = thread;
-            }
-        }
+        super.add(thread, thread.time);
     }
 
     /**
      * next
      */
     Thread next() {
-        Thread thread = first;
-        if (thread == null || thread.time > System.currentTimeMillis()) {
+        if (isEmpty() || getFirstTime() > System.currentTimeMillis()) {
             return null;
         }
-        first = first.nextTimerThread;
+        Thread thread = (Thread)removeFirst();
         thread.setNotInTimerQueue();
-        thread.nextTimerThread = null;
         Native.assume(thread.time != 0);
         thread.time = 0;
         return thread;
@@ -1227,38 +1292,26 @@ class TimerQueue {
      * remove
      */
     void remove(Thread thread) {
-        if (first == null || thread.time == 0) {
-            Native.assume(!thread.inQueue);
+        if (thread.timerIndex == 0) {
+            Native.assume(!thread.inTimerQueue);
             return;
         }
         thread.setNotInTimerQueue();
-        if (thread == first) {
-            first = thread.nextTimerThread;
-            thread.nextTimerThread = null;
-            return;
-        }
-        Thread p = first;
-        while (p.nextTimerThread != null) {
-            if (p.nextTimerThread == thread) {
-                p.nextTimerThread = thread.nextTimerThread;
-                thread.nextTimerThread = null;
-                return;
-            }
-            p = p.nextTimerThread;
-        }
-        Native.fatalVMError();
+        remove(thread.timerIndex);
+        thread.time = 0;
     }
 
     /**
      * nextDelta
      */
     long nextDelta() {
-        if (first != null) {
+        if (!isEmpty()) {
             long now = System.currentTimeMillis();
-            if (now >= first.time) {
+            long time = getFirstTime();
+            if (now >= time) {
                 return 0;
             }
-            long res = first.time - now;
+            long res = time - now;
             if (VMExtension.tckMode && res > (1000*60)) {
                 Native.print("Long wait in TCK ");
                 Native.print(res);
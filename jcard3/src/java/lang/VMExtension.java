@@ -11,6 +11,7 @@ package java.lang;
 import java.io.*;
 import java.util.Hashtable;
 import com.sun.squawk.vm.SquawkConstants;
+import com.sun.squawk.io.j2me.channel.ChannelOutputStream;
 
 /**
  * This class is a repository of methods that are invoked directly by the VM to
@@ -332,6 +333,7 @@ public class VMExtension {
         if (negativeTckTest && status != 95) {
             status = 95;
         }
+        ChannelOutputStream.flushAll();
         Native.exit(status);
     }
 
@@ -380,7 +382,7 @@ class VMExtensionStarter extends Thread {
 
 /*if[FAST.MONITORS]*/
         // Setup the interpreter's fast lock stack
-        Native.setFastLockStack(new Object[16]);
+        Thread.setFastLockStack(new Object[16]);
 /*end[FAST.MONITORS]*/
 
         // Get the command line arguments
@@ -42,6 +42,9 @@ class KlassBuilder implements SymbolEditor {
     private byte[][] staticMethods;
     private byte[][] virtualMethods;
 
+    private char[]   interfaceTypes;
+    private byte[][] interfaceSlotTables;
+
     private byte slotForInit   = SquawkConstants.SLOT_UNDEFINED;
     private byte slotForClinit = SquawkConstants.SLOT_UNDEFINED;
     private byte slotForMain   = SquawkConstants.SLOT_UNDEFINED;
@@ -148,6 +151,202 @@ class KlassBuilder implements SymbolEditor {
         return slot - firstVirtualMethod;
     }
 
+    /**
+     * Find the implementation of a virtual method in a given class or the
+     * closest of its superclasses that defines it.
+     *
+     * @param klass the class in which to start the search
+     * @param slot the vtable index of the method
+     * @return the method or null if it was not found
+     */
+    private static byte[] lookupVirtualMethod(Klass klass, int slot) {
+        while (klass != null) {
+            int first = klass.firstVirtualMethod & 0xFF;
+            if (slot >= first && slot - first < klass.virtualMethods.length) {
+                byte[] method = klass.virtualMethods[slot - first];
+                if (method != null) {
+                    return method;
+                }
+            }
+            klass = klass.superClass;
+        }
+        return null;
+    }
+
+    /**
+     * Copy the virtual methods inherited by the class under construction into
+     * its vtable so that the vtable has an entry for every virtual method in
+     * the class's hierarchy. The VM can then find any virtual method with a
+     * single indexed load instead of searching up the superclass chain. The
+     * vtable is left as is if more than the configured limit of entries
+     * would have to be copied.
+     *
+     * @param superClass the superclass of the class under construction
+     */
+    private void flattenVirtualMethods(Klass superClass) {
+        int count = relocator.internal_getVirtualMethodCount();
+        int first = (virtualMethods == null) ? count : firstVirtualMethod;
+        int extra = first;
+        if (virtualMethods != null) {
+            for (int i = 0 ; i != virtualMethods.length ; i++) {
+                if (virtualMethods[i] == null) {
+                    extra++;
+                }
+            }
+        }
+        if (extra == 0 || extra > SuiteLoader.getVtableFlattenLimit()) {
+            return;
+        }
+
+        byte[][] flattened = new byte[count][];
+        for (int slot = 0 ; slot != count ; slot++) {
+            byte[] method = (slot >= first) ? virtualMethods[slot - first] : null;
+            if (method == null) {
+                method = lookupVirtualMethod(superClass, slot);
+            }
+            flattened[slot] = method;
+        }
+        virtualMethods     = flattened;
+        firstVirtualMethod = 0;
+
+        Romizer.logVtableFlattening(extra);
+/*if[DEBUG.LOADER]*/
+        if (loader.traceLoading()) {
+            loader.traceOut.println("Flattened vtable: "+sc.getName()+" (+"+extra+" entries, "+(extra*4)+" bytes)");
+        }
+/*end[DEBUG.LOADER]*/
+    }
+
+    /**
+     * Build the interface table for a non-abstract class. The table is an
+     * open addressed hash table keyed on the system type of each interface,
+     * with a type of 0 marking an empty entry. It includes the interfaces
+     * implemented by the first non-abstract superclass (whose table already
+     * includes those of its own superclasses) so that the VM can find the
+     * slot table for any interface with a probe of this one table instead of
+     * searching each class in the hierarchy in turn. The table length is a
+     * power of 2 and at least twice the number of interfaces.
+     *
+     * Abstract classes have no slot tables. The interfaces of the abstract
+     * superclasses between this class and its first non-abstract superclass
+     * must instead be among those of the class itself, which is checked here.
+     *
+     * @param superClass the superclass of the class under construction
+     * @param types the system types of the interfaces implemented by the
+     *              class under construction
+     * @param slotTables the interface slot tables of the class under construction
+     */
+    private void buildInterfaceTable(Klass superClass, char[] types, byte[][] slotTables) {
+        Klass abstractSuperClass = superClass;
+        while (superClass != null && (superClass.access & SquawkConstants.ACC_ABSTRACT) != 0) {
+            superClass = superClass.superClass;
+        }
+
+        int count = types.length;
+        if (superClass != null) {
+            char[] stypes = superClass.interfaceTypes;
+            for (int i = 0 ; i != stypes.length ; i++) {
+                if (stypes[i] != 0) {
+                    count++;
+                }
+            }
+        }
+        if (count == 0) {
+            checkAbstractSuperClassInterfaces(abstractSuperClass, superClass, types);
+            return;
+        }
+
+        int size = 2;
+        while (size < count * 2) {
+            size <<= 1;
+        }
+        char[]   htypes  = new char[size];
+        byte[][] htables = new byte[size][];
+        for (int i = 0 ; i != types.length ; i++) {
+            addInterfaceTableEntry(htypes, htables, types[i], slotTables[i]);
+        }
+        if (superClass != null) {
+            char[] stypes = superClass.interfaceTypes;
+            for (int i = 0 ; i != stypes.length ; i++) {
+                if (stypes[i] != 0) {
+                    addInterfaceTableEntry(htypes, htables, stypes[i], superClass.interfaceSlotTables[i]);
+                }
+            }
+        }
+        checkAbstractSuperClassInterfaces(abstractSuperClass, superClass, htypes);
+        interfaceTypes      = htypes;
+        interfaceSlotTables = htables;
+
+/*if[DEBUG.LOADER]*/
+        if (loader.traceLoading()) {
+            loader.traceOut.println("Built interface table: "+sc.getName()+" ("+count+" interfaces, "+size+" entries)");
+        }
+/*end[DEBUG.LOADER]*/
+    }
+
+    /**
+     * Check that the interfaces of a range of abstract superclasses are all
+     * in an interface table.
+     *
+     * @param first the first abstract superclass
+     * @param end the first non-abstract superclass (or null)
+     * @param types the interface types of the table
+     */
+    private void checkAbstractSuperClassInterfaces(Klass first, Klass end, char[] types) {
+        for (Klass k = first ; k != end ; k = k.superClass) {
+            char[] atypes = k.interfaceTypes;
+            for (int i = 0 ; i != atypes.length ; i++) {
+                if (findInterfaceTableEntry(types, atypes[i]) < 0) {
+                    throw new LinkageError("ClassFormatError: interface of abstract superclass "+k.getName()+" missing from interface table: "+sc.getName());
+                }
+            }
+        }
+    }
+
+    /**
+     * Find the entry for an interface in an interface table.
+     *
+     * @param types the interface types of the table
+     * @param type the interface type to find
+     * @return the index of the entry for <code>type</code> or -1 if there is none
+     */
+    private static int findInterfaceTableEntry(char[] types, char type) {
+        if (types.length == 0) {
+            return -1;
+        }
+        int mask = types.length - 1;
+        int i = type & mask;
+        while (types[i] != 0) {
+            if (types[i] == type) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Add an entry to an interface table unless there is already an entry
+     * for the same interface.
+     *
+     * @param types the interface types of the table
+     * @param tables the slot tables of the table
+     * @param type the interface type to add
+     * @param slots the slot table for <code>type</code>
+     */
+    private static void addInterfaceTableEntry(char[] types, byte[][] tables, char type, byte[] slots) {
+        int mask = types.length - 1;
+        int i = type & mask;
+        while (types[i] != 0) {
+            if (types[i] == type) {
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        types[i]  = type;
+        tables[i] = slots;
+    }
+
     /**
      * Add a method body to the class currently under construction. The relevant
      * table of methods is also created here if it has not already been created.
@@ -387,6 +586,16 @@ class KlassBuilder implements SymbolEditor {
 
 
 
+        if (superClass != null && SuiteLoader.getVtableFlattenLimit() > 0) {
+            flattenVirtualMethods(superClass);
+        }
+
+        interfaceTypes      = loader.getSystemTypesFor(sc.interfaceTypes);
+        interfaceSlotTables = sc.interfaceSlotTables;
+        if (superClass != null && !sc.isInterface() && !sc.isAbstract()) {
+            buildInterfaceTable(superClass, interfaceTypes, interfaceSlotTables);
+        }
+
         char[] classRefs = fixupClassReferences(sc.classReferences, suiteNumber == 0);
 
         // Create the Klass
@@ -396,8 +605,8 @@ class KlassBuilder implements SymbolEditor {
                             access,
                             getSystemSuperClass(suiteNumber, suiteClasses),
                             loader.getSystemTypeFor(relocator.suite_getElementType()),
-                            loader.getSystemTypesFor(sc.interfaceTypes),
-                            sc.interfaceSlotTables,
+                            interfaceTypes,
+                            interfaceSlotTables,
                             classRefs,
                             sc.objectReferences,
                             instanceFieldsLength,
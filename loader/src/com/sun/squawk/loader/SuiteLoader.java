@@ -103,6 +103,38 @@ public class SuiteLoader {
 /*end[FINALIZATION]*/
 
 
+    /**
+     * The maximum number of inherited vtable entries that will be copied into
+     * the vtable of a class so that it contains every virtual method in the
+     * class's hierarchy. A value of 0 disables vtable flattening.
+     */
+    private static int vtableFlattenLimit = 0;
+
+    /**
+     * Set the maximum number of inherited vtable entries that will be copied
+     * into a class's vtable. Larger values trade memory for faster virtual
+     * method dispatch.
+     *
+     * @param limit the maximum number of entries copied per class (0 disables
+     *              flattening and 255 flattens every class)
+     */
+    public static void setVtableFlattenLimit(int limit) {
+        if (limit < 0 || limit > 255) {
+            throw new IllegalArgumentException("vtable flatten limit must be between 0 and 255: "+limit);
+        }
+        vtableFlattenLimit = limit;
+    }
+
+    /**
+     * Get the maximum number of inherited vtable entries that will be copied
+     * into a class's vtable.
+     *
+     * @return the vtable flatten limit
+     */
+    static int getVtableFlattenLimit() {
+        return vtableFlattenLimit;
+    }
+
     /**
      * Get the header for the suite currently being loaded.
      *
@@ -131,6 +131,9 @@ public class Verifier {
     private int headerAndExtraInstructions;
     private int methodSize;
     private boolean stack0isReceiver;
+    private int thisGetfieldIp;
+    private int[] fusedIps = new int[4];
+    private int fusedCount;
 
     Verifier() {}
 
@@ -180,6 +183,8 @@ public class Verifier {
         this.pmos             = null;
         this.headerSize       = 0;
         this.stack0isReceiver = false;
+        this.thisGetfieldIp   = -1;
+        this.fusedCount       = 0;
 
         return method;
     }
@@ -238,6 +243,12 @@ public class Verifier {
             pmos.close();
             methodImpl.bytecodes = pmos.toByteArray();
 
+            // Replace each this_getfield that is followed by a return1 with
+            // the superinstruction that does both
+            for (int i = 0 ; i != fusedCount ; i++) {
+                methodImpl.bytecodes[fusedIps[i]] = (byte)OPC.THIS_GETFIELD_RETURN1;
+            }
+
             // Verify that a constructor always calls its super constructor unless
             // this is the constructor in Object.
             if (isConstructor && hasReturn) {
@@ -878,6 +889,9 @@ public class Verifier {
             default:
                 verifySupportForType(returnType);
                 pop(returnType);
+                if (thisGetfieldIp != -1 && thisGetfieldIp == currentIp() - 2) {
+                    addFusedIp(thisGetfieldIp);
+                }
                 out.write(OPC.RETURN1);
                 break;
         }
@@ -885,6 +899,24 @@ public class Verifier {
         hasReturn = true;
     }
 
+    /*
+     * addFusedIp
+     *
+     * Record the ip of a one word this_getfield that is immediately followed
+     * by a return1 so that it can be replaced by this_getfield_return1 once
+     * the method has been written. The return1 is left in place so that the
+     * code size, and therefore every branch offset, is unchanged and so that
+     * a branch to the return1 still works.
+     */
+    private void addFusedIp(int ip) {
+        if (fusedCount == fusedIps.length) {
+            int[] newIps = new int[fusedCount * 2];
+            System.arraycopy(fusedIps, 0, newIps, 0, fusedCount);
+            fusedIps = newIps;
+        }
+        fusedIps[fusedCount++] = ip;
+    }
+
     /*
      * thro
      */
@@ -1430,6 +1462,9 @@ public class Verifier {
             verifyError(VE_OFFSETTOOLARGE, "Offset: "+offset);
         }
 
+        if (row == 1 && col == 0) {
+            thisGetfieldIp = currentIp();
+        }
         out.write(getTable[row][col]);
         out.write(offset);
     }
@@ -281,6 +281,7 @@ static {
     put("this_putfield_s",    OPC.THIS_PUTFIELD_S);
     put("this_putfield_o",    OPC.THIS_PUTFIELD_O);
     put("this_putfield_i2",   OPC.THIS_PUTFIELD_I2);
+    put("this_getfield_return1",OPC.THIS_GETFIELD_RETURN1);
     put("ladd",               OPC.LADD);
     put("lsub",               OPC.LSUB);
     put("lmul",               OPC.LMUL);
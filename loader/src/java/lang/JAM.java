@@ -73,6 +73,8 @@ public class JAM {
         out.println("    -suite:<url>      load suite from url");
         out.println("    -accountMemory    measure amount of memory required to load");
         out.println("                      suites (requires -XexcessiveGC VM option)");
+        out.println("    -flatten:<n>      flatten the vtable of each class that inherits no");
+        out.println("                      more than <n> vtable entries it doesn't override");
 /*if[DEBUG.LOADER]*/
         out.println("    -traceloading     trace suite loading");
         out.println("    -traceverifier    trace verification");
@@ -111,6 +113,8 @@ public class JAM {
                 suites.addElement(fixUrl(arg.substring("-suite:".length())));
             } else if (arg.equals("-accountMemory")) {
                 accountMemory = true;
+            } else if (arg.startsWith("-flatten:")) {
+                SuiteLoader.setVtableFlattenLimit(Integer.parseInt(arg.substring("-flatten:".length())));
 /*if[DEBUG.LOADER]*/
             } else if (arg.equals("-traceloading")) {
                 flags |= SuiteLoader.TRACE_LOADING;
@@ -11,6 +11,7 @@ public class Romizer {
     public static boolean isTCK() { return false; }
 
     public static void logOopMapCreation(boolean isShared) {}
+    public static void logVtableFlattening(int extraSlots) {}
     public static void logSuite(String name) {}
     public static void logClass(SuiteClass sc, boolean isProxy) {}
     public static void logMethod() {}
@@ -235,6 +235,16 @@ public class StringOfSymbols
         return p.getClassName();
     }
 
+    /**
+     * Get the hash code of the class name. This is the same as the
+     * hash code of the string returned by <code>getClassName</code>.
+     * @return the hash code
+     */
+    public int hashClassName() {
+        SymbolParser p = SymbolParser.create(this);
+        return p.hashClassName();
+    }
+
     /**
      * Get the number of characters in the class name
      * @return the length
@@ -717,7 +727,20 @@ class SymbolParser {
      * @return the name
      */
     String getClassName() {
-        return sos.substring(classNameStart, classNameLength+1);
+        return sos.substring(classNameStart, classNameStart+classNameLength);
+    }
+
+    /**
+     * Get the hash code of the class name
+     * @return the hash code
+     */
+    int hashClassName() {
+        int h = 0;
+        int pos = classNameStart;
+        for (int i = 0 ; i < classNameLength ; i++) {
+            h = 31*h + sos.at(pos++);
+        }
+        return h;
     }
 
     /**
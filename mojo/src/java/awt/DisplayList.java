@@ -0,0 +1,94 @@
+package java.awt;
+
+import com.sun.squawk.vm.ChannelOpcodes;
+
+/**
+ * The drawing operations that have not yet been sent to channel 3. Each
+ * one is encoded as its opcode, the graphics id and its operands, and the
+ * whole list is sent as a single DRAWLIST operation before any other
+ * operation on the channel so that the host still sees them in order.
+ */
+class DisplayList {
+
+    private static int[] list = new int[1024];
+    private static int size;
+
+    /**
+     * Make room for <code>n</code> more ints.
+     */
+    private static void reserve(int n) {
+        if (size + n > list.length) {
+            flush();
+            if (n > list.length) {
+                list = new int[n];
+            }
+        }
+    }
+
+    /**
+     * Add an operation with up to four operands.
+     */
+    static synchronized void add(int op, int gid, int count, int a, int b, int c, int d) {
+        reserve(count + 2);
+        list[size++] = op;
+        list[size++] = gid;
+        switch (count) {
+            case 4: list[size + 3] = d;
+            case 3: list[size + 2] = c;
+            case 2: list[size + 1] = b;
+            case 1: list[size    ] = a;
+        }
+        size += count;
+    }
+
+    /**
+     * Add an operation whose operands are two ints and a string. The
+     * characters are packed two to an int.
+     */
+    static synchronized void addString(int op, int gid, int x, int y, String s) {
+        int length = s.length();
+        reserve(5 + (length + 1) / 2);
+        list[size++] = op;
+        list[size++] = gid;
+        list[size++] = x;
+        list[size++] = y;
+        list[size++] = length;
+        for (int i = 0; i < length; i += 2) {
+            int hi = s.charAt(i);
+            int lo = (i + 1 < length) ? s.charAt(i + 1) : 0;
+            list[size++] = (hi << 16) | lo;
+        }
+    }
+
+    /**
+     * Add an operation whose operands are the points of a polygon.
+     */
+    static synchronized void addPolygon(int op, int gid, int[] x, int[] y, int count) {
+        reserve(3 + count * 2);
+        list[size++] = op;
+        list[size++] = gid;
+        list[size++] = count;
+        System.arraycopy(x, 0, list, size, count);
+        System.arraycopy(y, 0, list, size + count, count);
+        size += count * 2;
+    }
+
+    /**
+     * Send the list to the channel.
+     */
+    static synchronized void flush() {
+        if (size > 0) {
+            int n = size;
+            size = 0;
+            Native.execIO3(ChannelOpcodes.DRAWLIST, n, 0, 0, 0, 0, 0, list, null, null);
+        }
+    }
+
+    /**
+     * Execute any other operation on the channel once the list is sent.
+     */
+    static long execIO3(int op, int i1, int i2, int i3, int i4, int i5, int i6, Object send1, Object send2, Object receive1) {
+        flush();
+        return Native.execIO3(op, i1, i2, i3, i4, i5, i6, send1, send2, receive1);
+    }
+}
@@ -9,11 +9,11 @@ public class Font extends ID {
     }
 
     public Font(String name, int style, int size) {
-        Native.execIO3(ChannelOpcodes.FONT_NEW, id(), style, size, 0, 0, 0, name, null, null);
+        DisplayList.execIO3(ChannelOpcodes.FONT_NEW, id(), style, size, 0, 0, 0, name, null, null);
     }
 
     public int getSize() {
-        return (int)Native.execIO3(ChannelOpcodes.FONT_GETSIZE, id(), 0, 0, 0, 0, 0, null, null, null);
+        return (int)DisplayList.execIO3(ChannelOpcodes.FONT_GETSIZE, id(), 0, 0, 0, 0, 0, null, null, null);
     }
 
 }
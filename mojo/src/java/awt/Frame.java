@@ -7,18 +7,18 @@ import com.sun.squawk.vm.ChannelOpcodes;
 public class Frame extends ID {
 
     public Frame(String t) {
-        Native.execIO3(ChannelOpcodes.FRAME_NEW, id(), 0, 0, 0, 0, 0, t, null, null);
+        DisplayList.execIO3(ChannelOpcodes.FRAME_NEW, id(), 0, 0, 0, 0, 0, t, null, null);
     }
 
     public void addWindowListener(WindowListener wl) {
     }
 
     public void setVisible(boolean x) {
-        Native.execIO3(ChannelOpcodes.FRAME_SETVISIBLE, id(), x?1:0, 0, 0, 0, 0, null, null, null);
+        DisplayList.execIO3(ChannelOpcodes.FRAME_SETVISIBLE, id(), x?1:0, 0, 0, 0, 0, null, null, null);
     }
 
     public void setSize(int x, int y) {
-        Native.execIO3(ChannelOpcodes.FRAME_SETSIZE, id(), x, y, 0, 0, 0, null, null, null);
+        DisplayList.execIO3(ChannelOpcodes.FRAME_SETSIZE, id(), x, y, 0, 0, 0, null, null, null);
     }
 
     public void add(Panel p) {
@@ -29,7 +29,7 @@ public class Frame extends ID {
             x = d.width;
             y = d.height;
         }
-        Native.execIO3(ChannelOpcodes.FRAME_ADD, id(), p.id(), x, y, 0, 0, null, null, null);
+        DisplayList.execIO3(ChannelOpcodes.FRAME_ADD, id(), p.id(), x, y, 0, 0, null, null, null);
     }
 
 
@@ -40,7 +40,7 @@ public class Frame extends ID {
         new Thread() {
             public void run() {
                 while(true) {
-                    long key = Native.execIO3(ChannelOpcodes.FRAME_GETEVENT, 0, 0, 0, 0, 0, 0, null, null, null);
+                    long key = DisplayList.execIO3(ChannelOpcodes.FRAME_GETEVENT, 0, 0, 0, 0, 0, 0, null, null, null);
 
                     int key1 = (int)(key >> 32);
                     int key2 = (int)(key);
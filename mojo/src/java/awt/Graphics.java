@@ -12,57 +12,57 @@ public class Graphics {
     }
 
     public void setColor(Color c) {
-        Native.execIO3(ChannelOpcodes.GRAPHICS_SETCOLOR, gid, c.rgb(), 0, 0, 0, 0, null, null, null);
+        DisplayList.add(ChannelOpcodes.GRAPHICS_SETCOLOR, gid, 1, c.rgb(), 0, 0, 0);
     }
 
     public Font getFont() {
         Font r = new Font();
-        Native.execIO3(ChannelOpcodes.GRAPHICS_GETFONT, gid, r.id(), 0, 0, 0, 0, null, null, null);
+        DisplayList.execIO3(ChannelOpcodes.GRAPHICS_GETFONT, gid, r.id(), 0, 0, 0, 0, null, null, null);
         return r;
     }
 
     public FontMetrics getFontMetrics() {
         FontMetrics r = new FontMetrics();
-        Native.execIO3(ChannelOpcodes.GRAPHICS_GETFONTMETRICS, gid, r.id(), 0, 0, 0, 0, null, null, null);
+        DisplayList.execIO3(ChannelOpcodes.GRAPHICS_GETFONTMETRICS, gid, r.id(), 0, 0, 0, 0, null, null, null);
         return r;
     }
 
     public boolean drawImage(Image image, int x, int y, Object observer) {
-        Native.execIO3(ChannelOpcodes.GRAPHICS_DRAWIMAGE, gid, image.id(), x, y, 0, 0, null, null, null);
+        DisplayList.add(ChannelOpcodes.GRAPHICS_DRAWIMAGE, gid, 3, image.id(), x, y, 0);
         return true;
     }
 
     public void drawString(String s, int x, int y) {
-        Native.execIO3(ChannelOpcodes.GRAPHICS_DRAWSTRING, gid, x, y, 0, 0, 0, s, null, null);
+        DisplayList.addString(ChannelOpcodes.GRAPHICS_DRAWSTRING, gid, x, y, s);
     }
 
     public void fillArc(int x, int y, int w, int h, int ba, int ea) {
-        Native.execIO3(ChannelOpcodes.GRAPHICS_FILLARC1, gid, x,  y,  w, h, 0, null, null, null);
-        Native.execIO3(ChannelOpcodes.GRAPHICS_FILLARC2, gid, ba, ea, 0, 0, 0, null, null, null);
+        DisplayList.add(ChannelOpcodes.GRAPHICS_FILLARC1, gid, 4, x,  y,  w, h);
+        DisplayList.add(ChannelOpcodes.GRAPHICS_FILLARC2, gid, 2, ba, ea, 0, 0);
     }
 
     public void drawLine (int x1, int y1, int x2, int y2) {
-        Native.execIO3(ChannelOpcodes.GRAPHICS_DRAWLINE, gid, x1, y1, x2, y2, 0, null, null, null);
+        DisplayList.add(ChannelOpcodes.GRAPHICS_DRAWLINE, gid, 4, x1, y1, x2, y2);
     }
 
     public void drawRect(int x, int y, int w, int h) {
-        Native.execIO3(ChannelOpcodes.GRAPHICS_DRAWRECT, gid, x, y, w, h, 0, null, null, null);
+        DisplayList.add(ChannelOpcodes.GRAPHICS_DRAWRECT, gid, 4, x, y, w, h);
     }
 
     public void fillRect(int x, int y, int w, int h) {
-        Native.execIO3(ChannelOpcodes.GRAPHICS_FILLRECT, gid, x, y, w, h, 0, null, null, null);
+        DisplayList.add(ChannelOpcodes.GRAPHICS_FILLRECT, gid, 4, x, y, w, h);
     }
 
     public void fillPolygon(int[] a,int[] b,int c) {
-        Native.execIO3(ChannelOpcodes.GRAPHICS_FILLPOLY, gid, c, 0, 0, 0, 0, a, b, null);
+        DisplayList.addPolygon(ChannelOpcodes.GRAPHICS_FILLPOLY, gid, a, b, c);
     }
 
     public void setClip(int x, int y, int w, int h) {
-        Native.execIO3(ChannelOpcodes.GRAPHICS_SETCLIP, gid, x, y, w, h, 0, null, null, null);
+        DisplayList.add(ChannelOpcodes.GRAPHICS_SETCLIP, gid, 4, x, y, w, h);
     }
 
     public void translate(int x, int y) {
-        Native.execIO3(ChannelOpcodes.GRAPHICS_TRANSLATE, gid, x, y, 0, 0, 0, null, null, null);
+        DisplayList.add(ChannelOpcodes.GRAPHICS_TRANSLATE, gid, 2, x, y, 0, 0);
     }
 
 }
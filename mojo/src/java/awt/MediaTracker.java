@@ -11,7 +11,7 @@ public class MediaTracker {
     }
 
     public void addImage(Image image, int i) {
-        Native.execIO3(ChannelOpcodes.MEDIATRACKER_WAITFOR, pid, image.id(), 0, 0, 0, 0, null, null, null);
+        DisplayList.execIO3(ChannelOpcodes.MEDIATRACKER_WAITFOR, pid, image.id(), 0, 0, 0, 0, null, null, null);
     }
 
     public void waitForID(int i) throws InterruptedException {
@@ -14,7 +14,7 @@ public class Panel extends ID {
     }
 
     public Panel() {
-        Native.execIO3(ChannelOpcodes.PANEL_NEW, id(), 0, 0, 0, 0, 0, null, null, null);
+        DisplayList.execIO3(ChannelOpcodes.PANEL_NEW, id(), 0, 0, 0, 0, 0, null, null, null);
         table.put(id(), this);
     }
 
@@ -27,7 +27,7 @@ public class Panel extends ID {
 
     public void repaint() {
         update(new Graphics(id()));
-        Native.execIO3(ChannelOpcodes.PANEL_REPAINT, id(), 0, 0, 0, 0, 0, null, null, null);
+        DisplayList.execIO3(ChannelOpcodes.PANEL_REPAINT, id(), 0, 0, 0, 0, 0, null, null, null);
     }
 
     public void repaint(int a, int x, int y, int w, int h) {
@@ -37,24 +37,24 @@ public class Panel extends ID {
 
     public Image createImage(int x, int y) {
         Image r = new Image();
-        Native.execIO3(ChannelOpcodes.PANEL_CREATEIMAGE, id(), r.id(), x, y, 0, 0, null, null, null);
+        DisplayList.execIO3(ChannelOpcodes.PANEL_CREATEIMAGE, id(), r.id(), x, y, 0, 0, null, null, null);
         return r;
     }
 
     public void remove(int a) {
-        Native.execIO3(ChannelOpcodes.PANEL_REMOVE, id(), a, 0, 0, 0, 0, null, null, null);
+        DisplayList.execIO3(ChannelOpcodes.PANEL_REMOVE, id(), a, 0, 0, 0, 0, null, null, null);
     }
 
     public void invalidate() {
-        Native.execIO3(ChannelOpcodes.PANEL_INVALIDATE, id(), 0, 0, 0, 0, 0, null, null, null);
+        DisplayList.execIO3(ChannelOpcodes.PANEL_INVALIDATE, id(), 0, 0, 0, 0, 0, null, null, null);
     }
 
     public void validate() {
-        Native.execIO3(ChannelOpcodes.PANEL_VALIDATE, id(), 0, 0, 0, 0, 0, null, null, null);
+        DisplayList.execIO3(ChannelOpcodes.PANEL_VALIDATE, id(), 0, 0, 0, 0, 0, null, null, null);
     }
 
     public void requestFocus() {
-        Native.execIO3(ChannelOpcodes.PANEL_REQUESTFOCUS, id(), 0, 0, 0, 0, 0, null, null, null);
+        DisplayList.execIO3(ChannelOpcodes.PANEL_REQUESTFOCUS, id(), 0, 0, 0, 0, 0, null, null, null);
     }
 
     public void add(Panel p, int y) {
@@ -65,7 +65,7 @@ public class Panel extends ID {
             w = d.width;
             h = d.height;
         }
-        Native.execIO3(ChannelOpcodes.PANEL_ADD, id(), p.id(), y, w, h, 0, null, null, null);
+        DisplayList.execIO3(ChannelOpcodes.PANEL_ADD, id(), p.id(), y, w, h, 0, null, null, null);
     }
 
     public void add(Panel p, String y) {
@@ -76,33 +76,33 @@ public class Panel extends ID {
             w = d.width;
             h = d.height;
         }
-        Native.execIO3(ChannelOpcodes.PANEL_ADD2, id(), p.id(), w, h, 0, 0, y, null, null);
+        DisplayList.execIO3(ChannelOpcodes.PANEL_ADD2, id(), p.id(), w, h, 0, 0, y, null, null);
     }
 
     public void addLabel(String txt) {
-        Native.execIO3(ChannelOpcodes.PANEL_ADDLABEL, id(), 0, 0, 0, 0, 0, txt, null, null);
+        DisplayList.execIO3(ChannelOpcodes.PANEL_ADDLABEL, id(), 0, 0, 0, 0, 0, txt, null, null);
         //add(new Label(txt));
     }
 
     public void setBackground(Color c) {
-        Native.execIO3(ChannelOpcodes.PANEL_SETBACKGROUND, id(), c.rgb(), 0, 0, 0, 0, null, null, null);
+        DisplayList.execIO3(ChannelOpcodes.PANEL_SETBACKGROUND, id(), c.rgb(), 0, 0, 0, 0, null, null, null);
     }
 
     public void setLayout(BorderLayout l) {
-        Native.execIO3(ChannelOpcodes.PANEL_SETBORDERLAYOUT, id(), 0, 0, 0, 0, 0, null, null, null);
+        DisplayList.execIO3(ChannelOpcodes.PANEL_SETBORDERLAYOUT, id(), 0, 0, 0, 0, 0, null, null, null);
     }
 
     public int getHeight() {
-        return (int)Native.execIO3(ChannelOpcodes.PANEL_GETHEIGHT, id(), 0, 0, 0, 0, 0, null, null, null);
+        return (int)DisplayList.execIO3(ChannelOpcodes.PANEL_GETHEIGHT, id(), 0, 0, 0, 0, 0, null, null, null);
     }
 
     public int getWidth() {
-        return (int)Native.execIO3(ChannelOpcodes.PANEL_GETWIDTH, id(), 0, 0, 0, 0, 0, null, null, null);
+        return (int)DisplayList.execIO3(ChannelOpcodes.PANEL_GETWIDTH, id(), 0, 0, 0, 0, 0, null, null, null);
     }
 
     public FontMetrics getFontMetrics(Font f) {
         FontMetrics r = new FontMetrics();
-        Native.execIO3(ChannelOpcodes.PANEL_GETFONTMETRICS, id(), f.id(), r.id(), 0, 0, 0, null, null, null);
+        DisplayList.execIO3(ChannelOpcodes.PANEL_GETFONTMETRICS, id(), f.id(), r.id(), 0, 0, 0, null, null, null);
         return r;
     }
 
@@ -18,7 +18,7 @@ public class Toolkit {
 
     public Image createImage(byte[] data, int offset, int length) {
         Image r = new Image();
-        Native.execIO3(ChannelOpcodes.TOOLKIT_CREATEIMAGE, r.id(), offset, length, 0, 0, 0, data, null, null);
+        DisplayList.execIO3(ChannelOpcodes.TOOLKIT_CREATEIMAGE, r.id(), offset, length, 0, 0, 0, data, null, null);
         return r;
     }
 }
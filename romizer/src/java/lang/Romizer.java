@@ -148,6 +148,10 @@ public final class Romizer {
         out.println("    -growrom            allow rom expansion during image building");
         out.println("    -gcrom              configure ROM as a garbage collectable memory.");
         out.println("                        This should not be used for a production image.");
+        out.println("    -flatten <n>        flatten the vtable of each class that inherits no more");
+        out.println("                        than <n> vtable entries it doesn't override (0-255,");
+        out.println("                        default=0). Dispatch is faster but tables are larger");
+        out.println("                        (see -log for the cost)");
         out.println("    -stats              show class statistics after romizing");
         out.println("    -log                show suite contents log after romizing");
 /*if[DEBUG.LOADER]*/
@@ -303,6 +307,8 @@ public final class Romizer {
 /*if[LISP2.COLLECTOR]*/
                     System.err.println("-gcrom not supported with lisp2 collector");
 /*end[LISP2.COLLECTOR]*/
+                } else if (arg.equals("-flatten")) {
+                    SuiteLoader.setVtableFlattenLimit(Integer.parseInt(getOptArg(args, ++i, "-flatten")));
                 } else if (arg.equals("-stats")) {
                     flags |= ObjectMemoryBuilder.OPT_CLASSSTATS;
                 } else if (arg.equals("-log")) {
@@ -597,6 +603,13 @@ public final class Romizer {
         }
 
 
+        int flattenedVtables;
+        int flattenedVtableSlots;
+        void logVtableFlattening(int extraSlots) {
+            flattenedVtables++;
+            flattenedVtableSlots += extraSlots;
+        }
+
         Vector loggedClasses = new Vector();
         Vector loggedProxyClasses = new Vector();
 
@@ -665,6 +678,7 @@ public final class Romizer {
             out.println("Suite \'"+name+"' log:");
             out.println("  Total oop maps:        "+totalOopMaps);
             out.println("  Shared oop maps:       "+sharedOopMaps);
+            out.println("  Flattened vtables:     "+flattenedVtables+" (+"+flattenedVtableSlots+" entries, "+(flattenedVtableSlots*4)+" bytes)");
             out.println("  Total classes:         "+(loggedClasses.size()+loggedProxyClasses.size()));
             out.println("  Total methods:         "+loggedMethodsCount);
             out.println("  Total instructions:    "+(instTotal+linstTotal+finstTotal));
@@ -726,6 +740,7 @@ public final class Romizer {
     }
 
     public static void logOopMapCreation(boolean isShared)      { currentLog.logOopMapCreation(isShared); }
+    public static void logVtableFlattening(int extraSlots)      { currentLog.logVtableFlattening(extraSlots); }
     public static void logClass(SuiteClass sc, boolean isProxy)  { currentLog.logClass(sc, isProxy); }
     public static void logMethod()                              { currentLog.logMethod(); }
     public static void logInstruction(int opcode)               { currentLog.logInstruction(opcode); }
@@ -0,0 +1,65 @@
+package bench.idhash;
+
+import java.util.Hashtable;
+
+/**
+ * Measures an identity keyed Hashtable. Each run fills a table with objects
+ * that inherit Object.hashCode() and then looks every one of them up again.
+ * A full collection is forced between the two halves so that the lookups
+ * hash objects that may have been moved since they were inserted.
+ */
+public class Main {
+
+    static int objects = 100000;
+
+    public static void main (String args[]) {
+        if (args.length > 0) {
+            objects = Integer.parseInt(args[0]);
+        }
+        new Main().run();
+    }
+
+    public void run() {
+        for (int i = 0 ; i != 3 ; i++) {
+            Key[] keys = new Key[objects];
+            for (int j = 0 ; j != objects ; j++) {
+                keys[j] = new Key();
+            }
+            Hashtable table = new Hashtable();
+            long fill = fill(table, keys);
+            System.gc();
+            long lookup = lookup(table, keys);
+            System.out.println("***********res"+(i+1)+
+                               "  fill = "+fill+
+                               "  lookup = "+lookup+
+                               "  found = "+count);
+        }
+    }
+
+    long fill(Hashtable table, Key[] keys) {
+        long start = System.currentTimeMillis();
+        for (int i = 0 ; i != keys.length ; i++) {
+            table.put(keys[i], keys[i]);
+        }
+        long end = System.currentTimeMillis();
+        return end-start;
+    }
+
+    long lookup(Hashtable table, Key[] keys) {
+        int found = 0;
+        long start = System.currentTimeMillis();
+        for (int i = 0 ; i != keys.length ; i++) {
+            if (table.get(keys[i]) == keys[i]) {
+                found++;
+            }
+        }
+        long end = System.currentTimeMillis();
+        count = found;
+        return end-start;
+    }
+
+    int count;
+
+    static class Key {
+    }
+}
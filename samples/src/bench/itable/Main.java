@@ -0,0 +1,122 @@
+package bench.itable;
+
+/**
+ * Measures the cost of an invokeinterface as the number of interfaces
+ * implemented by the receiver's class grows. Each test calls a method of the
+ * last interface implemented by the class, alternating between an instance
+ * of the class and an instance of a subclass that inherits the interfaces.
+ * The alternation defeats a one entry inline cache, so build the VM with
+ * VM.INLINECACHE_SIZE=1 to time the interface table lookup itself.
+ */
+public class Main {
+
+    static int iterations = 200000;
+
+    public static void main (String args[]) {
+        if (args.length > 0) {
+            iterations = Integer.parseInt(args[0]);
+        }
+        new Main().run();
+    }
+
+    public void run() {
+        for (int i = 0 ; i != 3 ; i++) {
+            System.out.println("***********res"+(i+1)+
+                               "  1 interface = "+run1(new A1(), new B1())+
+                               "  2 interfaces = "+run2(new A2(), new B2())+
+                               "  4 interfaces = "+run4(new A4(), new B4())+
+                               "  8 interfaces = "+run8(new A8(), new B8()));
+        }
+    }
+
+    long run1(I0 a, I0 b) {
+        int res = 0;
+        long start = System.currentTimeMillis();
+        for (int i = 0 ; i != iterations ; i++) {
+            res = a.f0(res);
+            res = b.f0(res);
+        }
+        long end = System.currentTimeMillis();
+        count += res;
+        return end-start;
+    }
+
+    long run2(I1 a, I1 b) {
+        int res = 0;
+        long start = System.currentTimeMillis();
+        for (int i = 0 ; i != iterations ; i++) {
+            res = a.f1(res);
+            res = b.f1(res);
+        }
+        long end = System.currentTimeMillis();
+        count += res;
+        return end-start;
+    }
+
+    long run4(I3 a, I3 b) {
+        int res = 0;
+        long start = System.currentTimeMillis();
+        for (int i = 0 ; i != iterations ; i++) {
+            res = a.f3(res);
+            res = b.f3(res);
+        }
+        long end = System.currentTimeMillis();
+        count += res;
+        return end-start;
+    }
+
+    long run8(I7 a, I7 b) {
+        int res = 0;
+        long start = System.currentTimeMillis();
+        for (int i = 0 ; i != iterations ; i++) {
+            res = a.f7(res);
+            res = b.f7(res);
+        }
+        long end = System.currentTimeMillis();
+        count += res;
+        return end-start;
+    }
+
+    int count;
+}
+
+interface I0 { int f0(int x); }
+interface I1 { int f1(int x); }
+interface I2 { int f2(int x); }
+interface I3 { int f3(int x); }
+interface I4 { int f4(int x); }
+interface I5 { int f5(int x); }
+interface I6 { int f6(int x); }
+interface I7 { int f7(int x); }
+
+class A1 implements I0 {
+    public int f0(int x) { return x + 1; }
+}
+
+class A2 implements I0, I1 {
+    public int f0(int x) { return x + 1; }
+    public int f1(int x) { return x + 1; }
+}
+
+class A4 implements I0, I1, I2, I3 {
+    public int f0(int x) { return x + 1; }
+    public int f1(int x) { return x + 1; }
+    public int f2(int x) { return x + 1; }
+    public int f3(int x) { return x + 1; }
+}
+
+class A8 implements I0, I1, I2, I3, I4, I5, I6, I7 {
+    public int f0(int x) { return x + 1; }
+    public int f1(int x) { return x + 1; }
+    public int f2(int x) { return x + 1; }
+    public int f3(int x) { return x + 1; }
+    public int f4(int x) { return x + 1; }
+    public int f5(int x) { return x + 1; }
+    public int f6(int x) { return x + 1; }
+    public int f7(int x) { return x + 1; }
+}
+
+class B1 extends A1 {}
+class B2 extends A2 {}
+class B4 extends A4 {}
+class B8 extends A8 {}
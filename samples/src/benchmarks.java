@@ -5,6 +5,8 @@ public class benchmarks {
                                                       + " bench/cubes/"
                                                       + " bench/mpeg/"
                                                       + " bench/hanoi/"
+                                                      + " bench/itable/"
+                                                      + " bench/idhash/"
                                                       ;
     private static final String __SUITE_FLAGS__ = "final";
 }
@@ -0,0 +1,6 @@
+//if[SQUAWK]
+
+public class idhash {
+    private static final String __SUITE_CLASSES__      = "bench/idhash/";
+    private static final String __SUITE_FLAGS__ = "final";
+}
@@ -0,0 +1,6 @@
+//if[SQUAWK]
+
+public class itable {
+    private static final String __SUITE_CLASSES__      = "bench/itable/";
+    private static final String __SUITE_FLAGS__ = "final";
+}
@@ -0,0 +1,6 @@
+//if[SQUAWK]
+
+public class rmstest {
+    private static final String __SUITE_CLASSES__      = "test/rms/";
+    private static final String __SUITE_FLAGS__ = "final";
+}
@@ -0,0 +1,88 @@
+package test.rms;
+
+import java.io.*;
+import javax.microedition.rms.*;
+
+/**
+ * Checks that the record store file is consistent after the compaction
+ * steps taken by deleteRecord. Deleting record 4 and then record 2 of ten
+ * equal sized records makes the first step slide record 3 down and the
+ * second step merge the two free blocks above it. The file is copied while
+ * the store is still open, as after a crash, so the copy is reopened from
+ * what the steps wrote rather than from what close rewrites. Records added
+ * to the copy must not overlap the surviving records or each other.
+ * The graphics RandomAccessFile has no natives yet, so run it on a host
+ * JVM with graphics/classes and samples/classes on the class path.
+ */
+public class Main {
+
+    static final String NAME = "rmstest.db";
+    static final String COPY = "rmstest2.db";
+    static final int SIZE = 100;
+
+    public static void main(String args[]) throws Exception {
+        delete(NAME);
+        delete(COPY);
+
+        RecordStore rs = RecordStore.openRecordStore(NAME, true);
+        for (int i = 1 ; i <= 10 ; i++) {
+            rs.addRecord(record(i, SIZE), 0, SIZE);
+        }
+        rs.deleteRecord(4);
+        rs.deleteRecord(2);
+        copy(NAME, COPY);
+
+        RecordStore rs2 = RecordStore.openRecordStore(COPY, false);
+        int a = rs2.addRecord(record(11, SIZE), 0, SIZE);
+        int b = rs2.addRecord(record(12, SIZE * 2), 0, SIZE * 2);
+        for (int i = 1 ; i <= 10 ; i++) {
+            if (i != 2 && i != 4) {
+                check(rs2, i, record(i, SIZE));
+            }
+        }
+        check(rs2, a, record(11, SIZE));
+        check(rs2, b, record(12, SIZE * 2));
+
+        rs2.closeRecordStore();
+        rs.closeRecordStore();
+        delete(NAME);
+        delete(COPY);
+        System.out.println("passed");
+    }
+
+    static void delete(String name) throws RecordStoreException {
+        try {
+            RecordStore.deleteRecordStore(name);
+        } catch (RecordStoreNotFoundException ex) {
+        }
+    }
+
+    static byte[] record(int n, int len) {
+        byte[] data = new byte[len];
+        for (int i = 0 ; i != len ; i++) {
+            data[i] = (byte)(n * 31 + i);
+        }
+        return data;
+    }
+
+    static void check(RecordStore rs, int id, byte[] expected) throws Exception {
+        byte[] data = rs.getRecord(id);
+        boolean ok = data.length == expected.length;
+        for (int i = 0 ; ok && i != data.length ; i++) {
+            ok = data[i] == expected[i];
+        }
+        if (!ok) {
+            throw new RuntimeException("record " + id + " is corrupt");
+        }
+    }
+
+    static void copy(String from, String to) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(from, "r");
+        RandomAccessFile out = new RandomAccessFile(to, "rw");
+        byte[] buf = new byte[(int)in.length()];
+        in.readFully(buf);
+        out.write(buf);
+        out.close();
+        in.close();
+    }
+}
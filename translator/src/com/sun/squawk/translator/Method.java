@@ -81,6 +81,8 @@ public final class Method extends Member {
     private CodeMetrics javacMetrics;
     /** The metrics of the generated Squawk code. */
     private CodeMetrics squawkMetrics;
+    /** The ID that will be given to the next local variable created for this method. */
+    private int nextLocalVariableID;
 
     /**
      * Public constructor.
@@ -115,6 +117,16 @@ public final class Method extends Member {
         return overridden;
     }
 
+    /**
+     * Get a unique ID for a local variable of this method. The IDs only depend on
+     * the order in which the variables of this method are created and so are the
+     * same whichever thread builds the method's IR.
+     * @return the ID for the next local variable of this method.
+     */
+    public int nextLocalVariableID() {
+        return nextLocalVariableID++;
+    }
+
     /**
      * Get the slot of this method.
      * @return the slot of this method.
@@ -283,12 +295,12 @@ public final class Method extends Member {
     * @return the built IR.
     * @exception LinkageException
     */
-   private InstructionList buildIR() throws LinkageException {
+   private InstructionList buildIR(boolean graphOnly) throws LinkageException {
        InstructionList ir = null;
        if (holder != null) {
            try {
                Assert.that(vm().verifyCount++ == 0); // check that serialization is working
-               ir = holder.buildIR();
+               ir = graphOnly ? holder.buildGraph() : holder.buildIR();
            } finally {
                Assert.that(vm().verifyCount-- > 0);
            }
@@ -307,7 +319,14 @@ public final class Method extends Member {
        } else {
            Assert.that(ir == null);
            Assert.that(holder != null);
-           ir = buildIR();
+           if (vm().transformingInParallel()) {
+               // The rest of the conversion is done by transform()
+               ir = buildIR(true);
+               javacMetrics = holder.getJavacMetrics();
+               vm().queueTransform(this);
+               return;
+           }
+           ir = buildIR(false);
            javacMetrics = holder.getJavacMetrics();
 
            if (vm().verifyingOnly()) {
@@ -319,6 +338,21 @@ public final class Method extends Member {
        }
    }
 
+   /**
+    * Finish the conversion of a method whose IR graph was built by
+    * <code>convert</code> while the translator is transforming in parallel.
+    * This may be called on any thread. It does nothing if the method has
+    * since been converted into one that throws a LinkageError.
+    */
+   public void transform() throws LinkageException {
+       if (holder != null) {
+           holder.transformIR(ir);
+
+           // Clear the bytecode holder so that it can be gc'ed
+           holder = null;
+       }
+   }
+
    /**
     * Convert the body of this method to return the receiver. This is used to
     * create default constructors for classes that have no constructors.
@@ -395,6 +429,10 @@ public final class Method extends Member {
            Assert.that(init != null, "LinkageError must include \"<init>(String message);\" (class = "+throwable.name()+")");
        }
 
+       // Number the locals of the new body from scratch, whether or not
+       // the original body had been built
+       nextLocalVariableID = 0;
+
        int maxStack  = (initString == null ? 1 : 2);
        int maxLocals = 2 + (parms.length * 2);
        InstructionFactory ifactory = new InstructionFactory(vm, this);
@@ -439,6 +477,7 @@ public final class Method extends Member {
        ilist.append(ifactory.createThrow(frame.pop(vm.THROWABLE, ilist.getLogicalIP())));
        GraphTransformer.transform(this, ilist);
        ir = ilist;
+       holder = null;
    }
 
 
@@ -584,11 +584,12 @@ public class Translator {
                             nextType = (Type)conversionQueue.lastElement();
                             conversionQueue.removeElementAt(size - 1);
                         }
+                        transformPending();
                         return null;
                     }
                 });
             } catch (LinkageException le) {
-                throw le;
+                throw transformPendingAfterError(le);
             } catch (Exception e) {
                 e.printStackTrace();
                 Assert.shouldNotReachHere();
@@ -603,6 +604,196 @@ public class Translator {
         }
     }
 
+   /* ------------------------------------------------------------------------ *\
+    *                     Parallel method transformation                       *
+   \* ------------------------------------------------------------------------ */
+
+    /**
+     * The number of threads used to do the liveness analysis and
+     * transformation of method IR. If it is 1, each method is completely
+     * converted when its class is.
+     */
+    private int threads = 1;
+
+    /**
+     * The methods whose IR graph has been built during the current
+     * conversion but which have not yet been transformed. They are kept in
+     * the order in which they were built.
+     */
+    private final Vector pendingTransforms = new Vector();
+
+    /**
+     * Set the number of threads used to transform method IR.
+     */
+    public void setThreads(int threads) {
+        Assert.that(threads > 0);
+        this.threads = threads;
+    }
+
+    /**
+     * Determine whether methods are transformed by a set of threads once
+     * the classes being converted have all had their IR graphs built. This
+     * is not done when verifying only or when tracing the transformation,
+     * as the trace would be interleaved.
+     */
+    public boolean transformingInParallel() {
+        return threads > 1 &&
+               (flags & (VERIFY_ONLY | TRACE_IR1 | TRACE_LOCALS | TRACE_LIVENESSDFA)) == 0;
+    }
+
+    /**
+     * Queue a method to be transformed at the end of the current conversion.
+     */
+    public void queueTransform(Method method) {
+        pendingTransforms.addElement(method);
+    }
+
+    /**
+     * Transform all the queued methods. Loading and verification have been
+     * done in order by now and each method is transformed independently of
+     * the others, so the result does not depend on how the methods are
+     * shared between the threads. If any transformations fail, the error
+     * of the first failing method (in the order in which the methods were
+     * queued) is given to the classes it would have been given to had the
+     * methods been transformed as they were built and it is thrown.
+     */
+    private void transformPending() throws LinkageException {
+        LinkageException[] failure = new LinkageException[1];
+        Method failed = transformQueued(failure);
+        if (failed != null) {
+            attributeLinkageError(failed.parent(), failure[0]);
+            throw failure[0];
+        }
+    }
+
+    /**
+     * Transform all the queued methods, sharing them between the threads.
+     *
+     * @param failure  the linkage error of the first failing method is
+     *                 returned in element 0 of this array
+     * @return the first method (in the order in which the methods were
+     *         queued) whose transformation failed with a linkage error or
+     *         null if none did
+     */
+    private Method transformQueued(LinkageException[] failure) {
+        final int count = pendingTransforms.size();
+        if (count == 0) {
+            return null;
+        }
+        final Method[] methods = new Method[count];
+        pendingTransforms.copyInto(methods);
+        pendingTransforms.removeAllElements();
+        final Throwable[] failures = new Throwable[count];
+        final int[] next = new int[1];
+
+        Runnable worker = new Runnable() {
+            public void run() {
+                while (true) {
+                    int i;
+                    synchronized (next) {
+                        i = next[0]++;
+                    }
+                    if (i >= count) {
+                        return;
+                    }
+                    try {
+                        methods[i].transform();
+                    } catch (Throwable t) {
+                        failures[i] = t;
+                    }
+                }
+            }
+        };
+
+        // The current thread is one of the workers
+        Thread[] workers = new Thread[Math.min(threads, count) - 1];
+        for (int i = 0; i != workers.length; i++) {
+            workers[i] = new Thread(worker);
+            workers[i].start();
+        }
+        worker.run();
+        for (int i = 0; i != workers.length; i++) {
+            while (true) {
+                try {
+                    workers[i].join();
+                    break;
+                } catch (InterruptedException ie) {
+                }
+            }
+        }
+
+        // Only the first failure counts: the methods after it would never
+        // have been transformed as their classes get its error
+        for (int i = 0; i != count; i++) {
+            Throwable t = failures[i];
+            if (t == null) {
+                continue;
+            }
+            if (t instanceof LinkageException) {
+                failure[0] = (LinkageException)t;
+                return methods[i];
+            } else if (t instanceof RuntimeException) {
+                throw (RuntimeException)t;
+            } else {
+                throw (Error)t;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Give a linkage error raised by transforming a method to the classes
+     * that would have got it had the method been transformed as it was
+     * built. That is the method's class and each class between it and the
+     * class whose conversion is in progress, as Type.doConversion sets the
+     * error as it unwinds from the superclass to the subclass.
+     *
+     * @param type  the class of the failing method
+     * @param le    the linkage error
+     */
+    private void attributeLinkageError(Type type, LinkageException le) {
+        Vector chain = new Vector();
+        Type t = conversionInProgress;
+        while (t != null && t != type) {
+            chain.addElement(t);
+            t = t.superClass();
+        }
+        if (t == null) {
+            chain.removeAllElements();
+        }
+        type.setLinkageError(le);
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            ((Type)chain.elementAt(i)).setLinkageError(le);
+        }
+    }
+
+    /**
+     * Transform the methods queued before a conversion failed. The methods
+     * of the classes that got the linkage error have already been replaced
+     * and are skipped. As these methods were built before the failure, a
+     * linkage error raised by transforming one of them would have been
+     * raised first had the methods been transformed as they were built. In
+     * that case it replaces the original error in the classes that got the
+     * original error.
+     *
+     * @param le  the linkage error that made the conversion fail
+     * @return the error to be thrown for the conversion
+     */
+    private LinkageException transformPendingAfterError(LinkageException le) {
+        LinkageException[] failure = new LinkageException[1];
+        Method failed = transformQueued(failure);
+        if (failed == null) {
+            return le;
+        }
+        for (Type t = conversionInProgress; t != null; t = t.superClass()) {
+            if (t.getLinkageError() == le) {
+                t.unsetLinkageError();
+            }
+        }
+        attributeLinkageError(failed.parent(), failure[0]);
+        return failure[0];
+    }
+
     /**
      * Loads a type from it classfile into this VM.
      */
@@ -670,6 +861,7 @@ public class Translator {
     * @param suite The suite root class or driver.
     * @param emitter The SuiteEmitter that should be used to emit the suite.
     * @param isForNameRequest
+    * @param threads The number of threads used to transform method IR.
     */
     public static Result translate(String libs,
                                        String classPath,
@@ -678,9 +870,11 @@ public class Translator {
                                        ComputationTimer timer,
                                        String suite,
                                        SuiteEmitter emitter,
-                                       boolean isForNameRequest) throws LinkageException
+                                       boolean isForNameRequest,
+                                       int threads) throws LinkageException
     {
         Translator translator = new Translator(libs, classPath, flags, match, timer);
+        translator.setThreads(threads);
         return translator.run(suite, libs, emitter, isForNameRequest);
     }
 
@@ -1157,7 +1351,7 @@ public class Translator {
      * @param name The name of the type to search for in internal format. E.g. "Ljava/lang/Object;" or
      * "[I".
      */
-    public Type findOrCreateType(String name) {
+    public synchronized Type findOrCreateType(String name) {
         int dims = countDimensions(name);
 
         // A minimal VM cannot handle arrays with more than 32 dimensions as they use up too
@@ -1325,15 +1519,6 @@ public class Translator {
         }
     }
 
-/* ------------------------------------------------------------------------ *\
- *                  Local variable unique IDs                               *
-\* ------------------------------------------------------------------------ */
-
-    private int nextLocalVariableID;
-    public int nextLocalVariableID() {
-        return nextLocalVariableID++;
-    }
-
 /* ------------------------------------------------------------------------ *\
  *                  Misc utilities                                          *
 \* ------------------------------------------------------------------------ */
@@ -47,13 +47,14 @@ public class Local {
     /**
      * This should only be called from the TemporaryLocal constructor.
      * @param type
+     * @param method The method in which the variable is declared.
      */
-    protected Local(Type type) {
+    protected Local(Type type, Method method) {
         Assert.that(type == type.localType());
         this.type            = type;
-        this.id              = type.vm().nextLocalVariableID();
+        this.id              = method.nextLocalVariableID();
         this.javacIndex      = -1;
-        this.secondWordLocal = createSecondWordLocal();
+        this.secondWordLocal = createSecondWordLocal(method);
     }
 
     /**
@@ -62,8 +63,9 @@ public class Local {
      * @param javacIndex The index assigned to this variable by javac.
      * @param name The source level name of the variable as determined by a LocalVariableTable
      * attribute or null if no such attribute was present.
+     * @param method The method in which the variable is declared.
      */
-    public Local(Type type, int javacIndex, String name) {
+    public Local(Type type, int javacIndex, String name, Method method) {
         Assert.that(!(this instanceof TemporaryLocal));
         Assert.that(type == type.localType());
         Assert.that(javacIndex != -1);
@@ -71,8 +73,8 @@ public class Local {
         this.type            = type;
         this.javacIndex      = javacIndex;
         this.name            = name;
-        this.id              = type.vm().nextLocalVariableID();
-        this.secondWordLocal = createSecondWordLocal();
+        this.id              = method.nextLocalVariableID();
+        this.secondWordLocal = createSecondWordLocal(method);
     }
 
 
@@ -88,13 +90,13 @@ public class Local {
     public void setAutoInitialized()      { autoInitialized = true;       }
     public boolean isAutoInitialized()    { return autoInitialized;       }
 
-    private Local createSecondWordLocal() {
+    private Local createSecondWordLocal(Method method) {
         if (type.isTwoWords()) {
             String name = this.name;
             if (name != null) {
                 name += WORD2_SUFFIX;
             }
-            return new Local(type.secondWordType(), javacIndex+1, name);
+            return new Local(type.secondWordType(), javacIndex+1, name, method);
         }
         return null;
     }
@@ -650,7 +652,8 @@ public class Local {
 
     /**
      * This is a comparer that will sort an array of locals first according to
-     * parameter number (lower parameter number first) and then by frequency of use/defs.
+     * parameter number (lower parameter number first), then by frequency of use/defs
+     * and then by order of creation within the method.
      */
     public static final Comparer OFFSET_ALLOCATION_COMPARER = new Comparer() {
         public int compare(Object o1, Object o2) {
@@ -673,7 +676,7 @@ public class Local {
             }
             int result = l2.useDefsSize() - l1.useDefsSize();
             if (result == 0) {
-                return l1.toString().compareTo(l2.toString());
+                return l1.id - l2.id;
             } else {
                 return result;
             }
@@ -1,6 +1,7 @@
 package com.sun.squawk.translator.ir;
 
 import com.sun.squawk.translator.Type;
+import com.sun.squawk.translator.Method;
 import com.sun.squawk.translator.Assert;
 
 /**
@@ -20,8 +21,8 @@ public final class TemporaryLocal extends Local {
      * Construct a TemporaryLocal variable that will be used to store values of
      * a given type.
      */
-    public TemporaryLocal(Type type, int slot) {
-        super(type);
+    public TemporaryLocal(Type type, int slot, Method method) {
+        super(type, method);
         Assert.that(type == type.localType());
         this.slot = slot;
     }
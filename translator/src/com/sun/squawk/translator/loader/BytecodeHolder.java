@@ -143,6 +143,17 @@ public class BytecodeHolder {
      * Convert the bytecodes into the IR.
      */
     public InstructionList buildIR() throws LinkageException {
+        InstructionList ilist = buildGraph();
+        transformIR(ilist);
+        return ilist;
+    }
+
+    /**
+     * Verify the bytecodes and build the IR graph from them. This loads and
+     * resolves the types the method refers to, so it must be done in the
+     * order the translator converts classes.
+     */
+    public InstructionList buildGraph() throws LinkageException {
 
         // Get the VM for this method
         Translator vm = method.type().vm();
@@ -200,7 +211,15 @@ public class BytecodeHolder {
         instructionCount = bcis.getInstructionCount();
 
         Assert.that(numHandlers == 0 || numHandlers == ilist.getHandlerTable().entries().length);
+        return ilist;
+    }
 
+    /**
+     * Do the liveness analysis and transformation of an IR graph built by
+     * <code>buildGraph</code>. This only uses types that were loaded while
+     * the graph was built and so it can be done on any thread.
+     */
+    public void transformIR(InstructionList ilist) throws LinkageException {
         // Do the liveness analysis and re-allocation of local variables if no
         // Liveness attribute was supplied or verify the Liveness attribute if
         // was supplied. Note that this *must* occur before
@@ -217,8 +236,6 @@ public class BytecodeHolder {
 
         // Transform the IR
         GraphTransformer.transform(method, ilist);
-
-        return ilist;
     }
 
     /**
@@ -391,7 +391,7 @@ public class ExecutionFrame {
 
         TemporaryLocal local;
         if (alloc) {
-            local = new TemporaryLocal(inst.type().localType(), jsp-1);
+            local = new TemporaryLocal(inst.type().localType(), jsp-1, method);
             inst.setTemporaryLocal(local);
         } else {
             local = inst.getTemporaryLocal();
@@ -879,7 +879,7 @@ public class ExecutionFrame {
         if (name == null && javacIp >= 0) {
             name = LocalVariableTable.getEntry(lvt, javacIp, javacIndex).name;
         }
-        Local local = new Local(type, javacIndex, name);
+        Local local = new Local(type, javacIndex, name, method);
         allocatedLocals.addElement(local);
         return local;
     }
@@ -28,6 +28,7 @@ public final class Main {
     private ComputationTimer timer   = null;
     private String suite             = null;
     private boolean forNameRequest   = true;
+    private int threads              = 1;
 
     private SuiteEmitter emitter     = null;
     private OutputStream suiteOut    = null;
@@ -126,6 +127,9 @@ public final class Main {
         out.println("                        (default = \"fqn,src,parent\")");
         out.println("    -comments[:<opt>[,<opt>]*] augment XML with comments where <opt> is:");
         out.println("                             stack: show the stack state before each instruction");
+        out.println("    -threads <n>        use <n> threads for the liveness analysis and");
+        out.println("                        transformation of methods (default = 1). The");
+        out.println("                        output does not depend on the number of threads");
         out.println("    -timer              time the phases of the translator");
         out.println("    -[no]mdbg           [don't] emit the MethodDebug attribute (default is '-mdbg')");
         out.println("    -help               show this help message and exit");
@@ -364,6 +368,17 @@ public final class Main {
                         flags &= ~Translator.LINKAGEERRORS_EXIT;
                     }
                 }
+            } else if (arg.equals("-threads")) {
+                String threadsArg = getOptArg(args, ++i, "-threads");
+                try {
+                    threads = Integer.parseInt(threadsArg);
+                } catch (NumberFormatException nfe) {
+                    threads = 0;
+                }
+                if (threads < 1) {
+                    usage("Bad argument for -threads: "+threadsArg);
+                    return false;
+                }
             } else if (arg.equals("-timer")) {
                 timer = new ComputationTimer();
             } else if (arg.equals("-mdbg")) {
@@ -473,7 +488,7 @@ public final class Main {
         }
 
         try {
-            Translator.Result result = Translator.translate(libs, classPath, flags, match, timer, suite, emitter, forNameRequest);
+            Translator.Result result = Translator.translate(libs, classPath, flags, match, timer, suite, emitter, forNameRequest, threads);
             if (statsOut != null) {
                 result.statistics.print(statsOut);
                 statsOut.close();
@@ -437,6 +437,41 @@ public class ArrayHashtable {
             }
             return hash;
         }
+        // Primitive arrays are equal if their contents are (see keyEquals)
+        // and so must be hashed by their contents. This also keeps the
+        // order of the elements independent of identity hash codes.
+        if (o instanceof int[]) {
+            int hash = 0;
+            int[] a = (int[])o;
+            for (int i = 0 ; i < a.length ; i++) {
+                hash = 31 * hash + a[i];
+            }
+            return hash;
+        }
+        if (o instanceof short[]) {
+            int hash = 0;
+            short[] a = (short[])o;
+            for (int i = 0 ; i < a.length ; i++) {
+                hash = 31 * hash + a[i];
+            }
+            return hash;
+        }
+        if (o instanceof byte[]) {
+            int hash = 0;
+            byte[] a = (byte[])o;
+            for (int i = 0 ; i < a.length ; i++) {
+                hash = 31 * hash + a[i];
+            }
+            return hash;
+        }
+        if (o instanceof char[]) {
+            int hash = 0;
+            char[] a = (char[])o;
+            for (int i = 0 ; i < a.length ; i++) {
+                hash = 31 * hash + a[i];
+            }
+            return hash;
+        }
         return o.hashCode();
     }
 }
@@ -1,6 +1,7 @@
 package com.sun.squawk.vm;
 import java.io.*;
 import javax.microedition.io.*;
+import com.sun.squawk.io.j2se.SelectableConnection;
 import com.sun.squawk.vm.ChannelOpcodes;
 
 public class Channel extends SquawkConstants {
@@ -12,6 +13,16 @@ public class Channel extends SquawkConstants {
     DataOutputStream dos;
     ChannelIO cio;
 
+    /**
+     * Unblocks the Squawk thread waiting on this channel. The ChannelSelector
+     * runs it when a selectable connection becomes ready.
+     */
+    Runnable unblocker = new Runnable() {
+        public void run() {
+            cio.unblock(index);
+        }
+    };
+
     // debugging
     DataOutputStream inLog;
     DataOutputStream outLog;
@@ -60,6 +71,9 @@ public class Channel extends SquawkConstants {
                 Object o2,
                 Object o3) {
         try {
+            if (con instanceof SelectableConnection && !isReady(op, i1, i2)) {
+                return index;
+            }
             switch (op) {
                 case ChannelOpcodes.GETCHANNEL:
                 case ChannelOpcodes.FREECHANNEL: {
@@ -81,7 +95,7 @@ public class Channel extends SquawkConstants {
                     break;
                 }
 
-                case ChannelOpcodes.ACCEPT: { // This is not really going to work because the whole VM will block
+                case ChannelOpcodes.ACCEPT: {
                     StreamConnection sc = ((StreamConnectionNotifier)con).acceptAndOpen();
                     Channel chan = cio.createChannel();
                     chan.con = sc;
@@ -259,6 +273,58 @@ public class Channel extends SquawkConstants {
         }
     }
 
+    /**
+     * Test whether an operation on a selectable connection can be done
+     * without blocking. If not, the channel will be unblocked when the
+     * connection becomes ready and the operation is then tried again.
+     *
+     * @param op the operation
+     * @param i1 the high word of the count for a SKIP
+     * @param i2 the length of a READBUF or low word of the count for a SKIP
+     * @return true if the operation can be done now
+     */
+    private boolean isReady(int op, int i1, int i2) throws IOException {
+        int kind;
+        int count = 0;
+        switch (op) {
+            case ChannelOpcodes.ACCEPT:      kind = SelectableConnection.ACCEPT;                  break;
+            case ChannelOpcodes.READBYTE:    kind = SelectableConnection.READ;  count = 1;        break;
+            case ChannelOpcodes.READSHORT:   kind = SelectableConnection.READ;  count = 2;        break;
+            case ChannelOpcodes.READINT:     kind = SelectableConnection.READ;  count = 4;        break;
+            case ChannelOpcodes.READLONG:    kind = SelectableConnection.READ;  count = 8;        break;
+            case ChannelOpcodes.READBUF:     kind = SelectableConnection.READ;  count = (i2 > 0) ? 1 : 0; break;
+            case ChannelOpcodes.SKIP:        kind = SelectableConnection.READ;  count = (i1 > 0 || i2 != 0) ? 1 : 0; break;
+            case ChannelOpcodes.WRITEBYTE:
+            case ChannelOpcodes.WRITESHORT:
+            case ChannelOpcodes.WRITEINT:
+            case ChannelOpcodes.WRITELONG:
+            case ChannelOpcodes.WRITEBUF:    kind = SelectableConnection.WRITE;                   break;
+            case ChannelOpcodes.FLUSH:
+            case ChannelOpcodes.CLOSEOUTPUT:
+            case ChannelOpcodes.CLOSE:       kind = SelectableConnection.FLUSH;                   break;
+            default:                         return true;
+        }
+        return ((SelectableConnection)con).isReady(kind, count, unblocker);
+    }
+
+    /**
+     * Decode a string in a display list. The characters are packed two to
+     * an int with the first in the high half.
+     *
+     * @param list   the display list
+     * @param pos    the index of the first int of the characters
+     * @param length the number of characters
+     * @return the string
+     */
+    static String getString(int[] list, int pos, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i != length; i++) {
+            int word = list[pos + (i >> 1)];
+            chars[i] = (char)(((i & 1) == 0) ? (word >>> 16) : word);
+        }
+        return new String(chars);
+    }
+
    /*
     * result
     */
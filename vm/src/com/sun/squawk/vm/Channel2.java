@@ -125,6 +125,19 @@ if (TRACE) trace("**flushScreen**");
     }
 
 
+    /*
+     * flushScreen
+     *
+     * Copy just one rectangle of the offscreen image to the screen.
+     */
+    void flushScreen(int x, int y, int w, int h) {
+        if (offScreen && gg != null && imgBuf != null) {
+            gg.drawImage(imgBuf, x, y, x + w, y + h, x, y, x + w, y + h, p);
+if (TRACE) trace("**flushScreen** "+x+":"+y+":"+w+":"+h);
+        }
+    }
+
+
    /*
     * execute
     */
@@ -160,8 +173,16 @@ if (TRACE) trace("**flushScreen**");
                 break;
             }
             case ChannelOpcodes.FLUSHSCREEN: {                          // in awtcore.impl.squawk.ToolkitImpl
+                int x = i1;
+                int y = i2;
+                int w = i3;
+                int h = i4;
                 if (TRACE) trace("setOnScreen");
-                flushScreen();
+                if (w == 0 && h == 0) {
+                    flushScreen();
+                } else {
+                    flushScreen(x, y, w, h);
+                }
                 break;
             }
             case ChannelOpcodes.CREATEIMAGE: {                          // in awtcore.impl.squawk.ImageImpl
@@ -260,8 +281,9 @@ if (TRACE) trace("**flushScreen**");
                 break;
             }
             case ChannelOpcodes.CREATEFONTMETRICS: {                    // in awtcore.impl.squawk.FontMetricsImpl
-                int size   = i1;
-                int isBold = i2;
+                int    size   =         i2;
+                int    isBold =         i3;
+                byte[] reply  = (byte[])o3;
                 int sizeBold = size << 16 + isBold;
                 FontMetrics metrics = (FontMetrics)fonts.get(sizeBold);
                 if (metrics == null) {
@@ -269,7 +291,7 @@ if (TRACE) trace("**flushScreen**");
                     fonts.put(sizeBold, metrics);
                 }
                 if (TRACE) trace("createFontMetrics "+sizeBold+" = "+(metrics == null ? null : metrics.getFont()));
-                result = sizeBold;
+                result = putFontMetrics(reply, sizeBold, metrics);
                 break;
             }
             case ChannelOpcodes.FONTSTRINGWIDTH: {                      // in awtcore.impl.squawk.FontMetricsImpl
@@ -417,6 +439,13 @@ if (TRACE) trace("**flushScreen**");
                 p.repaint();
                 break;
             }
+            case ChannelOpcodes.DRAWLIST: {                             // awtcore.impl.squawk.GraphicsImpl
+                int[] list = (int[])o1;
+                int   size =        i1;
+                if (TRACE) trace("drawList0 "+size);
+                drawList(list, size);
+                break;
+            }
 
             default: throw new RuntimeException("Illegal channel operation "+op);
         }
@@ -425,6 +454,99 @@ if (TRACE) trace("**flushScreen**");
     }
 
 
+    /*
+     * putFontMetrics
+     *
+     * Fill in the reply to CREATEFONTMETRICS. It is the font index followed by
+     * the height, ascent and descent and the widths of the characters 0 to
+     * 255, each as a big-endian short. The return value is its length.
+     */
+    int putFontMetrics(byte[] reply, int sizeBold, FontMetrics metrics) {
+        int[] widths = metrics.getWidths();
+        int pos = 0;
+        reply[pos++] = (byte)(sizeBold >> 24);
+        reply[pos++] = (byte)(sizeBold >> 16);
+        reply[pos++] = (byte)(sizeBold >> 8);
+        reply[pos++] = (byte)sizeBold;
+        pos = putShort(reply, pos, metrics.getHeight());
+        pos = putShort(reply, pos, metrics.getAscent());
+        pos = putShort(reply, pos, metrics.getDescent());
+        for (int i = 0; i != 256; i++) {
+            pos = putShort(reply, pos, widths[i]);
+        }
+        return pos;
+    }
+
+    private int putShort(byte[] buf, int pos, int value) {
+        buf[pos++] = (byte)(value >> 8);
+        buf[pos++] = (byte)value;
+        return pos;
+    }
+
+
+    /*
+     * drawList
+     *
+     * Replay a display list built by awtcore.impl.squawk.GraphicsImpl. Each
+     * entry is the opcode of a graphics operation followed by its operands.
+     */
+    void drawList(int[] list, int size) {
+        int i = 0;
+        while (i < size) {
+            int op = list[i++];
+            switch (op) {
+                case ChannelOpcodes.SETFONT:
+                case ChannelOpcodes.SETCOLOR: {
+                    execute(op, list[i], 0, 0, 0, 0, 0, null, null, null);
+                    i += 1;
+                    break;
+                }
+                case ChannelOpcodes.DRAWIMAGE: {
+                    execute(op, list[i], list[i+1], list[i+2], 0, 0, 0, null, null, null);
+                    i += 3;
+                    break;
+                }
+                case ChannelOpcodes.SETCLIP:
+                case ChannelOpcodes.DRAWLINE:
+                case ChannelOpcodes.DRAWOVAL:
+                case ChannelOpcodes.DRAWRECT:
+                case ChannelOpcodes.FILLRECT: {
+                    execute(op, list[i], list[i+1], list[i+2], list[i+3], 0, 0, null, null, null);
+                    i += 4;
+                    break;
+                }
+                case ChannelOpcodes.DRAWROUNDRECT:
+                case ChannelOpcodes.FILLROUNDRECT:
+                case ChannelOpcodes.FILLARC: {
+                    execute(op, list[i], list[i+1], list[i+2], list[i+3], list[i+4], list[i+5], null, null, null);
+                    i += 6;
+                    break;
+                }
+                case ChannelOpcodes.DRAWSTRING: {
+                    int x      = list[i];
+                    int y      = list[i+1];
+                    int length = list[i+2];
+                    String s   = getString(list, i+3, length);
+                    execute(op, x, y, 0, 0, 0, 0, s, null, null);
+                    i += 3 + (length + 1) / 2;
+                    break;
+                }
+                case ChannelOpcodes.FILLPOLYGON: {
+                    int count = list[i++];
+                    int[] x = new int[count];
+                    int[] y = new int[count];
+                    System.arraycopy(list, i, x, 0, count);
+                    System.arraycopy(list, i + count, y, 0, count);
+                    execute(op, count, 0, 0, 0, 0, 0, x, y, null);
+                    i += count * 2;
+                    break;
+                }
+                default: throw new RuntimeException("Illegal display list operation "+op);
+            }
+        }
+    }
+
+
     /*
      * focusGained
      */
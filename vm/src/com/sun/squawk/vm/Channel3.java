@@ -400,6 +400,11 @@ public class Channel3 extends Channel {
                 put(i3, fm);
                 break;
             }
+            case ChannelOpcodes.DRAWLIST: {
+                trace("ChannelOpcodes.DRAWLIST "+id);
+                drawList((int[])o1, id);
+                break;
+            }
             case ChannelOpcodes.TOOLKIT_CREATEIMAGE: {
                 trace("["+id+"] ChannelOpcodes.TOOLKIT_CREATEIMAGE "+o1+" "+i2+" "+i2);
                 Image im = Toolkit.getDefaultToolkit().createImage((byte[])o1, i2, i3);
@@ -413,6 +418,67 @@ public class Channel3 extends Channel {
         return 0;
     }
 
+    /*
+     * drawList
+     *
+     * Replay a display list built by java.awt.Graphics. Each entry is the
+     * opcode of a graphics operation, the graphics id and its operands.
+     */
+    void drawList(int[] list, int size) {
+        int i = 0;
+        while (i < size) {
+            int op  = list[i++];
+            int gid = list[i++];
+            switch (op) {
+                case ChannelOpcodes.GRAPHICS_SETCOLOR: {
+                    execute(op, gid, list[i], 0, 0, 0, 0, null, null, null);
+                    i += 1;
+                    break;
+                }
+                case ChannelOpcodes.GRAPHICS_FILLARC2:
+                case ChannelOpcodes.GRAPHICS_TRANSLATE: {
+                    execute(op, gid, list[i], list[i+1], 0, 0, 0, null, null, null);
+                    i += 2;
+                    break;
+                }
+                case ChannelOpcodes.GRAPHICS_DRAWIMAGE: {
+                    execute(op, gid, list[i], list[i+1], list[i+2], 0, 0, null, null, null);
+                    i += 3;
+                    break;
+                }
+                case ChannelOpcodes.GRAPHICS_FILLARC1:
+                case ChannelOpcodes.GRAPHICS_DRAWLINE:
+                case ChannelOpcodes.GRAPHICS_DRAWRECT:
+                case ChannelOpcodes.GRAPHICS_FILLRECT:
+                case ChannelOpcodes.GRAPHICS_SETCLIP: {
+                    execute(op, gid, list[i], list[i+1], list[i+2], list[i+3], 0, null, null, null);
+                    i += 4;
+                    break;
+                }
+                case ChannelOpcodes.GRAPHICS_DRAWSTRING: {
+                    int x      = list[i];
+                    int y      = list[i+1];
+                    int length = list[i+2];
+                    String s   = getString(list, i+3, length);
+                    execute(op, gid, x, y, 0, 0, 0, s, null, null);
+                    i += 3 + (length + 1) / 2;
+                    break;
+                }
+                case ChannelOpcodes.GRAPHICS_FILLPOLY: {
+                    int count = list[i++];
+                    int[] x = new int[count];
+                    int[] y = new int[count];
+                    System.arraycopy(list, i, x, 0, count);
+                    System.arraycopy(list, i + count, y, 0, count);
+                    execute(op, gid, count, 0, 0, 0, 0, x, y, null);
+                    i += count * 2;
+                    break;
+                }
+                default: throw new RuntimeException("Illegal display list operation "+op);
+            }
+        }
+    }
+
     String asString(int[] x, int lth) {
          String r = "[";
          for (int i = 0 ; i < lth ; i++) {
@@ -528,7 +594,13 @@ c3.trace("=======================================================  C3Panel "+id+
         c3.addEvent(ChannelOpcodes.AWTEVENT_paint, id, gid, 0);
 */
         if (image != null) {
-            g.drawImage(image, 0, 0, this);
+            Rectangle r = g.getClipBounds();
+            if (r == null) {
+                g.drawImage(image, 0, 0, this);
+            } else {
+                // Only copy the part being repainted (see PANEL_REPAINT2)
+                g.drawImage(image, r.x, r.y, r.x + r.width, r.y + r.height, r.x, r.y, r.x + r.width, r.y + r.height, this);
+            }
         }
     }
 
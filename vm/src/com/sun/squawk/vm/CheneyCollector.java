@@ -57,6 +57,27 @@
             return true;
         }
 
+        /**
+         * Reserve the word that copyObject will add to an object that is
+         * about to be hashed. The end of the current partition is lowered by
+         * a word so that the live objects and their hash code words always
+         * fit in the target partition.
+         * @param oop the object about to be hashed
+         * @return false if there is no room for the word, in which case the
+         * object must not be hashed in its header
+         */
+/*MAC*/ boolean reserveHashCodeWord(int $oop) {
+            int end = getCurrentObjectPartitionEnd();
+            if (Object_isArray($oop) || Object_isHashed($oop)) {
+                return true;
+            }
+            if (!inCurrentObjectPartition($oop) || end - getCurrentObjectPartitionFree() < bytesPerWord()) {
+                return false;
+            }
+            setCurrentObjectPartitionEnd(end - bytesPerWord());
+            return true;
+        }
+
         /**
          * canCollectRom
          */
@@ -177,6 +198,8 @@
                     int chunkSize  = headerSize + Object_getObjectLength(oop);
                     int target     = targetPartitionFreePtr;
                     int targetOop  = target + headerSize;
+                    boolean addHashCodeWord = Object_needsHashCodeWord(oop);
+                    int copySize   = addHashCodeWord ? chunkSize + bytesPerWord() : chunkSize;
 
                     assume(roundup4(chunkSize) == chunkSize);
 
@@ -191,8 +214,16 @@
                         trace("\"");
                         traceln("");
                     }
+                    /*
+                     * The hash code words were reserved by reserveHashCodeWord
+                     * so the copy always fits in the target partition.
+                     */
+                    assume(target + copySize <= targetPartitionEnd);
                     copyBytes(chunk, target, chunkSize);
-                    targetPartitionFreePtr += chunkSize;
+                    targetPartitionFreePtr += copySize;
+                    if (addHashCodeWord) {
+                        Object_addHashCodeWord(oop, targetOop);
+                    }
                     Object_forwardToObject(oop, targetOop);
                     if (getTraceGCVerbose()) {
                         trace("copyObject ");
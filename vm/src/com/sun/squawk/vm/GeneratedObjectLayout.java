@@ -87,50 +87,51 @@
         java_lang_Native_getEvent = 21,
         java_lang_Native_getFinalizer = 22,
         java_lang_Native_getHeapHighWaterMark = 23,
-        java_lang_Native_getInstructionCount = 24,
-        java_lang_Native_getMethodDebugTable = 25,
-        java_lang_Native_getNewExecutionContext = 26,
-        java_lang_Native_getPersistentMemorySize = 27,
-        java_lang_Native_getPersistentMemoryTable = 28,
-        java_lang_Native_getStackFrameDepth = 29,
-        java_lang_Native_getSuiteList = 30,
-        java_lang_Native_getTime = 31,
-        java_lang_Native_getargc = 32,
-        java_lang_Native_getargvchar = 33,
-        java_lang_Native_inRam = 34,
-        java_lang_Native_makeEightBitString = 35,
-        java_lang_Native_makePersistent = 36,
-        java_lang_Native_makePersistentCopy = 37,
-        java_lang_Native_makeSixteenBitString = 38,
-        java_lang_Native_makeStringOfSymbols = 39,
-        java_lang_Native_newPersistentByteArray = 40,
-        java_lang_Native_primAstoreOop = 41,
-        java_lang_Native_primGetStatic = 42,
-        java_lang_Native_primGetStaticLong = 43,
-        java_lang_Native_primNewArray = 44,
-        java_lang_Native_primNewObject = 45,
-        java_lang_Native_primPutStatic = 46,
-        java_lang_Native_primPutStaticLong = 47,
-        java_lang_Native_primPutStaticObj = 48,
-        java_lang_Native_print = 49,
-        java_lang_Native_putch = 50,
-        java_lang_Native_puterrch = 51,
-        java_lang_Native_result = 52,
-        java_lang_Native_setAssociationHashtable = 53,
-        java_lang_Native_setAssociationQueue = 54,
-        java_lang_Native_setClassState = 55,
-        java_lang_Native_setExecutionContext = 56,
-        java_lang_Native_setFastLockStack = 57,
-        java_lang_Native_setMethodDebugTable = 58,
-        java_lang_Native_setMinimumHeapMode = 59,
-        java_lang_Native_setOutOfMemoryError = 60,
-        java_lang_Native_setPersistentMemoryTable = 61,
-        java_lang_Native_setSuiteList = 62,
-        java_lang_Native_stringcopy0 = 63,
-        java_lang_Native_totalMemory = 64,
-        java_lang_Native_traceOop = 65,
-        java_lang_Native_waitForEvent = 66,
-        java_lang_Native_wasPersistentMemoryGCInterrupted = 67;
+        java_lang_Native_getIdentityHashCode = 24,
+        java_lang_Native_getInstructionCount = 25,
+        java_lang_Native_getMethodDebugTable = 26,
+        java_lang_Native_getNewExecutionContext = 27,
+        java_lang_Native_getPersistentMemorySize = 28,
+        java_lang_Native_getPersistentMemoryTable = 29,
+        java_lang_Native_getStackFrameDepth = 30,
+        java_lang_Native_getSuiteList = 31,
+        java_lang_Native_getTime = 32,
+        java_lang_Native_getargc = 33,
+        java_lang_Native_getargvchar = 34,
+        java_lang_Native_inRam = 35,
+        java_lang_Native_makeEightBitString = 36,
+        java_lang_Native_makePersistent = 37,
+        java_lang_Native_makePersistentCopy = 38,
+        java_lang_Native_makeSixteenBitString = 39,
+        java_lang_Native_makeStringOfSymbols = 40,
+        java_lang_Native_newPersistentByteArray = 41,
+        java_lang_Native_primAstoreOop = 42,
+        java_lang_Native_primGetStatic = 43,
+        java_lang_Native_primGetStaticLong = 44,
+        java_lang_Native_primNewArray = 45,
+        java_lang_Native_primNewObject = 46,
+        java_lang_Native_primPutStatic = 47,
+        java_lang_Native_primPutStaticLong = 48,
+        java_lang_Native_primPutStaticObj = 49,
+        java_lang_Native_print = 50,
+        java_lang_Native_putch = 51,
+        java_lang_Native_puterrch = 52,
+        java_lang_Native_result = 53,
+        java_lang_Native_setAssociationHashtable = 54,
+        java_lang_Native_setAssociationQueue = 55,
+        java_lang_Native_setClassState = 56,
+        java_lang_Native_setExecutionContext = 57,
+        java_lang_Native_setFastLockStack = 58,
+        java_lang_Native_setMethodDebugTable = 59,
+        java_lang_Native_setMinimumHeapMode = 60,
+        java_lang_Native_setOutOfMemoryError = 61,
+        java_lang_Native_setPersistentMemoryTable = 62,
+        java_lang_Native_setSuiteList = 63,
+        java_lang_Native_stringcopy0 = 64,
+        java_lang_Native_totalMemory = 65,
+        java_lang_Native_traceOop = 66,
+        java_lang_Native_waitForEvent = 67,
+        java_lang_Native_wasPersistentMemoryGCInterrupted = 68;
 
 
         /*
@@ -234,50 +235,51 @@
         if (classAndMethodName.equals("java.lang.Native.getEvent")) return 21;
         if (classAndMethodName.equals("java.lang.Native.getFinalizer")) return 22;
         if (classAndMethodName.equals("java.lang.Native.getHeapHighWaterMark")) return 23;
-        if (classAndMethodName.equals("java.lang.Native.getInstructionCount")) return 24;
-        if (classAndMethodName.equals("java.lang.Native.getMethodDebugTable")) return 25;
-        if (classAndMethodName.equals("java.lang.Native.getNewExecutionContext")) return 26;
-        if (classAndMethodName.equals("java.lang.Native.getPersistentMemorySize")) return 27;
-        if (classAndMethodName.equals("java.lang.Native.getPersistentMemoryTable")) return 28;
-        if (classAndMethodName.equals("java.lang.Native.getStackFrameDepth")) return 29;
-        if (classAndMethodName.equals("java.lang.Native.getSuiteList")) return 30;
-        if (classAndMethodName.equals("java.lang.Native.getTime")) return 31;
-        if (classAndMethodName.equals("java.lang.Native.getargc")) return 32;
-        if (classAndMethodName.equals("java.lang.Native.getargvchar")) return 33;
-        if (classAndMethodName.equals("java.lang.Native.inRam")) return 34;
-        if (classAndMethodName.equals("java.lang.Native.makeEightBitString")) return 35;
-        if (classAndMethodName.equals("java.lang.Native.makePersistent")) return 36;
-        if (classAndMethodName.equals("java.lang.Native.makePersistentCopy")) return 37;
-        if (classAndMethodName.equals("java.lang.Native.makeSixteenBitString")) return 38;
-        if (classAndMethodName.equals("java.lang.Native.makeStringOfSymbols")) return 39;
-        if (classAndMethodName.equals("java.lang.Native.newPersistentByteArray")) return 40;
-        if (classAndMethodName.equals("java.lang.Native.primAstoreOop")) return 41;
-        if (classAndMethodName.equals("java.lang.Native.primGetStatic")) return 42;
-        if (classAndMethodName.equals("java.lang.Native.primGetStaticLong")) return 43;
-        if (classAndMethodName.equals("java.lang.Native.primNewArray")) return 44;
-        if (classAndMethodName.equals("java.lang.Native.primNewObject")) return 45;
-        if (classAndMethodName.equals("java.lang.Native.primPutStatic")) return 46;
-        if (classAndMethodName.equals("java.lang.Native.primPutStaticLong")) return 47;
-        if (classAndMethodName.equals("java.lang.Native.primPutStaticObj")) return 48;
-        if (classAndMethodName.equals("java.lang.Native.print")) return 49;
-        if (classAndMethodName.equals("java.lang.Native.putch")) return 50;
-        if (classAndMethodName.equals("java.lang.Native.puterrch")) return 51;
-        if (classAndMethodName.equals("java.lang.Native.result")) return 52;
-        if (classAndMethodName.equals("java.lang.Native.setAssociationHashtable")) return 53;
-        if (classAndMethodName.equals("java.lang.Native.setAssociationQueue")) return 54;
-        if (classAndMethodName.equals("java.lang.Native.setClassState")) return 55;
-        if (classAndMethodName.equals("java.lang.Native.setExecutionContext")) return 56;
-        if (classAndMethodName.equals("java.lang.Native.setFastLockStack")) return 57;
-        if (classAndMethodName.equals("java.lang.Native.setMethodDebugTable")) return 58;
-        if (classAndMethodName.equals("java.lang.Native.setMinimumHeapMode")) return 59;
-        if (classAndMethodName.equals("java.lang.Native.setOutOfMemoryError")) return 60;
-        if (classAndMethodName.equals("java.lang.Native.setPersistentMemoryTable")) return 61;
-        if (classAndMethodName.equals("java.lang.Native.setSuiteList")) return 62;
-        if (classAndMethodName.equals("java.lang.Native.stringcopy0")) return 63;
-        if (classAndMethodName.equals("java.lang.Native.totalMemory")) return 64;
-        if (classAndMethodName.equals("java.lang.Native.traceOop")) return 65;
-        if (classAndMethodName.equals("java.lang.Native.waitForEvent")) return 66;
-        if (classAndMethodName.equals("java.lang.Native.wasPersistentMemoryGCInterrupted")) return 67;
+        if (classAndMethodName.equals("java.lang.Native.getIdentityHashCode")) return 24;
+        if (classAndMethodName.equals("java.lang.Native.getInstructionCount")) return 25;
+        if (classAndMethodName.equals("java.lang.Native.getMethodDebugTable")) return 26;
+        if (classAndMethodName.equals("java.lang.Native.getNewExecutionContext")) return 27;
+        if (classAndMethodName.equals("java.lang.Native.getPersistentMemorySize")) return 28;
+        if (classAndMethodName.equals("java.lang.Native.getPersistentMemoryTable")) return 29;
+        if (classAndMethodName.equals("java.lang.Native.getStackFrameDepth")) return 30;
+        if (classAndMethodName.equals("java.lang.Native.getSuiteList")) return 31;
+        if (classAndMethodName.equals("java.lang.Native.getTime")) return 32;
+        if (classAndMethodName.equals("java.lang.Native.getargc")) return 33;
+        if (classAndMethodName.equals("java.lang.Native.getargvchar")) return 34;
+        if (classAndMethodName.equals("java.lang.Native.inRam")) return 35;
+        if (classAndMethodName.equals("java.lang.Native.makeEightBitString")) return 36;
+        if (classAndMethodName.equals("java.lang.Native.makePersistent")) return 37;
+        if (classAndMethodName.equals("java.lang.Native.makePersistentCopy")) return 38;
+        if (classAndMethodName.equals("java.lang.Native.makeSixteenBitString")) return 39;
+        if (classAndMethodName.equals("java.lang.Native.makeStringOfSymbols")) return 40;
+        if (classAndMethodName.equals("java.lang.Native.newPersistentByteArray")) return 41;
+        if (classAndMethodName.equals("java.lang.Native.primAstoreOop")) return 42;
+        if (classAndMethodName.equals("java.lang.Native.primGetStatic")) return 43;
+        if (classAndMethodName.equals("java.lang.Native.primGetStaticLong")) return 44;
+        if (classAndMethodName.equals("java.lang.Native.primNewArray")) return 45;
+        if (classAndMethodName.equals("java.lang.Native.primNewObject")) return 46;
+        if (classAndMethodName.equals("java.lang.Native.primPutStatic")) return 47;
+        if (classAndMethodName.equals("java.lang.Native.primPutStaticLong")) return 48;
+        if (classAndMethodName.equals("java.lang.Native.primPutStaticObj")) return 49;
+        if (classAndMethodName.equals("java.lang.Native.print")) return 50;
+        if (classAndMethodName.equals("java.lang.Native.putch")) return 51;
+        if (classAndMethodName.equals("java.lang.Native.puterrch")) return 52;
+        if (classAndMethodName.equals("java.lang.Native.result")) return 53;
+        if (classAndMethodName.equals("java.lang.Native.setAssociationHashtable")) return 54;
+        if (classAndMethodName.equals("java.lang.Native.setAssociationQueue")) return 55;
+        if (classAndMethodName.equals("java.lang.Native.setClassState")) return 56;
+        if (classAndMethodName.equals("java.lang.Native.setExecutionContext")) return 57;
+        if (classAndMethodName.equals("java.lang.Native.setFastLockStack")) return 58;
+        if (classAndMethodName.equals("java.lang.Native.setMethodDebugTable")) return 59;
+        if (classAndMethodName.equals("java.lang.Native.setMinimumHeapMode")) return 60;
+        if (classAndMethodName.equals("java.lang.Native.setOutOfMemoryError")) return 61;
+        if (classAndMethodName.equals("java.lang.Native.setPersistentMemoryTable")) return 62;
+        if (classAndMethodName.equals("java.lang.Native.setSuiteList")) return 63;
+        if (classAndMethodName.equals("java.lang.Native.stringcopy0")) return 64;
+        if (classAndMethodName.equals("java.lang.Native.totalMemory")) return 65;
+        if (classAndMethodName.equals("java.lang.Native.traceOop")) return 66;
+        if (classAndMethodName.equals("java.lang.Native.waitForEvent")) return 67;
+        if (classAndMethodName.equals("java.lang.Native.wasPersistentMemoryGCInterrupted")) return 68;
         if (classAndMethodName.equals("java.lang.String.at")) return 1;
         if (classAndMethodName.equals("java.lang.String.isEightBit")) return 2;
         if (classAndMethodName.equals("java.lang.String.length")) return 3;
@@ -30,9 +30,15 @@
  * The object header for a non-array object is:
  *
  *           <------------> <------------------- 24 -------------------->
- *          +--------------+---------------------------------------------+
- *          |  (unused)    |   Class pointer (least significant bit = 0) |
- *          +--------------+---------------------------------------------+
+ *          +-+-+----------+---------------------------------------------+
+ *          |H|M| (unused) |   Class pointer (least significant bit = 0) |
+ *          +-+-+----------+---------------------------------------------+
+ *
+ * The H bit is set once the identity hash code of the object has been taken.
+ * Until the object is moved its hash code is derived from its address. When
+ * a collector moves a hashed object it appends a word holding the hash code
+ * to the copy and sets the M bit. This extra word is included in the length
+ * of the object but is not one of its fields.
  *
  * As noted in the diagrams, the least significant bit in a class pointer is
  * always 0 as objects are always aligned on a 4 byte boundary. This serves
@@ -59,6 +65,13 @@
         HT_FREE_BLOCK                       = 0x3, /* 11 */
         HT_LARGE_FREE_BLOCK_BIT             = 0x4,
 
+        /*
+         * The hash bits are the top two bits of the class word, which are
+         * only free if at least two bits are used for compact array lengths.
+         */
+        HT_HASHED                           = 0x80000000, /* Only for non-array objects */
+        HT_HASHED_AND_MOVED                 = 0x40000000, /* Only for non-array objects */
+
         HT_ARRAY_LENGTH_SHIFT               = 2,
         HT_FREE_BLOCK_NEXT_SHIFT            = 3,
 
@@ -417,7 +430,11 @@
                 int count = Object_getArrayElementCount($oop) * Object_getArrayElementLength(klass);
                 return roundup4(count); /* Round up to a full word boundry */
             } else {
-                return Class_getInstanceFieldsLength(klass) * 4;
+                int length = Class_getInstanceFieldsLength(klass) * 4;
+                if ((CLASS_WORD($oop) & HT_HASHED_AND_MOVED) != 0) {
+                    length += 4; /* The hash code word */
+                }
+                return length;
             }
         }
 
@@ -435,8 +452,88 @@
             $length *= itemLength;
 
             copyBytes($src+$srcPos, $dst+$dstPos, $length);
+
+            /* Pointers copied into an array in RAM must go through the write barrier */
+            if (Class_getElementType(Object_getClass($dst)) > CNO.LAST_PRIMITIVE_TYPE && inRam($dst)) {
+                int offset;
+                for (offset = 0 ; offset < $length ; offset += bytesPerWord()) {
+                    WriteBarrier_mark($dst+$dstPos+offset, 0, 0);
+                }
+            }
+        }
+
+
+/*---------------------------------------------------------------------------*\
+ *                           Identity hash codes                             *
+\*---------------------------------------------------------------------------*/
+
+        /**
+         * Get the hash code of an object that has not been moved since it
+         * was hashed.
+         * @param oop
+         * @return the hash code
+         */
+/*MAC*/ private int Object_addressHashCode(int $oop) {
+            return srl($oop - getImageOffset(), 2);
+        }
+
+        /**
+         * Test to see if a collector must add a hash code word to an object
+         * when it moves it.
+         * @param oop
+         * @return true if the object is hashed and has not been moved
+         */
+/*MAC*/ boolean Object_needsHashCodeWord(int $oop) {
+            return (CLASS_WORD($oop) & (HT_HASHED | HT_HASHED_AND_MOVED)) == HT_HASHED && !Object_isArray($oop);
+        }
+
+        /**
+         * Test to see if an object has had its hash code taken.
+         * @param oop
+         * @return true if the object is hashed
+         */
+/*MAC*/ boolean Object_isHashed(int $oop) {
+            return (CLASS_WORD($oop) & (HT_HASHED | HT_HASHED_AND_MOVED)) != 0 && !Object_isArray($oop);
+        }
+
+        /**
+         * Add the hash code word to a hashed object that has just been copied.
+         * The space for the word must have been allocated after the copy.
+         * @param oop the address of the object before it was moved
+         * @param copy the address of the copy
+         */
+/*MAC*/ void Object_addHashCodeWord(int $oop, int $copy) {
+            int fields = Class_getInstanceFieldsLength(Object_getClass($copy));
+            assume(compactArrayBitCount() >= 2);
+            assume(Object_needsHashCodeWord($copy));
+            setPersistentWord($copy, fields, Object_addressHashCode($oop));
+            setPersistentWord($copy, OBJ_class, CLASS_WORD($copy) | HT_HASHED_AND_MOVED);
         }
 
+        /**
+         * Get the identity hash code of an object, hashing it if necessary.
+         * Only non-array objects have room for a hash code in their header and
+         * only those in RAM can be hashed here.
+         * @param oop
+         * @return the hash code or 0 if the object cannot be hashed in its header
+         */
+        int Object_getIdentityHashCode(int oop) {
+            int word = CLASS_WORD(oop);
+            assume(compactArrayBitCount() >= 2);
+            if (Object_isArray(oop)) {
+                return 0;
+            }
+            if ((word & HT_HASHED_AND_MOVED) != 0) {
+                return getWord(oop, Class_getInstanceFieldsLength(Object_getClass(oop)));
+            }
+            if ((word & HT_HASHED) == 0) {
+                if (!inRam(oop)) {
+                    return 0;
+                }
+                setWord(oop, OBJ_class, word | HT_HASHED);
+            }
+            return Object_addressHashCode(oop);
+        }
 
 /*---------------------------------------------------------------------------*\
  *                             Pointer manipulation                          *
@@ -50,13 +50,17 @@
 
 /*IFJ*/ int histogram[] = new int[256];
 //IFC// int histogram[256];
+/*IFJ*/ int pairHistogram[];
+//IFC// int pairHistogram[256*256];
 /*IFJ*/ int extension[] = new int[java_lang_VMExtension_MAX_OFFSET+1];
 //IFC// int extension[java_lang_VMExtension_MAX_OFFSET+1];
+    int lastOpcode = 0;
 
 
     void printExtensionCalls() {
-
         int slot;
+        int i;
+        long total = getInstructionCount();
         for (slot = 0; slot <= java_lang_VMExtension_MAX_OFFSET; ++slot) {
             int count = extension[slot];
             if (count != 0) {
@@ -68,21 +72,53 @@
             }
         }
 
-/*
+       /*
+        * Print the opcodes and the pairs of consecutively executed opcodes
+        * that account for at least 1% of the instructions executed. The
+        * pairs are the candidates for new superinstructions.
+        */
+        if (total == 0) {
+            return;
+        }
         for (i = 0 ; i < 256 ; i++) {
-            int perc = (int)((histogram[i] * 100) / getInstructionCount());
-            printIntPad(perc, 3);
-            printMsg("% histogram[");
-            printIntPad(i, 3);
-            printMsg("] = ");
-            printInt(histogram[i]);
-            println();
+            int perc = (int)(((long)histogram[i] * 100) / total);
+            if (perc > 0) {
+                printIntPad(perc, 3);
+                printMsg("% histogram[");
+                printIntPad(i, 3);
+                printMsg("] = ");
+                printInt(histogram[i]);
+                println();
+            }
+        }
+        for (i = 0 ; i < 256*256 ; i++) {
+            int perc = (int)(((long)pairHistogram[i] * 100) / total);
+            if (perc > 0) {
+                printIntPad(perc, 3);
+                printMsg("% pairHistogram[");
+                printIntPad(i >> 8, 3);
+                printMsg(",");
+                printIntPad(i & 0xFF, 3);
+                printMsg("] = ");
+                printInt(pairHistogram[i]);
+                println();
+            }
         }
-*/
     }
 
+   /*
+    * The profile is only kept when -Xstats is given. The Java VM has no
+    * STATS switch, so without the check every instruction would pay for it.
+    */
     void incHistogram(int b) {
-//        histogram[b]++;
+        if (statsFlag) {
+/*IFJ*/     if (pairHistogram == null) {
+/*IFJ*/         pairHistogram = new int[256*256];
+/*IFJ*/     }
+            histogram[b]++;
+            pairHistogram[(lastOpcode << 8) | b]++;
+            lastOpcode = b;
+        }
     }
 
 
@@ -92,6 +128,62 @@
 //IFC//#endif
 
 
+/*---------------------------------------------------------------------------*\
+ *                               Inline cache                                *
+\*---------------------------------------------------------------------------*/
+
+   /*
+    * The inline cache remembers the method (and its defining class) that an
+    * INVOKEVIRTUAL or INVOKEINTERFACE call site resolved to for a given
+    * receiver class. An entry is keyed on both the call site (the ip after
+    * the invoke's operand) and the receiver class so that a polymorphic site
+    * can occupy several entries. Classes and methods in RAM are only at a
+    * fixed address between collections so the cache is flushed after every
+    * collection.
+    */
+
+/*IFJ*/ int icSite[]        = new int[IC_TABLE_SIZE];
+//IFC// int icSite[IC_TABLE_SIZE];
+/*IFJ*/ int icClass[]       = new int[IC_TABLE_SIZE];
+//IFC// int icClass[IC_TABLE_SIZE];
+/*IFJ*/ int icMethod[]      = new int[IC_TABLE_SIZE];
+//IFC// int icMethod[IC_TABLE_SIZE];
+/*IFJ*/ int icMethodClass[] = new int[IC_TABLE_SIZE];
+//IFC// int icMethodClass[IC_TABLE_SIZE];
+
+/*MAC*/ int getInlineCacheIndex(int $site, int $cls) {
+            return ($site ^ ($cls >> 3)) & (IC_TABLE_SIZE - 1);
+        }
+
+/*MAC*/ void setInlineCache(int $index, int $site, int $cls, int $mp, int $mcls) {
+            icSite[$index]        = $site;
+            icClass[$index]       = $cls;
+            icMethod[$index]      = $mp;
+            icMethodClass[$index] = $mcls;
+        }
+
+   /*
+    * Get the class that defined a method found in the vtable of a given
+    * class. This is normally the class itself. If the loader flattened the
+    * vtable, then inherited entries are mapped back to the class that
+    * defined them using the class number in the method's header.
+    */
+/*MAC*/ int getDefiningClass(int $mp, int $cls) {
+            int type = (getUnsignedByte($mp, MTH_suiteNumber) << 8) | getUnsignedByte($mp, MTH_classNumber);
+            if (type == Class_getType($cls)) {
+                return $cls;
+            }
+            return getClassFromCNO(type);
+        }
+
+    void flushInlineCache() {
+        int i;
+        for (i = 0 ; i < IC_TABLE_SIZE ; i++) {
+            icSite[i] = 0;
+        }
+    }
+
+
 /*---------------------------------------------------------------------------*\
  *                               getChunkFromFrame                           *
 \*---------------------------------------------------------------------------*/
@@ -139,6 +231,28 @@
 //IFC//#define pop()     (sp-=4, getWord((sp+4), 0))
 //IFC//#endif
 
+/*-----------------------------------------*\
+ *               peek / setTop             *
+\*-----------------------------------------*/
+
+   /*
+    * An instruction that pops one or more words and pushes a one word result
+    * reads the last operand with peek() and overwrites it with setTop()
+    * instead of doing a pop() and push(). This saves two updates of sp and
+    * the stack limit check of push() for most arithmetic instructions, array
+    * loads and field loads. The top of stack is not kept in a local variable
+    * across dispatches, as it would then have to be spilled before anything
+    * that addresses the stack directly: calls, returns, exception dispatch,
+    * the collectors' stack scans and the calls to the VMExtension class.
+    */
+/*MAC*/int peek() {
+           return getWord(sp, 0);
+       }
+
+/*MAC*/void setTop(int $x) {
+           setWord(sp, 0, $x);
+       }
+
 /*-----------------------------------------*\
  *                 pushLong                *
 \*-----------------------------------------*/
@@ -979,6 +1093,69 @@
         stack = getFastLockStack();
         res = getWord(stack, --fastLockSp);
         assume(res == obj);
+        setOopRam(stack, fastLockSp, 0);    /* Thread.inflateFastLocks() stops at the first null */
+    }
+
+
+/*---------------------------------------------------------------------------*\
+ *                                fastMonitorEnter                           *
+\*---------------------------------------------------------------------------*/
+
+   /*
+    * Try to lock an object without calling into Java. The fast lock stack
+    * records the objects locked this way by the current thread. It is emptied
+    * by Thread.inflateFastLocks() before a thread switch and before any
+    * monitor operation that needs a real Monitor, so an object on the stack
+    * never has an active Monitor and is not locked by any other thread.
+    */
+    boolean fastMonitorEnter(int obj) {
+        int stack, i, assn, mon;
+        if (fastLockSp == fastLockLimit) {
+            return false;
+        }
+
+       /*
+        * A recursive enter just pushes the object again
+        */
+        stack = getFastLockStack();
+        for (i = fastLockSp - 1; i >= 0; i--) {
+            if (getWord(stack, i) == obj) {
+                return pushLockedObject(obj);
+            }
+        }
+
+       /*
+        * Otherwise the object must not have an active Monitor
+        */
+        assn = getAssociationQueue(getAssociationHashEntry(obj));
+        while (assn != 0) {
+            if (ObjectAssociation_getObject(assn) == obj) {
+                mon = ObjectAssociation_getMonitor(assn);
+                if (mon != 0 && Monitor_isInUse(mon)) {
+                    return false;
+                }
+                break;
+            }
+            assn = ObjectAssociation_getNext(assn);
+        }
+        return pushLockedObject(obj);
+    }
+
+
+/*---------------------------------------------------------------------------*\
+ *                                fastMonitorExit                            *
+\*---------------------------------------------------------------------------*/
+
+   /*
+    * Unlock an object that was locked by fastMonitorEnter(). Anything else
+    * is left to Thread.monitorExit().
+    */
+    boolean fastMonitorExit(int obj) {
+        if (fastLockSp == 0 || getWord(getFastLockStack(), fastLockSp - 1) != obj) {
+            return false;
+        }
+        popLockedObject(obj);
+        return true;
     }
 
 
@@ -1049,6 +1226,36 @@
         */
         zeroProfileTicks();
 
+       /*
+        * With threaded dispatch (-DTHREADED) each bytecode handler fetches
+        * the next bytecode itself and jumps directly to its handler through
+        * a label table instead of returning to the top of the loop. This
+        * gives the host branch predictor one indirect branch per handler.
+        * The builder labels each case of the main switch and replaces
+        * 'continue' with DISPATCH (see the DispatchSwitch class in the
+        * builder). The top of the loop is still used after a call to
+        * the VMExtension class. It is not the default, as on a current
+        * x86-64 host it was measured to be no faster than the switch on the
+        * bench samples: 1.8% faster on delta but 3.5% to 5.9% slower on
+        * hanoi, mpeg and cubes. Such hosts predict the
+        * switch's single indirect branch well, and threading the handlers
+        * makes the VM binary about 14% larger.
+        */
+//IFC//#ifdef THREADED
+//IFC//#define DISPATCH_LABEL(label) label:
+//IFC//#define DISPATCH do {                                \
+//IFC//        assume(fn == java_lang_VMExtension_yield);   \
+//IFC//        incInstructionCount(Class_getType(cp));      \
+//IFC//        debugInstruction(ip, lp, sp, cp);            \
+//IFC//        b = fetchUnsignedByte(ip++);                 \
+//IFC//        incHistogram(b);                             \
+//IFC//        goto *dispatchTable[b];                      \
+//IFC//    } while (0)
+//IFC//#else
+//IFC//#define DISPATCH_LABEL(label)
+//IFC//#define DISPATCH continue
+//IFC//#endif /* THREADED */
+
         /*
          * Top of the interpreter loop
          */
@@ -1060,7 +1267,7 @@
 
             b = fetchUnsignedByte(ip++);
             incHistogram(b);
-            switch (b) {
+/*DISPATCH*/switch (b) {
 
                 /*-----------------------------------------------------------*\
                  *                          Constants                        *
@@ -1352,7 +1559,7 @@
                 case OPC.LOOKUP: {
                     int key, ref, cnt, i, res = -1;
                     ref = pop();
-                    key = pop();
+                    key = peek();
                     cnt = Object_getArrayElementCount(ref);
                     for (i = 0 ; i < cnt ; i++) {
                         int val = getWord(ref, i);
@@ -1361,13 +1568,13 @@
                             break;
                         }
                     }
-                    push(res);
+                    setTop(res);
                     continue;
                 }
                 case OPC.LOOKUP_B: {
                     int key, ref, cnt, i, res = -1;
                     ref = pop();
-                    key = pop();
+                    key = peek();
                     cnt = Object_getArrayElementCount(ref);
                     for (i = 0 ; i < cnt ; i++) {
                         int val = getByte(ref, i);
@@ -1376,13 +1583,13 @@
                             break;
                         }
                     }
-                    push(res);
+                    setTop(res);
                     continue;
                 }
                 case OPC.LOOKUP_S: {
                     int key, ref, cnt, i, res = -1;
                     ref = pop();
-                    key = pop();
+                    key = peek();
                     cnt = Object_getArrayElementCount(ref);
                     for (i = 0 ; i < cnt ; i++) {
                         int val = getHalf(ref, i);
@@ -1391,13 +1598,13 @@
                             break;
                         }
                     }
-                    push(res);
+                    setTop(res);
                     continue;
                 }
                 case OPC.LOOKUP_C: {
                     int key, ref, cnt, i, res = -1;
                     ref = pop();
-                    key = pop();
+                    key = peek();
                     cnt = Object_getArrayElementCount(ref);
                     for (i = 0 ; i < cnt ; i++) {
                         int val = getUnsignedHalf(ref, i);
@@ -1406,7 +1613,7 @@
                             break;
                         }
                     }
-                    push(res);
+                    setTop(res);
                     continue;
                 }
 
@@ -1420,8 +1627,10 @@
                 case OPC.INVOKEVIRTUAL2: {
                     int mp;
                     int rcvr;
+                    int rcvrClass;
                     int vtbl;
                     int vstart;
+                    int ic;
                     int parm = fetchUnsignedByte(ip++);                 /* Get the "number" operand of invoke */
                     incInvokeCount();
 
@@ -1434,25 +1643,35 @@
                         break;
                     }
 
-                    cp = Object_getClass(rcvr);                         /* Get the callee's class */
-                    vstart = Class_getFirstVirtualMethod(cp);           /* Get the number of the first method defined */
-                    for (;;) {
-                        while (parm < vstart) {                         /* Is the target method there? */
-                            cp  = Class_getSuperClass(cp);              /* Go to the super class */
-                            assume(cp != 0);
-                            vstart = Class_getFirstVirtualMethod(cp);   /* Get the number of the first method defined */
-                        }                                               /* Test again... */
-                        vtbl = Class_getVirtualMethods(cp);             /* Get the vtable for virtual methods */
-                        assumeArrayIndexInBounds(vtbl, parm-vstart);
-                        mp = getWord(vtbl, parm-vstart);                /* Get the method */
-                        if (mp != 0) {
-                            break;
-                        } else {                                        /* The vtable slot will be empty if this class
+                    rcvrClass = Object_getClass(rcvr);                  /* Get the receiver's class */
+                    ic = getInlineCacheIndex(ip, rcvrClass);            /* Look in the inline cache */
+                    if (icSite[ic] == ip && icClass[ic] == rcvrClass) {
+                        mp = icMethod[ic];                              /* Y - Get the method */
+                        cp = icMethodClass[ic];                         /*     and the class that defined it */
+                    } else {
+                        incInlineCacheMissCount();
+                        cp = rcvrClass;                                 /* Get the callee's class */
+                        vstart = Class_getFirstVirtualMethod(cp);       /* Get the number of the first method defined */
+                        for (;;) {
+                            while (parm < vstart) {                     /* Is the target method there? */
+                                cp  = Class_getSuperClass(cp);          /* Go to the super class */
+                                assume(cp != 0);
+                                vstart = Class_getFirstVirtualMethod(cp); /* Get the number of the first method defined */
+                            }                                           /* Test again... */
+                            vtbl = Class_getVirtualMethods(cp);         /* Get the vtable for virtual methods */
+                            assumeArrayIndexInBounds(vtbl, parm-vstart);
+                            mp = getWord(vtbl, parm-vstart);            /* Get the method */
+                            if (mp != 0) {
+                                break;
+                            } else {                                    /* The vtable slot will be empty if this class
                                                                            did not actually define the method*/
-                            cp  = Class_getSuperClass(cp);              /* N - Go to the super class */
-                            assume(cp != 0);
-                            vstart = Class_getFirstVirtualMethod(cp);   /* Get the number of the first method defined */
+                                cp  = Class_getSuperClass(cp);          /* N - Go to the super class */
+                                assume(cp != 0);
+                                vstart = Class_getFirstVirtualMethod(cp); /* Get the number of the first method defined */
+                            }
                         }
+                        cp = getDefiningClass(mp, cp);                  /* Needed if the vtable was flattened */
+                        setInlineCache(ic, ip, rcvrClass, mp, cp);      /* Remember it for next time */
                     }
 
                     setupFrame(mp);
@@ -1491,6 +1710,7 @@
                         }
 
                     }
+                    cp = getDefiningClass(mp, cp);                      /* Needed if the vtable was flattened */
 
                     setupFrame(mp);
 
@@ -1526,7 +1746,6 @@
                 case OPC.INVOKEINTERFACE:
                 case OPC.INVOKEINTERFACE1:
                 case OPC.INVOKEINTERFACE2: {
-                    boolean found = false;
                     int mp;
                     int iklass;
                     int rcvr;
@@ -1536,8 +1755,11 @@
                     int iklassType;
                     int types;
                     int tcount;
+                    int tables;
+                    int slotTable;
                     int i;
                     int cno;
+                    int ic;
                     int parm = fetchUnsignedByte(ip++);                         /* Get the "number" operand of invoke */
                     incInvokeCount();
 
@@ -1554,29 +1776,48 @@
                     }
 
                     rcvrClass  = Object_getClass(rcvr);                         /* Get the receiver class */
-                    for (;;) {
-                        types   = Class_getInterfaceTypes(rcvrClass);           /* Get the interface types table */
-                        tcount  = Object_getArrayElementCount(types);           /* Get the interface types table length */
-                        for (i = 0 ; i < tcount ; i++) {                        /* Iterate through the interface types */
+                    ic = getInlineCacheIndex(ip, rcvrClass);                    /* Look in the inline cache */
+                    if (icSite[ic] == ip && icClass[ic] == rcvrClass) {
+                        mp = icMethod[ic];                                      /* Y - Get the method */
+                        cp = icMethodClass[ic];                                 /*     and the class that defined it */
+                        setupFrame(mp);
+                        continue;
+                    }
+                    incInlineCacheMissCount();
+
+                   /*
+                    * The interface types of a non-abstract class are a hash
+                    * table keyed on the interface type that includes the
+                    * interfaces of all its superclasses. An empty entry
+                    * (type 0) ends the probe.
+                    */
+                    types   = Class_getInterfaceTypes(rcvrClass);               /* Get the interface types table */
+                    tcount  = Object_getArrayElementCount(types);               /* Get the interface types table length */
+                    i   = 0;
+                    cno = 0;
+                    if (tcount > 0) {
+                        i = iklassType & (tcount - 1);                          /* Get the home entry */
+                        for (;;) {
                             assumeArrayIndexInBounds(types, i);
                             cno = getUnsignedHalf(types, i);                    /* Get the next type */
-                            if (cno == iklassType) {                            /* Match? */
-                                int slotTable;
-                                int tables = Class_getInterfaceSlotTables(rcvrClass); /* Y - Get the slot tables */
-                                assumeArrayIndexInBounds(tables, i);
-                                slotTable = getWord(tables, i);                 /* Get specific table */
-                                assumeArrayIndexInBounds(slotTable, parm);
-                                parm = getUnsignedByte(slotTable, parm);        /* Get virtual method */
-                                found = true;
+                            if (cno == iklassType || cno == 0) {                /* Match or empty? */
                                 break;
                             }
+                            i = (i + 1) & (tcount - 1);                         /* N - Try the next entry */
                         }
-                        if (found) {
-                            break;
-                        }
-                        rcvrClass  = Class_getSuperClass(rcvrClass);            /* Try the next class up */
-                        assume(rcvrClass != 0);
                     }
+                    if (cno != iklassType) {                                    /* Interface not implemented? */
+                        fn = java_lang_VMExtension_abstractMethodError;         /* Y - Raise an error */
+                        clearStack();
+                        lp = Frame_getPreviousLp(lp);
+                        sp = lp + Frame_getStackOffset(lp);
+                        break;
+                    }
+                    tables = Class_getInterfaceSlotTables(rcvrClass);           /* Get the slot tables */
+                    assumeArrayIndexInBounds(tables, i);
+                    slotTable = getWord(tables, i);                             /* Get specific table */
+                    assumeArrayIndexInBounds(slotTable, parm);
+                    parm = getUnsignedByte(slotTable, parm);                    /* Get virtual method */
 
                     cp = Object_getClass(rcvr);                                 /* Get the callee's class */
                     vstart = Class_getFirstVirtualMethod(cp);                   /* Get the number of the first method defined */
@@ -1597,6 +1838,8 @@
                             vstart = Class_getFirstVirtualMethod(cp);           /* Get the number of the first method defined */
                         }
                     }
+                    cp = getDefiningClass(mp, cp);                              /* Needed if the vtable was flattened */
+                    setInlineCache(ic, ip, Object_getClass(rcvr), mp, cp);      /* Remember it for next time */
 
                     setupFrame(mp);
 
@@ -1862,37 +2105,37 @@
 
                 case OPC.ALOAD: {
                     int ndx = pop();
-                    int ref = pop();
+                    int ref = peek();
                     if (nullCheck(ref)) break;
                     if (boundsCheck(ref, ndx)) break;
-                    push(getWord(ref, ndx));
+                    setTop(getWord(ref, ndx));
                     continue;
                 }
 
                 case OPC.ALOAD_B: {
                     int ndx = pop();
-                    int ref = pop();
+                    int ref = peek();
                     if (nullCheck(ref)) break;
                     if (boundsCheck(ref, ndx)) break;
-                    push(getByte(ref, ndx));
+                    setTop(getByte(ref, ndx));
                     continue;
                 }
 
                 case OPC.ALOAD_S: {
                     int ndx = pop();
-                    int ref = pop();
+                    int ref = peek();
                     if (nullCheck(ref)) break;
                     if (boundsCheck(ref, ndx)) break;
-                    push(getHalf(ref, ndx));
+                    setTop(getHalf(ref, ndx));
                     continue;
                 }
 
                 case OPC.ALOAD_C: {
                     int ndx = pop();
-                    int ref = pop();
+                    int ref = peek();
                     if (nullCheck(ref)) break;
                     if (boundsCheck(ref, ndx)) break;
-                    push(getUnsignedHalf(ref, ndx));
+                    setTop(getUnsignedHalf(ref, ndx));
                     continue;
                 }
 
@@ -1983,22 +2226,43 @@
                 \*-----------------------------------------------------------*/
 
 
-                case OPC.THIS_GETFIELD:
-                    push(Frame_getLocal(lp, 0));
+                case OPC.THIS_GETFIELD: {
+                    int ref = Frame_getLocal(lp, 0);
+                    int off = fetchUnsignedByte(ip++);
+                    if (nullCheck(ref)) break;
+                    assumeValidObjectField(ref, off, 4);
+                    push(getWord(ref, off));
+                    continue;
+                }
 
                 case OPC.GETFIELD: {
-                    int ref = pop();
+                    int ref = peek();
                     int off = fetchUnsignedByte(ip++);
                     if (nullCheck(ref)) break;
                     assumeValidObjectField(ref, off, 4);
-                    push(getWord(ref, off));
+                    setTop(getWord(ref, off));
                     continue;
                 }
 
-                case OPC.THIS_GETFIELD_B:
-                    push(Frame_getLocal(lp, 0));
-                case OPC.GETFIELD_B: {
-                    int ref = pop();
+               /*
+                * Fused this_getfield and return1 written by the loader for
+                * getter methods. The return1 that follows is left in place
+                * (see Verifier.ret()).
+                */
+                case OPC.THIS_GETFIELD_RETURN1: {
+                    int ref = Frame_getLocal(lp, 0);
+                    int off = fetchUnsignedByte(ip++);
+                    int value;
+                    if (nullCheck(ref)) break;
+                    assumeValidObjectField(ref, off, 4);
+                    value = getWord(ref, off);
+                    popFrame();
+                    push(value);
+                    continue;
+                }
+
+                case OPC.THIS_GETFIELD_B: {
+                    int ref = Frame_getLocal(lp, 0);
                     int off = fetchUnsignedByte(ip++);
                     if (nullCheck(ref)) break;
                     assumeValidObjectField(ref, off, 1);
@@ -2006,10 +2270,17 @@
                     continue;
                 }
 
-                case OPC.THIS_GETFIELD_S:
-                    push(Frame_getLocal(lp, 0));
-                case OPC.GETFIELD_S: {
-                    int ref = pop();
+                case OPC.GETFIELD_B: {
+                    int ref = peek();
+                    int off = fetchUnsignedByte(ip++);
+                    if (nullCheck(ref)) break;
+                    assumeValidObjectField(ref, off, 1);
+                    setTop(getByte(ref, off));
+                    continue;
+                }
+
+                case OPC.THIS_GETFIELD_S: {
+                    int ref = Frame_getLocal(lp, 0);
                     int off = fetchUnsignedByte(ip++);
                     if (nullCheck(ref)) break;
                     assumeValidObjectField(ref, off, 2);
@@ -2017,10 +2288,17 @@
                     continue;
                 }
 
-                case OPC.THIS_GETFIELD_C:
-                    push(Frame_getLocal(lp, 0));
-                case OPC.GETFIELD_C: {
-                    int ref = pop();
+                case OPC.GETFIELD_S: {
+                    int ref = peek();
+                    int off = fetchUnsignedByte(ip++);
+                    if (nullCheck(ref)) break;
+                    assumeValidObjectField(ref, off, 2);
+                    setTop(getHalf(ref, off));
+                    continue;
+                }
+
+                case OPC.THIS_GETFIELD_C: {
+                    int ref = Frame_getLocal(lp, 0);
                     int off = fetchUnsignedByte(ip++);
                     if (nullCheck(ref)) break;
                     assumeValidObjectField(ref, off, 2);
@@ -2028,6 +2306,15 @@
                     continue;
                 }
 
+                case OPC.GETFIELD_C: {
+                    int ref = peek();
+                    int off = fetchUnsignedByte(ip++);
+                    if (nullCheck(ref)) break;
+                    assumeValidObjectField(ref, off, 2);
+                    setTop(getUnsignedHalf(ref, off));
+                    continue;
+                }
+
                 case OPC.THIS_GETFIELD_I2:
                     push(Frame_getLocal(lp, 0));
                 case OPC.GETFIELD_I2: {
@@ -2246,49 +2533,48 @@
                  *                      Integer ops                          *
                 \*-----------------------------------------------------------*/
 
-                case OPC.IADD:  { int r = pop() ; int l = pop() ; push(l + r);      continue; }
-                case OPC.ISUB:  { int r = pop() ; int l = pop() ; push(l - r);      continue; }
-                case OPC.IAND:  { int r = pop() ; int l = pop() ; push(l & r);      continue; }
-                case OPC.IOR:   { int r = pop() ; int l = pop() ; push(l | r);      continue; }
-                case OPC.IXOR:  { int r = pop() ; int l = pop() ; push(l ^ r);      continue; }
-                case OPC.ISHL:  { int r = pop() ; int l = pop() ; push(sll(l, r));  continue; }
-                case OPC.ISHR:  { int r = pop() ; int l = pop() ; push(sra(l, r));  continue; }
-                case OPC.IUSHR: { int r = pop() ; int l = pop() ; push(srl(l, r));  continue; }
-                case OPC.IMUL:  { int r = pop() ; int l = pop() ; push(l * r);      continue; }
-                case OPC.NEG:   { int r = pop() ;                 push(0 - r);      continue; }
-                case OPC.I2B:   { int r = pop() ;                 push((byte)r);    continue; }
-                case OPC.I2S:   { int r = pop() ;                 push((short)r);   continue; }
-/*IFJ*/         case OPC.I2C:   { int r = pop() ;                 push((char)r);    continue; }
-//IFC//         case OPC.I2C:   { int r = pop() ;       push((unsigned short)r);    continue; }
+                case OPC.IADD:  { int r = pop() ; int l = peek(); setTop(l + r);      continue; }
+                case OPC.ISUB:  { int r = pop() ; int l = peek(); setTop(l - r);      continue; }
+                case OPC.IAND:  { int r = pop() ; int l = peek(); setTop(l & r);      continue; }
+                case OPC.IOR:   { int r = pop() ; int l = peek(); setTop(l | r);      continue; }
+                case OPC.IXOR:  { int r = pop() ; int l = peek(); setTop(l ^ r);      continue; }
+                case OPC.ISHL:  { int r = pop() ; int l = peek(); setTop(sll(l, r));  continue; }
+                case OPC.ISHR:  { int r = pop() ; int l = peek(); setTop(sra(l, r));  continue; }
+                case OPC.IUSHR: { int r = pop() ; int l = peek(); setTop(srl(l, r));  continue; }
+                case OPC.IMUL:  { int r = pop() ; int l = peek(); setTop(l * r);      continue; }
+                case OPC.NEG:   { int r = peek();                 setTop(0 - r);      continue; }
+                case OPC.I2B:   { int r = peek();                 setTop((byte)r);    continue; }
+                case OPC.I2S:   { int r = peek();                 setTop((short)r);   continue; }
+/*IFJ*/         case OPC.I2C:   { int r = peek();                 setTop((char)r);    continue; }
+//IFC//         case OPC.I2C:   { int r = peek();       setTop((unsigned short)r);    continue; }
 
                 case OPC.IDIV: {
                     int r = pop();
-                    int l = pop();
+                    int l = peek();
                     if (r == 0) {
                         fn = java_lang_VMExtension_arithmeticException;
                         clearStack();
                         break;
                     } else if (l == 0x80000000 && r == -1) {
-                        push(l);
                         continue;
                     } else {
-                        push(l / r);
+                        setTop(l / r);
                         continue;
                     }
                 }
 
                 case OPC.IREM: {
                     int r = pop();
-                    int l = pop();
+                    int l = peek();
                     if (r == 0) {
                         fn = java_lang_VMExtension_arithmeticException;
                         clearStack();
                         break;
                     } else if (l == 0x80000000 && r == -1) {
-                        push(l % 1);
+                        setTop(l % 1);
                         continue;
                     } else {
-                        push(l % r);
+                        setTop(l % r);
                         continue;
                     }
                 }
@@ -2353,14 +2639,14 @@
                 case OPC.FLOATOP: {
                     b = fetchUnsignedByte(ip++);
                     switch (b) {
-                        case OPC.FADD: { int  r = pop()     ; int  l = pop()     ; push(addf(l, r));        continue; }
-                        case OPC.FSUB: { int  r = pop()     ; int  l = pop()     ; push(subf(l, r));        continue; }
-                        case OPC.FMUL: { int  r = pop()     ; int  l = pop()     ; push(mulf(l, r));        continue; }
-                        case OPC.FDIV: { int  r = pop()     ; int  l = pop()     ; push(divf(l, r));        continue; }
-                        case OPC.FREM: { int  r = pop()     ; int  l = pop()     ; push(remf(l, r));        continue; }
-                        case OPC.FNEG: { int  r = pop()     ;                      push(negf(r));           continue; }
-                        case OPC.FCMPG:{ int  r = pop()     ; int  l = pop()     ; push(cmpfg(l, r));       continue; }
-                        case OPC.FCMPL:{ int  r = pop()     ; int  l = pop()     ; push(cmpfl(l, r));       continue; }
+                        case OPC.FADD: { int  r = pop()     ; int  l = peek()    ; setTop(addf(l, r));      continue; }
+                        case OPC.FSUB: { int  r = pop()     ; int  l = peek()    ; setTop(subf(l, r));      continue; }
+                        case OPC.FMUL: { int  r = pop()     ; int  l = peek()    ; setTop(mulf(l, r));      continue; }
+                        case OPC.FDIV: { int  r = pop()     ; int  l = peek()    ; setTop(divf(l, r));      continue; }
+                        case OPC.FREM: { int  r = pop()     ; int  l = peek()    ; setTop(remf(l, r));      continue; }
+                        case OPC.FNEG: { int  r = peek()    ;                      setTop(negf(r));         continue; }
+                        case OPC.FCMPG:{ int  r = pop()     ; int  l = peek()    ; setTop(cmpfg(l, r));     continue; }
+                        case OPC.FCMPL:{ int  r = pop()     ; int  l = peek()    ; setTop(cmpfl(l, r));     continue; }
                         case OPC.DADD: { long r = popLong() ; long l = popLong() ; pushLong(addd(l, r));    continue; }
                         case OPC.DSUB: { long r = popLong() ; long l = popLong() ; pushLong(subd(l, r));    continue; }
                         case OPC.DMUL: { long r = popLong() ; long l = popLong() ; pushLong(muld(l, r));    continue; }
@@ -2369,9 +2655,9 @@
                         case OPC.DNEG: { long r = popLong() ;                      pushLong(negd(r));       continue; }
                         case OPC.DCMPG:{ long r = popLong() ; long l = popLong() ; push(cmpdg(l, r));       continue; }
                         case OPC.DCMPL:{ long r = popLong() ; long l = popLong() ; push(cmpdl(l, r));       continue; }
-                        case OPC.I2F:  { int  r = pop()     ;                      push(i2f(r));            continue; }
+                        case OPC.I2F:  { int  r = peek()    ;                      setTop(i2f(r));          continue; }
                         case OPC.L2F:  { long r = popLong() ;                      push(l2f(r));            continue; }
-                        case OPC.F2I:  { int  r = pop()     ;                      push(f2i(r));            continue; }
+                        case OPC.F2I:  { int  r = peek()    ;                      setTop(f2i(r));          continue; }
                         case OPC.F2L:  { int  r = pop()     ;                      pushLong(f2l(r));        continue; }
                         case OPC.I2D:  { int  r = pop()     ;                      pushLong(i2d(r));        continue; }
                         case OPC.L2D:  { long r = popLong() ;                      pushLong(l2d(r));        continue; }
@@ -2394,9 +2680,9 @@
                     continue;
 
                 case OPC.ARRAYLENGTH: {
-                    int ref = pop();
+                    int ref = peek();
                     if (nullCheck(ref)) break;
-                    push(Object_getArrayElementCount(ref));
+                    setTop(Object_getArrayElementCount(ref));
                     continue;
                 }
 
@@ -2405,6 +2691,7 @@
                 case OPC.MONITORENTER: {
                     int obj = pop();
                     if (nullCheck(obj)) break;
+                    if (fastMonitorEnter(obj)) continue;
                     push(obj);
                     fn = java_lang_VMExtension_monitorEnter;
                     break;
@@ -2415,6 +2702,7 @@
                 case OPC.MONITOREXIT: {
                     int obj = pop();
                     if (nullCheck(obj)) break;
+                    if (fastMonitorExit(obj)) continue;
                     push(obj);
                     fn = java_lang_VMExtension_monitorExit;
                     break;
@@ -2851,6 +3139,7 @@
                             int stack = pop();
                             setFastLockStack(stack);
                             fastLockLimit = Object_getArrayElementCount(stack);
+                            fastLockSp = 0;
                             continue;
                         }
 
@@ -3022,6 +3311,12 @@
                             continue;
                         }
 
+                        case java_lang_Native_getIdentityHashCode: {
+                            int oop = pop();
+                            push(reserveHashCodeWord(oop) ? Object_getIdentityHashCode(oop) : 0);
+                            continue;
+                        }
+
                         case java_lang_Native_print: {
                             int oop = pop();
                             if  (oop == 0) {
@@ -3214,13 +3509,22 @@
             chunk = interpret(chunk, res);
             setCurrentStackChunk(chunk);
             res   = gc();
+            flushInlineCache();
 
             if (getCheckPointBase() != null) {
 //IFC//         char   imageFileName[200];
+//IFC//         char   deltaFileName[200];
 /*IFJ*/         String imageFileName;
+/*IFJ*/         String deltaFileName;
 //IFC//         sprintf(imageFileName, "%s%d.image", getCheckPointBase(), counter);
+//IFC//         sprintf(deltaFileName, "%s%d.delta", getCheckPointBase(), counter);
 /*IFJ*/         imageFileName = getCheckPointBase() + counter + ".image";
-                ObjectMemory_writeImage(imageFileName);
+/*IFJ*/         deltaFileName = getCheckPointBase() + counter + ".delta";
+                if (counter == 0) {
+                    ObjectMemory_writeCheckpoint(imageFileName, null);
+                } else {
+                    ObjectMemory_writeCheckpoint(getCheckPointImages() ? imageFileName : null, deltaFileName);
+                }
                 counter++;
             }
 
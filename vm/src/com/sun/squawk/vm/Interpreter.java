@@ -60,6 +60,11 @@
 //IFC//#endif
 //IFC//#endif /* __GNUC__ */
 
+//IFC//#if !defined(_WIN32) && defined(_POSIX_MAPPED_FILES) && _POSIX_MAPPED_FILES > 0
+//IFC//#include <sys/mman.h>
+//IFC//#define MMAPIMAGE
+//IFC//#endif
+
 //IFC//#define String char*
 //IFC//#define Object void*
 
@@ -229,9 +234,15 @@
 //IFC// printMsg("  -Xresourcepath:<path>     Path for resources (default: -cp value)            "); println();
 //IFC// printMsg("  -Xcp:<path>               Path for embedded JVM to use (default: CLASSPATH   "); println();
 //IFC// printMsg("                            environment variable)                              "); println();
+        printMsg("  -Xmmap                    Map the image file instead of reading it (only     "); println();
+        printMsg("                            supported by the C VM on POSIX platforms)          "); println();
         printMsg("  -Xnoyield                 Disable thread premption                           "); println();
         printMsg("  -XfullGC                  Always do full GCs                                 "); println();
         printMsg("  -Xyoung:n                 %heap for the young generation (default:10)        "); println();
+        printMsg("  -Xnursery:<size>          Size of the young generation (overrides -Xyoung)   "); println();
+        printMsg("  -Xtenure:n                Collections an object survives before it is        "); println();
+        printMsg("                            promoted (1-8, default:1)                          "); println();
+        printMsg("  -XcardSize:<size>         Card size of the remembered set (default:512)      "); println();
 //IFC//#ifdef TRACING
         printMsg("  -XdebugIO                 Log IO channel input/output to files named         "); println();
         printMsg("                            'channel<id>.input' and 'channel<id>.output'       "); println();
@@ -254,9 +265,15 @@
         printMsg("  -XtraceMigration    -Xto  Enable RAM -> EEPROM migration tracing             "); println();
         printMsg("  -XtraceMigrationVerbose -Xtov Enable verbose RAM -> EEPROM migration tracing "); println();
         printMsg("  -XmethodProf:<freq>       Set method profiling frequency                     "); println();
-        printMsg("  -Xcheckpoint[:<base>]     Write a checkpoint of the memory after each GC to  "); println();
-        printMsg("                            the file '<base><i>.image'. The default for <base> "); println();
-        printMsg("                            is 'checkpoint' and <i> is the GC count.           "); println();
+        printMsg("  -Xcheckpoint[:<base>]     Write a checkpoint of the memory after each GC. The"); println();
+        printMsg("                            first is the image '<base>0.image' and the others  "); println();
+        printMsg("                            are the changes written to '<base><i>.delta' where "); println();
+        printMsg("                            <i> is the GC count. The default for <base> is     "); println();
+        printMsg("                            'checkpoint'. Use 'bld imagerestore' to rebuild    "); println();
+        printMsg("                            the image for a given checkpoint.                  "); println();
+        printMsg("  -XcheckpointImages        Also write the complete image '<base><i>.image' for"); println();
+        printMsg("                            each checkpoint ('bld imagerestore -verify' checks "); println();
+        printMsg("                            the deltas against them)                           "); println();
 //IFC//#endif /* TRACING */
 //IFC//#ifdef EXCESSIVEGC
         printMsg("  -XexcessiveGC             Run the VM with excessive garbage collection       "); println();
@@ -265,6 +282,7 @@
 //IFC//#ifdef STATS
         printMsg("  -Xstats                   Display interpreter stats at VM exit               "); println();
 //IFC//#endif /* STATS */
+/*IFJ*/ printMsg("  -XcheckAddresses          Check alignment and range of memory accesses       "); println();
 /*if[VM.GCSPY]*/
 /*IFJ*/ printMsg("  -Xgcspy[:(<opt>=<val>)*]  Start GCspy server with args:                      "); println();
 /*IFJ*/ printMsg("                               port: server port (def = 3000)                  "); println();
@@ -315,6 +333,8 @@
                     resourcepath = arg;
 //IFC//             resourcepath += 15;
 /*IFJ*/             resourcepath = resourcepath.substring("-Xresourcepath:".length());
+                } else if (equals(arg, "-XcheckpointImages")) {
+                    setCheckPointImages(true);
                 } else if (startsWith(arg, "-Xcheckpoint")) {
 //IFC//             String base = arg + 12;
 /*IFJ*/             String base = arg.substring("-Xcheckpoint".length());
@@ -325,12 +345,32 @@
                         base = "checkpoint";
                     }
                     setCheckPointBase(base);
+                } else if (equals(arg, "-Xmmap")) {
+//IFC//#ifdef MMAPIMAGE
+                    setMmapImage(true);
+//IFC//#else
+//IFC//             printMsg("-Xmmap is not supported on this platform and is ignored"); println();
+//IFC//#endif
                 } else if (equals(arg, "-Xnoyield")) {
                     noYield = true;
                 } else if (equals(arg, "-XfullGC")) {
                     setFullGC(true);
                 } else if (startsWith(arg, "-Xyoung:")) {
                     setYoungPercent(parsePercent(arg, 8, "bad -Xyoung"));
+                } else if (startsWith(arg, "-Xnursery:")) {
+                    setNurserySize(parseQuantity(arg, 10, "bad -Xnursery"));
+                } else if (startsWith(arg, "-Xtenure:")) {
+                    int n = parseQuantity(arg, 9, "bad -Xtenure");
+                    if (n < 1 || n > MAXTENUREAGE) {
+                        fatalVMError("bad -Xtenure");
+                    }
+                    setTenureAge(n);
+                } else if (startsWith(arg, "-XcardSize:")) {
+                    int n = parseQuantity(arg, 11, "bad -XcardSize");
+                    if (n < bytesPerWord() || (n & (n - 1)) != 0) {
+                        fatalVMError("bad -XcardSize");
+                    }
+                    setCardSize(n);
 //IFC//#ifdef TRACING
                 } else if (equals(arg, "-XdebugIO")) {
                     debugIO = true;
@@ -383,6 +423,8 @@
                 } else if (equals(arg, "-Xstats")) {
                     stats = true;
 //IFC//#endif /* STATS */
+/*IFJ*/         } else if (equals(arg, "-XcheckAddresses")) {
+/*IFJ*/             setCheckAddresses(true);
 /*if[VM.GCSPY]*/
                 } else if (startsWith(arg, "-Xgcspy")) {
 /*IFJ*/             gcspyOpts = arg.substring("-Xgcspy".length());
@@ -85,6 +85,42 @@
             return checkPointBase;
         }
 
+        private boolean checkPointImages = false;
+
+        /*
+         * setCheckPointImages
+         */
+/*MAC*/ void setCheckPointImages(boolean $value) {
+            checkPointImages = $value;
+        }
+
+        /*
+         * getCheckPointImages
+         */
+/*MAC*/ boolean getCheckPointImages() {
+            return checkPointImages;
+        }
+
+/*---------------------------------------------------------------------------*\
+ *                           Memory mapped image                             *
+\*---------------------------------------------------------------------------*/
+
+        private boolean mmapImage = false;
+
+        /*
+         * setMmapImage
+         */
+/*MAC*/ void setMmapImage(boolean $value) {
+            mmapImage = $value;
+        }
+
+        /*
+         * getMmapImage
+         */
+/*MAC*/ boolean getMmapImage() {
+            return mmapImage;
+        }
+
 /*---------------------------------------------------------------------------*\
  *                              Tracing threshold                            *
 \*---------------------------------------------------------------------------*/
@@ -264,13 +300,25 @@
  *                                   Full GC                                 *
 \*---------------------------------------------------------------------------*/
 
+        final static int
+            MAXTENUREAGE = 8;
+
         private boolean fullGC       = false;
         private int     youngPercent = 10;
+        private int     nurserySize  = 0;
+        private int     tenureAge    = 1;
+        private int     cardSize     = 512;
 
 /*MAC*/ void        setFullGC(boolean $b)               { fullGC = $b;                                                      }
 /*MAC*/ void        setYoungPercent(int $n)             { youngPercent = $n;                                                }
+/*MAC*/ void        setNurserySize(int $n)              { nurserySize = $n;                                                 }
+/*MAC*/ void        setTenureAge(int $n)                { tenureAge = $n;                                                   }
+/*MAC*/ void        setCardSize(int $n)                 { cardSize = $n;                                                    }
 
 /*MAC*/ boolean     getFullGC()                         { return fullGC;                                                    }
 /*MAC*/ int         getYoungPercent()                   { return youngPercent;                                              }
+/*MAC*/ int         getNurserySize()                    { return nurserySize;                                               }
+/*MAC*/ int         getTenureAge()                      { return tenureAge;                                                 }
+/*MAC*/ int         getCardSize()                       { return cardSize;                                                  }
 
 /*IFJ*/ }
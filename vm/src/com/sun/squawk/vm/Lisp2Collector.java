@@ -54,7 +54,9 @@
     final static int
         UPDATEPOINTERS      = 1,
         MARKOBJECTS         = 2,
-        VERIFYOBJECTS       = 3;
+        VERIFYOBJECTS       = 3,
+        REMEMBERPOINTERS    = 4,
+        VERIFYREMEMBERED    = 5;
 
 
 /*-----------------------------------------------------------------------*\
@@ -70,6 +72,7 @@
 
 //IFC// void traverseRoots(int ftn);
 //IFC// void traverseWriteBarrierOops(int ftn);
+//IFC// void traverseWriteBarrierOop(int addr, int ftn);
 //IFC// void traverseObject(int oop, int klass, int ftn);
 //IFC// void markStackChunks();
 //IFC// void updateStackChunks();
@@ -87,7 +90,57 @@
          * setIdealYoungGenerationSize
          */
 /*MAC*/ void setIdealYoungGenerationSize() {
-            idealYoungGenerationSize = minHeapMode ? 16 : (getCurrentObjectMemorySize() * getYoungPercent()) / 100;
+            if (minHeapMode) {
+                idealYoungGenerationSize = 16;
+            } else if (getNurserySize() != 0) {
+                idealYoungGenerationSize = getNurserySize();
+            } else {
+                idealYoungGenerationSize = (getCurrentObjectMemorySize() * getYoungPercent()) / 100;
+            }
+        }
+
+/*-----------------------------------------------------------------------*\
+ *                             Survivor ages                             *
+\*-----------------------------------------------------------------------*/
+
+       /*
+        * Compaction preserves address order, so the objects in the collection
+        * space are ordered by age. ageBoundaries[i] is the address below
+        * which the objects in the collection space have survived at least
+        * i+1 collections (only the first getTenureAge()-1 entries are used).
+        * The collection start is only moved above an object once it has
+        * survived getTenureAge() collections. Until then, it is copied
+        * within the young generation by each partial collection.
+        */
+/*IFJ*/ int[]   ageBoundaries = new int[MAXTENUREAGE];
+//IFC// int     ageBoundaries[MAXTENUREAGE];
+
+        /**
+         * resetAgeBoundaries
+         */
+/*MAC*/ void resetAgeBoundaries() {
+            int i;
+            for (i = 0; i != MAXTENUREAGE; i++) {
+                ageBoundaries[i] = getCollectionStart();
+            }
+        }
+
+        /**
+         * Age the survivors of a collection and return the address up to
+         * which they are to be promoted into the old generation.
+         */
+        int promoteSurvivors() {
+            int free = getCurrentObjectPartitionFree();
+            int boundary = free;
+            if (getTenureAge() > 1) {
+                int i;
+                boundary = ageBoundaries[getTenureAge() - 2];
+                for (i = getTenureAge() - 2; i > 0; i--) {
+                    ageBoundaries[i] = ageBoundaries[i - 1];
+                }
+                ageBoundaries[0] = free;
+            }
+            return boundary;
         }
 
         /**
@@ -118,6 +171,7 @@
         long partialGCs;
         long markStackOverFlows;
         long incompleteRelocations;
+        long dirtyCardsScanned;
 
         long totalTime;
         long testTime;
@@ -130,6 +184,7 @@
         void incPartialGCs()                    { partialGCs++;                             }
         void incMarkStackOverFlows()            { markStackOverFlows++;                     }
         void incIncompleteRelocations()         { incompleteRelocations++;                  }
+        void incDirtyCardsScanned()             { dirtyCardsScanned++;                      }
 
         long getStartTime()                     { return getTime();                         }
         void incTotalTimer(long time)           { totalTime += getTime() - time;            }
@@ -144,6 +199,7 @@
 //IFC//#define incPartialGCs()                  /**/
 //IFC//#define incMarkStackOverFlows()          /**/
 //IFC//#define incIncompleteRelocations()       /**/
+//IFC//#define incDirtyCardsScanned()           /**/
 
 //IFC//#define getStartTime()                    0
 //IFC//#define incTotalTimer(time)              /**/
@@ -163,6 +219,7 @@
             printMsgLong("  Partial GCs              ", partialGCs                );
             printMsgLong("  Mark stack overflows     ", markStackOverFlows        );
             printMsgLong("  Incomplete Relocations   ", incompleteRelocations     );
+            printMsgLong("  Dirty cards scanned      ", dirtyCardsScanned         );
             printMsgLong("  High water mark          ", getHeapHighWaterMark()    );
             printMsgLong("  Lisp2 GC time (ms)       ", totalTime                 );
 //            printMsgLong("  Test Time                ", testTime                  );
@@ -186,6 +243,15 @@
             return false;
         }
 
+        /**
+         * Reserve the word that will be added to an object that is about to
+         * be hashed. Nothing is needed as a moving object always slides down
+         * by at least a word.
+         */
+/*MAC*/ boolean reserveHashCodeWord(int $oop) {
+            return true;
+        }
+
         /**
          * canCollectRom
          */
@@ -326,6 +392,8 @@
                                getObjectMemoryEnd(seg) + MINMARKSTACKSIZE,
                                bitmapSizeRef[0]
                              );
+            WriteBarrier_initCards(getObjectMemoryStart(seg), getObjectMemoryEnd(seg), getCardSize());
+            resetAgeBoundaries();
         }
 
 
@@ -579,10 +647,30 @@
             clearAllOopBits();
         }
 
+        /**
+         * verifyCollection
+         */
+        void verifyCollection() {
+            if (getTenureAge() == 1) {
+                verifyHeap();
+            } else {
+               /*
+                * The old generation's pointers to the survivors that are still
+                * young must all be in the remembered set. Verification marks
+                * with the same bitmap, so the pointers are recorded again
+                * afterwards.
+                */
+                traverseObjects(getCurrentObjectMemoryStart(), getCollectionStart(), VERIFYREMEMBERED);
+                verifyHeap();
+                traverseObjects(getCurrentObjectMemoryStart(), getCollectionStart(), REMEMBERPOINTERS);
+            }
+        }
+
 
 //IFC//#else
 //IFC//#define verifyObject(addr, wordOffset, oop) /**/
 //IFC//#define verifyHeap() /**/
+//IFC//#define verifyCollection() /**/
 //IFC//#endif
 
 
@@ -706,6 +794,7 @@
             long time = getStartTime();
             int free = getCollectionStart();
             int oop;
+            int age = getTenureAge() - 2;
             boolean holeInHeap = false;
 
             startIteration(free, getCollectionEnd());
@@ -727,6 +816,15 @@
                      holeInHeap = true;
                 }
 
+               /*
+                * A hashed object that moves grows by the word holding its
+                * hash code. This cannot overrun the next object as a moving
+                * object moves down by at least a word.
+                */
+                if (delta != 0 && Object_needsHashCodeWord(oop)) {
+                    length += bytesPerWord();
+                }
+
                 if (getTraceGCVerbose()) {
                     trace("computeAddress ");
                     traceInt(oop);
@@ -740,6 +838,16 @@
                 }
 
                 forwardObject(oop, delta);
+
+               /*
+                * Move any age boundaries at or below this object to where
+                * the object will be relocated.
+                */
+                while (age >= 0 && ageBoundaries[age] <= oop - headerSize) {
+                    ageBoundaries[age] = oop - delta - headerSize;
+                    age--;
+                }
+
                 free = oop - delta + length;
 
                 iterate();
@@ -747,6 +855,11 @@
 
             endIteration();
 
+            while (age >= 0) {
+                ageBoundaries[age] = free;
+                age--;
+            }
+
             incComputeAddressTimer(time);
 
             return holeInHeap;
@@ -814,6 +927,9 @@
                         traceln("");
                     }
                     copyBytes(oop - headerSize, target - headerSize, oopLength + headerSize);
+                    if (Object_needsHashCodeWord(target)) {
+                        Object_addHashCodeWord(oop, target);
+                    }
                 }
                 iterate();
             }
@@ -910,11 +1026,29 @@
                         updatePointer(addr, wordOffset, getForwardedAddress(oop));
                         break;
                     }
+                    case REMEMBERPOINTERS: {
+                        if (inCollectionSpace(oop)) {
+                            setOopBit(addr + (wordOffset * bytesPerWord()));
+                            WriteBarrier_dirtyCard(addr + (wordOffset * bytesPerWord()));
+                        }
+                        break;
+                    }
 //IFC//#ifndef PRODUCTION
                     case VERIFYOBJECTS: {
                         verifyObject(addr, wordOffset, oop);
                         break;
                     }
+                    case VERIFYREMEMBERED: {
+                       /*
+                        * Associations are relinked by the collector without
+                        * the write barrier and are always traversed anyway.
+                        */
+                        if (inCollectionSpace(oop) && Class_getType(Object_getClass(oop)) != getAssociationCno()) {
+                            assume(testOopBit(addr + (wordOffset * bytesPerWord())));
+                            assume(WriteBarrier_isAddressDirty(addr + (wordOffset * bytesPerWord())));
+                        }
+                        break;
+                    }
 //IFC//#endif
                     default: shouldNotReachHere();
                 }
@@ -943,54 +1077,161 @@
         }
 
 
+        /**
+         * Get the address range (in the form expected by startIteration) of
+         * the part of a card that is in the old generation below a given
+         * address. Returns false if the card starts above that address.
+         */
+/*MAC*/ boolean getCardRange(int $card, int $end, int $range[]) {
+            $range[0] = WriteBarrier_getCardStart($card) - bytesPerWord();
+            $range[1] = WriteBarrier_getCardStart($card + 1) - bytesPerWord();
+            if ($range[0] < getCurrentObjectMemoryStart()) {
+                $range[0] = getCurrentObjectMemoryStart();
+            }
+            if ($range[1] > $end) {
+                $range[1] = $end;
+            }
+            return $range[0] < $end;
+        }
+
         /**
          * traverseWriteBarrierOops
          */
         void traverseWriteBarrierOops(int ftn) {
-            int addr;
-            startIteration(getCurrentObjectMemoryStart(), getCollectionStart());
-            while ((addr = getNextIteration()) != 0) {
-                boolean skip = false;
-                if (getTraceGCVerbose()) {
-                    trace("*** traverseWriteBarrierOops addr=");
-                    traceInt(addr);
-                    trace(" value=");
-                    traceInt(getWord(addr, 0));
-                    traceln("");
+            int addr, card;
+/*IFJ*/     int range[] = new int[2];
+//IFC//     int range[2];
+            for (card = 0; card != WriteBarrier_getCardCount(); card++) {
+                if (!WriteBarrier_isCardDirty(card)) {
+                    continue;
+                }
+                if (!getCardRange(card, getCollectionStart(), range)) {
+                    break;
                 }
+                incDirtyCardsScanned();
+                startIteration(range[0], range[1]);
+                while ((addr = getNextIteration()) != 0) {
+                    traverseWriteBarrierOop(addr, ftn);
+                    iterate();
+                }
+                endIteration();
+            }
+        }
 
-                if (ftn == MARKOBJECTS) {
-                    int oop = getWord(addr, 0);
-                    if (oop != 0) {
-                        if (Object_isForwarded(oop)) {
-                            /*
-                             * The write barrier bit must be unset for this pointer
-                             * that points to a migrated object so that it is
-                             * not re-updated in the update pointer phase.
-                             */
-                            WriteBarrier_clear(addr, 0);
-                        } else if (assuming()) {
-                            int cls = Object_getClass(oop);
-                            if (Class_getType(cls) == getAssociationCno()) {
-                                skip = true;
-                                if (getTraceGCVerbose()) {
-                                    trace(
-                                        "traverseWriteBarrierOops -- skipped association at ");
-                                    traceInt(addr);
-                                    traceln("");
-                                }
+        /**
+         * traverseWriteBarrierOop
+         */
+        void traverseWriteBarrierOop(int addr, int ftn) {
+            boolean skip = false;
+            if (getTraceGCVerbose()) {
+                trace("*** traverseWriteBarrierOops addr=");
+                traceInt(addr);
+                trace(" value=");
+                traceInt(getWord(addr, 0));
+                traceln("");
+            }
+
+            if (ftn == MARKOBJECTS) {
+                int oop = getWord(addr, 0);
+                if (oop != 0) {
+                    if (Object_isForwarded(oop)) {
+                        /*
+                         * The write barrier bit must be unset for this pointer
+                         * that points to a migrated object so that it is
+                         * not re-updated in the update pointer phase.
+                         */
+                        WriteBarrier_clear(addr, 0);
+                    } else if (assuming()) {
+                        int cls = Object_getClass(oop);
+                        if (Class_getType(cls) == getAssociationCno()) {
+                            skip = true;
+                            if (getTraceGCVerbose()) {
+                                trace(
+                                    "traverseWriteBarrierOops -- skipped association at ");
+                                traceInt(addr);
+                                traceln("");
                             }
                         }
                     }
                 }
+            }
+
+            if (!skip) {
+                traverseFunction(addr, 0, ftn);
+            }
+        }
 
-                if (!skip) {
-                    traverseFunction(addr, 0, ftn);
+        /**
+         * Rebuild the write barrier bitmap and card table after a collection
+         * so that they record exactly the pointers from the old generation
+         * into the survivors that were not promoted. The collection start
+         * must already have been moved up to the end of the promoted objects.
+         *
+         * @param oldGenerationEnd the start of the collection space before
+         * the collection
+         */
+        void rebuildRememberedSet(int oldGenerationEnd) {
+            int addr, card;
+            int youngStart = getCollectionStart();
+/*IFJ*/     int range[] = new int[2];
+//IFC//     int range[2];
+
+           /*
+            * Keep the bits of the old generation that still point into the
+            * collection space and clean the cards that no longer have any.
+            */
+            for (card = 0; card != WriteBarrier_getCardCount(); card++) {
+                boolean keep = false;
+                if (!WriteBarrier_isCardDirty(card)) {
+                    continue;
+                }
+                if (getCardRange(card, oldGenerationEnd, range)) {
+                    startIteration(range[0], range[1]);
+                    while ((addr = getNextIteration()) != 0) {
+                        int value = getWord(addr, 0);
+                        if (value != 0 && inCollectionSpace(value)) {
+                            keep = true;
+                        } else {
+                            clearOopBit(addr);
+                        }
+                        iterate();
+                    }
+                    endIteration();
+                }
+                if (!keep) {
+                    WriteBarrier_cleanCard(card);
                 }
-                iterate();
             }
 
-            endIteration();
+           /*
+            * The bits of the newly promoted objects are left over from marking
+            */
+            clearOopBitRange(oldGenerationEnd, youngStart);
+
+           /*
+            * Record the pointers in the newly promoted objects that refer to
+            * survivors that are still young.
+            */
+            if (youngStart != getCurrentObjectPartitionFree()) {
+                traverseObjects(oldGenerationEnd, youngStart, REMEMBERPOINTERS);
+            }
+        }
+
+        /**
+         * Apply a traverse function to the pointers in the objects between
+         * two addresses. Stack chunks are skipped as they are always
+         * traversed as roots.
+         */
+        void traverseObjects(int start, int end, int ftn) {
+            int oop;
+            if (start != end) {
+                for (oop = Object_blockToOop(start) ; oop != 0 ; oop = Object_nextObject(oop, start, end)) {
+                    int klass = Object_getClass(oop);
+                    if (Class_getType(klass) != CNO.LOCAL_ARRAY) {
+                        traverseObject(oop, klass, ftn);
+                    }
+                }
+            }
         }
 
 
@@ -1476,6 +1717,7 @@
         boolean gcCurrentObjectPartition() {
             boolean lastCollectionWasFull = getCurrentObjectPartition() == getCurrentObjectMemoryStart();
             boolean holeInHeap = true;
+            int oldGenerationEnd = getCollectionStart();
 
             if (lastCollectionWasFull) {
                 incFullGCs();
@@ -1506,13 +1748,13 @@
                     }
                 }
             }
-            setCurrentObjectPartition(getCurrentObjectPartitionFree());
-            clearOopBitRange(getCurrentObjectMemoryStart(), getCollectionStart());
+            setCurrentObjectPartition(promoteSurvivors());
+            rebuildRememberedSet(oldGenerationEnd);
 //if (getTraceGC()) {
 //    traceln("Heap trace after GC");
 //    traceHeap(RAM, true);
 //}
-            verifyHeap();
+            verifyCollection();
 
             setInCollector(false);
 
@@ -60,7 +60,8 @@
             if (stackIndex == stackSize || TESTMARKSTACKOVERFLOW) {
                 overflow = true;
             } else {
-                setWord(stack, stackIndex++, $oop);
+                setWord(stack, stackIndex, $oop);
+                stackIndex++;
             }
         }
 
@@ -7,11 +7,51 @@
  *                               Buffers                                 *
 \*-----------------------------------------------------------------------*/
 
-/*IFJ*/private byte[] memory;
+/*IFJ*/private int[] memory;
 //IFC//private byte *memory = 0;
        private int memorySize;
        private boolean bigEndian;
 
+/*
+ * The Java-hosted VM keeps memory as an array of words so that getWord and
+ * setWord are a single array access. Byte and half access select a lane of
+ * the containing word; the lane masks turn an address into the lane number
+ * for the endianess of the image being run. The length of the original image
+ * array is kept so that Memory_writeImage can rebuild it byte for byte.
+ */
+/*IFJ*/private int byteLaneMask;
+/*IFJ*/private int halfLaneMask;
+/*IFJ*/private int imageLength;
+
+/*
+ * Address checking is a debug feature in the Java-hosted VM (array bounds
+ * are still enforced by Java). It is enabled with -XcheckAddresses.
+ */
+/*IFJ*/private boolean checkAddresses;
+/*IFJ*/void setCheckAddresses(boolean b) { checkAddresses = b; }
+
+/*
+ * Once checkpoints are being written, checkpointRegions has a byte for each
+ * CKPT_REGIONSIZE region of memory that is set when the region is written.
+ * The relocation done while a checkpoint is written changes the pointers
+ * below the free pointer of each segment, so a region that the relocation
+ * wrote at only one of two checkpoints differs in their images even when it
+ * was not written in between. relocatedRegions and lastRelocatedRegions
+ * record the regions written by the relocation at this checkpoint and the
+ * previous one. The next checkpoint delta includes the regions that were set
+ * in checkpointRegions or in only one of these. The stores record into
+ * dirtyRegions, which is one of the tables or null.
+ */
+/*IFJ*/private byte[] checkpointRegions;
+/*IFJ*/private byte[] relocatedRegions;
+/*IFJ*/private byte[] lastRelocatedRegions;
+/*IFJ*/private byte[] dirtyRegions;
+/*IFJ*/private byte[] checkpointBuffer = new byte[CKPT_REGIONSIZE];
+//IFC//private byte *checkpointRegions = 0;
+//IFC//private byte *relocatedRegions = 0;
+//IFC//private byte *lastRelocatedRegions = 0;
+//IFC//private byte *dirtyRegions = 0;
+
 //IFC//#ifdef REALMEMORY
 //IFC//#define getImageOffset() ((int)memory)
 //IFC//#define ptrForJni(addr)  ((byte*)addr)
@@ -30,11 +70,21 @@
      * Setup the pointer to the memory area and its length
      */
     void Memory_init(byte mem[], int size, boolean isBigEndian) {
-        memory = mem;
+//IFC// memory = mem;
         bigEndian =  isBigEndian;
         memorySize = size;
+/*IFJ*/ byteLaneMask = isBigEndian ? 3 : 0;
+/*IFJ*/ halfLaneMask = isBigEndian ? 1 : 0;
+/*IFJ*/ imageLength = mem.length;
+/*IFJ*/ memory = new int[(mem.length+3) >> 2];
+/*IFJ*/ for (int i = 0; i != mem.length; i++) {
+/*IFJ*/     memory[i >> 2] |= (mem[i] & 0xFF) << byteShift(i);
+/*IFJ*/ }
     }
 
+/*IFJ*/private int byteShift(int addr) { return ((addr & 3) ^ byteLaneMask) << 3; }
+/*IFJ*/private int halfShift(int addr) { return (((addr >> 1) & 1) ^ halfLaneMask) << 4; }
+
     /**
      * Return the length of the memory area
      */
@@ -65,30 +115,59 @@
 /*IFJ*/String inHex(int i) { return Integer.toString(i); }
 
 
+    /**
+     * Record that the memory at an address has been written since the last
+     * checkpoint.
+     * @param addr
+     */
+/*IFJ*/void markCheckpointRegion(int addr) {
+/*IFJ*/     if (dirtyRegions != null) {
+/*IFJ*/         dirtyRegions[(addr - getImageOffset()) >> CKPT_REGIONSHIFT] = 1;
+/*IFJ*/     }
+/*IFJ*/}
+//IFC//#define markCheckpointRegion(addr) (dirtyRegions != 0 ? dirtyRegions[((addr) - getImageOffset()) >> CKPT_REGIONSHIFT] = 1 : 0)
+
+    /**
+     * Record that a range of memory has been written since the last
+     * checkpoint.
+     * @param addr
+     * @param numBytes
+     */
+    void markCheckpointRegions(int addr, int numBytes) {
+        if (dirtyRegions != null && numBytes > 0) {
+            int region = (addr - getImageOffset()) >> CKPT_REGIONSHIFT;
+            int last   = (addr + numBytes - 1 - getImageOffset()) >> CKPT_REGIONSHIFT;
+            while (region <= last) {
+                dirtyRegions[region++] = 1;
+            }
+        }
+    }
+
+
 //IFC//#ifdef PRODUCTION
 
 //IFC//#define checkAddress(addr, byteOffset)             ((addr)+byteOffset)
 
 //IFC//#define getWord(addr, offset)                      (((int *)(addr))[offset])
-//IFC//#define setWord(addr, offset, value)              ((((int *)(addr))[offset]) = (value))
+//IFC//#define setWord(addr, offset, value)              (markCheckpointRegion((int)(addr)+(offset)*4), (((int *)(addr))[offset]) = (value))
 
 //IFC//#define getByte(addr, offset)                      (((char *)(addr))[offset])
 //IFC//#define getUnsignedByte(addr, offset)              (((unsigned char *)(addr))[offset])
-//IFC//#define setByte(addr, offset, value)              ((((char *)(addr))[offset]) = (char)((value) & 0xFF))
+//IFC//#define setByte(addr, offset, value)              (markCheckpointRegion((int)(addr)+(offset)), (((char *)(addr))[offset]) = (char)((value) & 0xFF))
 
 //IFC//#define getHalf(addr, offset)                      (((short *)(addr))[offset])
 //IFC//#define getUnsignedHalf(addr, offset)              (((unsigned short *)(addr))[offset])
-//IFC//#define setHalf(addr, offset, value)              ((((short *)(addr))[offset]) = ((value) & 0xFFFF))
+//IFC//#define setHalf(addr, offset, value)              (markCheckpointRegion((int)(addr)+(offset)*2), (((short *)(addr))[offset]) = ((value) & 0xFFFF))
 
-//IFC//#define pushWord(addr, value)                      *((int *)(addr += 4)) = (value)
+//IFC//#define pushWord(addr, value)                      (addr += 4, markCheckpointRegion(addr), *((int *)(addr)) = (value))
 
-//IFC///*MAC*/ void setDWord(int $addr, jlong $value)       { ((jlong *)$addr)[0] = ($value); }
+//IFC///*MAC*/ void setDWord(int $addr, jlong $value)       { markCheckpointRegions($addr, 8); ((jlong *)$addr)[0] = ($value); }
 //IFC///*MAC*/ jlong getDWord(int $addr)                    { return ((jlong *)$addr)[0];    }
 
-//IFC//#define copyWords(src, dst, num)                   memmove((char*)(dst), (char*)(src), (num)*4)
-//IFC//#define copyBytes(src, dst, num)                   memmove((char*)(dst), (char*)(src), (num))
+//IFC//#define copyWords(src, dst, num)                   (markCheckpointRegions((int)(dst), (num)*4), memmove((char*)(dst), (char*)(src), (num)*4))
+//IFC//#define copyBytes(src, dst, num)                   (markCheckpointRegions((int)(dst), (num)), memmove((char*)(dst), (char*)(src), (num)))
 
-//IFC//#define zeroBytes(addr, num)                       memset((void*)(addr), 0, (num))
+//IFC//#define zeroBytes(addr, num)                       (markCheckpointRegions((int)(addr), (num)), memset((void*)(addr), 0, (num)))
 
 
 //IFC//#else
@@ -101,6 +180,9 @@
      * @return
      */
     int checkAddress(int addr, int byteOffset) {
+/*IFJ*/ if (!checkAddresses) {
+/*IFJ*/     return addr+byteOffset;
+/*IFJ*/ }
         if ((addr & 3) != 0) {
 /*IFJ*/     fatalVMError("Badly aligned address "+inHex(addr));
 //IFC//     fatalVMError("Badly aligned address");
@@ -139,21 +221,22 @@
      * getWord
      */
     int getWord(int addr, int wordOffset) {
-        int res;
+//IFC// int res;
         addr = checkAddress(addr, wordOffset*4);
-        if (bigEndian) {
-            res =  (memory[addr  ]       ) << 24 |
-                   (memory[addr+1] & 0xFF) << 16 |
-                   (memory[addr+2] & 0xFF) << 8  |
-                   (memory[addr+3] & 0xFF);
-        } else {
-            res =  (memory[addr+3]       ) << 24 |
-                   (memory[addr+2] & 0xFF) << 16 |
-                   (memory[addr+1] & 0xFF) << 8  |
-                   (memory[addr  ] & 0xFF);
-        }
-
-        return res;
+/*IFJ*/ return memory[addr >> 2];
+//IFC// if (bigEndian) {
+//IFC//     res =  (memory[addr  ]       ) << 24 |
+//IFC//            (memory[addr+1] & 0xFF) << 16 |
+//IFC//            (memory[addr+2] & 0xFF) << 8  |
+//IFC//            (memory[addr+3] & 0xFF);
+//IFC// } else {
+//IFC//     res =  (memory[addr+3]       ) << 24 |
+//IFC//            (memory[addr+2] & 0xFF) << 16 |
+//IFC//            (memory[addr+1] & 0xFF) << 8  |
+//IFC//            (memory[addr  ] & 0xFF);
+//IFC// }
+//IFC//
+//IFC// return res;
     }
 
     /**
@@ -162,17 +245,19 @@
     void setWord(int addr, int wordOffset, int value) {
         addr = checkAddress(addr, wordOffset*4);
         checkWrite(addr, value);
-        if (bigEndian) {
-            memory[addr  ] = (byte)(value >> 24);
-            memory[addr+1] = (byte)(value >> 16);
-            memory[addr+2] = (byte)(value >> 8 );
-            memory[addr+3] = (byte)(value      );
-        } else {
-            memory[addr+3] = (byte)(value >> 24);
-            memory[addr+2] = (byte)(value >> 16);
-            memory[addr+1] = (byte)(value >> 8 );
-            memory[addr  ] = (byte)(value      );
-        }
+        markCheckpointRegion(addr);
+/*IFJ*/ memory[addr >> 2] = value;
+//IFC// if (bigEndian) {
+//IFC//     memory[addr  ] = (byte)(value >> 24);
+//IFC//     memory[addr+1] = (byte)(value >> 16);
+//IFC//     memory[addr+2] = (byte)(value >> 8 );
+//IFC//     memory[addr+3] = (byte)(value      );
+//IFC// } else {
+//IFC//     memory[addr+3] = (byte)(value >> 24);
+//IFC//     memory[addr+2] = (byte)(value >> 16);
+//IFC//     memory[addr+1] = (byte)(value >> 8 );
+//IFC//     memory[addr  ] = (byte)(value      );
+//IFC// }
     }
 
     /**
@@ -180,7 +265,8 @@
      */
     int getByte(int addr, int byteOffset) {
         addr = checkAddress(addr, byteOffset);
-        return memory[addr];
+/*IFJ*/ return (byte)(memory[addr >> 2] >> byteShift(addr));
+//IFC// return memory[addr];
     }
 
     /**
@@ -188,7 +274,8 @@
      */
     int getUnsignedByte(int addr, int byteOffset) {
         addr = checkAddress(addr, byteOffset);
-        return memory[addr] & 0xFF;
+/*IFJ*/ return (memory[addr >> 2] >> byteShift(addr)) & 0xFF;
+//IFC// return memory[addr] & 0xFF;
     }
 
     /**
@@ -197,7 +284,10 @@
     void setByte(int addr, int byteOffset, int value) {
         addr = checkAddress(addr, byteOffset);
         checkWrite(addr, value);
-        memory[addr] = (byte)value;
+        markCheckpointRegion(addr);
+/*IFJ*/ int shift = byteShift(addr);
+/*IFJ*/ memory[addr >> 2] = (memory[addr >> 2] & ~(0xFF << shift)) | ((value & 0xFF) << shift);
+//IFC// memory[addr] = (byte)value;
     }
 
     /**
@@ -205,13 +295,14 @@
      */
     int getHalf(int addr, int halfOffset) {
         addr = checkAddress(addr, halfOffset*2);
-        if (bigEndian) {
-            return (memory[addr  ]       ) << 8  |
-                   (memory[addr+1] & 0xFF);
-        } else {
-            return (memory[addr+1]       ) << 8  |
-                   (memory[addr  ] & 0xFF);
-        }
+/*IFJ*/ return (short)(memory[addr >> 2] >> halfShift(addr));
+//IFC// if (bigEndian) {
+//IFC//     return (memory[addr  ]       ) << 8  |
+//IFC//            (memory[addr+1] & 0xFF);
+//IFC// } else {
+//IFC//     return (memory[addr+1]       ) << 8  |
+//IFC//            (memory[addr  ] & 0xFF);
+//IFC// }
     }
 
     /**
@@ -227,13 +318,16 @@
     void setHalf(int addr, int halfOffset, int value) {
         addr = checkAddress(addr, halfOffset*2);
         checkWrite(addr, value);
-        if (bigEndian) {
-            memory[addr  ] = (byte)(value >> 8 );
-            memory[addr+1] = (byte)(value      );
-        } else {
-            memory[addr+1] = (byte)(value >> 8 );
-            memory[addr  ] = (byte)(value      );
-        }
+        markCheckpointRegion(addr);
+/*IFJ*/ int shift = halfShift(addr);
+/*IFJ*/ memory[addr >> 2] = (memory[addr >> 2] & ~(0xFFFF << shift)) | ((value & 0xFFFF) << shift);
+//IFC// if (bigEndian) {
+//IFC//     memory[addr  ] = (byte)(value >> 8 );
+//IFC//     memory[addr+1] = (byte)(value      );
+//IFC// } else {
+//IFC//     memory[addr+1] = (byte)(value >> 8 );
+//IFC//     memory[addr  ] = (byte)(value      );
+//IFC// }
     }
 
     /**
@@ -252,11 +346,62 @@
         checkAddress(0, src+num-1);
         checkAddress(0, dst);
         checkAddress(0, dst+num-1);
-
-/*IFJ*/ System.arraycopy(memory, src, memory, dst, num);
+        markCheckpointRegions(dst, num);
+
+/*IFJ*/ if (((src | dst | num) & 3) == 0) {
+/*IFJ*/     System.arraycopy(memory, src >> 2, memory, dst >> 2, num >> 2);
+/*IFJ*/ } else if (dst <= src) {
+/*IFJ*/     for (int i = 0; i != num; i++) {
+/*IFJ*/         setByte(0, dst+i, getByte(0, src+i));
+/*IFJ*/     }
+/*IFJ*/ } else {
+/*IFJ*/     for (int i = num - 1; i >= 0; i--) {
+/*IFJ*/         setByte(0, dst+i, getByte(0, src+i));
+/*IFJ*/     }
+/*IFJ*/ }
 //IFC// memmove(memory+dst, memory+src, num);
     }
 
+/*
+ * Bulk copies between memory and host byte arrays for the channel buffers.
+ * Each word of memory is read or written once rather than once per byte.
+ */
+/*IFJ*/void getBytes(int addr, byte[] buf, int off, int len) {
+/*IFJ*/     if (len == 0) {
+/*IFJ*/         return;
+/*IFJ*/     }
+/*IFJ*/     checkAddress(addr, len-1);
+/*IFJ*/     addr = checkAddress(addr, 0);
+/*IFJ*/     int word = memory[addr >> 2];
+/*IFJ*/     for (int i = 0; i != len; i++, addr++) {
+/*IFJ*/         if ((addr & 3) == 0) {
+/*IFJ*/             word = memory[addr >> 2];
+/*IFJ*/         }
+/*IFJ*/         buf[off+i] = (byte)(word >> byteShift(addr));
+/*IFJ*/     }
+/*IFJ*/}
+
+/*IFJ*/void setBytes(int addr, byte[] buf, int off, int len) {
+/*IFJ*/     if (len == 0) {
+/*IFJ*/         return;
+/*IFJ*/     }
+/*IFJ*/     checkAddress(addr, len-1);
+/*IFJ*/     addr = checkAddress(addr, 0);
+/*IFJ*/     markCheckpointRegions(addr, len);
+/*IFJ*/     int i = 0;
+/*IFJ*/     while (i != len) {
+/*IFJ*/         int index = addr >> 2;
+/*IFJ*/         int word = memory[index];
+/*IFJ*/         do {
+/*IFJ*/             int shift = byteShift(addr);
+/*IFJ*/             word = (word & ~(0xFF << shift)) | ((buf[off+i] & 0xFF) << shift);
+/*IFJ*/             i++;
+/*IFJ*/             addr++;
+/*IFJ*/         } while (i != len && (addr & 3) != 0);
+/*IFJ*/         memory[index] = word;
+/*IFJ*/     }
+/*IFJ*/}
+
     /**
      * copyWords
      */
@@ -271,6 +416,12 @@
      */
     void zeroBytes(int addr, int numBytes) {
         int i;
+/*IFJ*/ if (((addr | numBytes) & 3) == 0) {
+/*IFJ*/     for (i = 0; i < numBytes; i += 4) {
+/*IFJ*/         setWord(addr, i >> 2, 0);
+/*IFJ*/     }
+/*IFJ*/     return;
+/*IFJ*/ }
         for (i = 0; i < numBytes; i++) {
             setByte(addr, i, 0);
         }
@@ -322,9 +473,105 @@
      * @param imageFileName
      */
     protected void Memory_writeImage(String imageFileName, int mmr[]) {
-        writeImage(imageFileName, memory, memorySize, mmr, bigEndian);
+/*IFJ*/ writeImage(imageFileName, packImage(), memorySize, mmr, bigEndian);
+//IFC// writeImage(imageFileName, memory, memorySize, mmr, bigEndian);
     }
 
+    /**
+     * Test whether a region of memory may differ from its contents in the
+     * image of the last checkpoint.
+     * @param region
+     * @return
+     */
+/*MAC*/boolean isCheckpointRegionChanged(int $region) {
+        return checkpointRegions[$region] != 0 || relocatedRegions[$region] != lastRelocatedRegions[$region];
+    }
+
+    /**
+     * Write the regions of memory that may have changed since the last
+     * checkpoint to a checkpoint delta file.
+     * @param imageFileName
+     * @param mmr
+     */
+    protected void Memory_writeImageDelta(String imageFileName, int mmr[]) {
+        int regions = (memorySize + CKPT_REGIONSIZE - 1) >> CKPT_REGIONSHIFT;
+        int region = 0;
+        openImageDelta(imageFileName, mmr, memorySize, bigEndian);
+        while (region != regions) {
+            if (!isCheckpointRegionChanged(region)) {
+                region++;
+            } else {
+                int start = region << CKPT_REGIONSHIFT;
+                int end;
+                while (region != regions && isCheckpointRegionChanged(region)) {
+                    region++;
+                }
+                end = region << CKPT_REGIONSHIFT;
+                if (end > memorySize) {
+                    end = memorySize;
+                }
+                writeImageDeltaRegion(start, end - start, bigEndian);
+/*IFJ*/         for (int offset = start; offset < end; offset += checkpointBuffer.length) {
+/*IFJ*/             int length = Math.min(checkpointBuffer.length, end - offset);
+/*IFJ*/             getBytes(getImageOffset() + offset, checkpointBuffer, 0, length);
+/*IFJ*/             writeImageDeltaBytes(checkpointBuffer, length);
+/*IFJ*/         }
+//IFC//         writeImageDeltaBytes(memory + start, end - start);
+            }
+        }
+        closeImageDelta(bigEndian);
+    }
+
+    /**
+     * Start recording the regions of memory that are written by the
+     * relocation of the image for a checkpoint.
+     */
+    protected void Memory_recordRelocatedRegions() {
+        int regions = (memorySize + CKPT_REGIONSIZE - 1) >> CKPT_REGIONSHIFT;
+        int i;
+/*IFJ*/ byte[] last;
+//IFC// byte *last;
+        if (checkpointRegions == null) {
+/*IFJ*/     checkpointRegions    = new byte[regions];
+/*IFJ*/     relocatedRegions     = new byte[regions];
+/*IFJ*/     lastRelocatedRegions = new byte[regions];
+//IFC//     checkpointRegions    = (byte *)calloc(regions, 1);
+//IFC//     relocatedRegions     = (byte *)calloc(regions, 1);
+//IFC//     lastRelocatedRegions = (byte *)calloc(regions, 1);
+        }
+        last = lastRelocatedRegions;
+        lastRelocatedRegions = relocatedRegions;
+        relocatedRegions = last;
+        for (i = 0; i != regions; i++) {
+            relocatedRegions[i] = 0;
+        }
+        dirtyRegions = relocatedRegions;
+    }
+
+    /**
+     * Start recording the regions of memory that are written since this
+     * checkpoint.
+     */
+    protected void Memory_clearCheckpointRegions() {
+        int regions = (memorySize + CKPT_REGIONSIZE - 1) >> CKPT_REGIONSHIFT;
+        int i;
+        for (i = 0; i != regions; i++) {
+            checkpointRegions[i] = 0;
+        }
+        dirtyRegions = checkpointRegions;
+    }
+
+    /**
+     * Pack the words of memory back into an array in image byte order.
+     */
+/*IFJ*/private byte[] packImage() {
+/*IFJ*/ byte[] image = new byte[imageLength];
+/*IFJ*/ for (int i = imageLength - memorySize; i < imageLength; i++) {
+/*IFJ*/     image[i] = (byte)getByte(0, i);
+/*IFJ*/ }
+/*IFJ*/ return image;
+/*IFJ*/}
+
 
 
 /*IFJ*/}
@@ -35,9 +35,7 @@
         Object result;
         assume(arr != 0); // This test should be done in Java code so that a NullPointerException can be thrown
 /*IFJ*/ byte[] barr = new byte[length];
-/*IFJ*/ for (int i = 0; i != length; i++) {
-/*IFJ*/     barr[i] = (byte)getUnsignedByte(arr, i);
-/*IFJ*/ }
+/*IFJ*/ getBytes(arr, barr, 0, length);
 /*IFJ*/ result = barr;
 //IFC// result = (*env)->NewByteArray(env, length);
 //IFC// jni_assume(result != null, "Byte array allocation failed");
@@ -51,13 +49,19 @@
 /*IFJ*/ return new byte[len];
     }
 
+    /**
+     * Copy bytes in a host byte array back into the same positions of a
+     * byte array in the memory.
+     * @param arr The address of a byte array inside the Squawk VM's memory.
+     * @param buf The host byte array.
+     * @param off The offset of the first byte in both arrays.
+     * @param len The number of bytes.
+     */
     void setNativeByteArray(int arr, Object buf, int off, int len) {
         assume(arr != 0 && buf != null); // This test should be done in Java code so that a NullPointerException can be thrown
-/*IFJ*/ byte[] barr = (byte[])buf;
-/*IFJ*/ for (int i = 0; i != len; i++) {
-/*IFJ*/     setByte(arr, off+i, barr[i]);
-/*IFJ*/ }
-//IFC// (*env)->GetByteArrayRegion(env, buf, 0, len, ptrForJni(arr+off));
+/*IFJ*/ setBytes(arr+off, (byte[])buf, off, len);
+//IFC// markCheckpointRegions(arr+off, len);
+//IFC// (*env)->GetByteArrayRegion(env, buf, off, len, ptrForJni(arr+off));
 //IFC// jni_assume(!(*env)->ExceptionOccurred(env), "Byte array copy back failed");
     }
 
@@ -94,12 +98,17 @@
         return null;
     }
 
+    /**
+     * Get a host byte array for an operation to receive bytes into. Its
+     * contents are not copied from the memory as they will be overwritten,
+     * and only the bytes actually received are copied back.
+     */
     Object getReceiveBuffer(int obj) {
         if (obj != 0) {
             int cls = Object_getClass(obj);
             int cno = Class_getType(cls);
             if (cno == CNO.BYTE_ARRAY) {
-                return getNativeByteArray(obj);
+                return getNativeNewByteArray(Object_getArrayElementCount(obj));
             } else {
                 fatalVMError("Bad reference type");
             }
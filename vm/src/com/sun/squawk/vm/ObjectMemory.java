@@ -211,4 +211,25 @@
         Memory_writeImage(imageFileName, MMR);
         relocateImage(true);
     }
+
+    /**
+     * Write a checkpoint of the memory contents. The writes done by the
+     * relocation are recorded apart from the others as the relocation
+     * leaves the memory unchanged.
+     * @param imageFileName the file for a complete image or null
+     * @param deltaFileName the file for the changes since the last
+     * checkpoint or null
+     */
+    public void ObjectMemory_writeCheckpoint(String imageFileName, String deltaFileName) {
+        Memory_recordRelocatedRegions();
+        relocateImage(false);
+        if (imageFileName != null) {
+            Memory_writeImage(imageFileName, MMR);
+        }
+        if (deltaFileName != null) {
+            Memory_writeImageDelta(deltaFileName, MMR);
+        }
+        relocateImage(true);
+        Memory_clearCheckpointRegions();
+    }
 /*IFJ*/}
@@ -892,7 +892,8 @@
             int chunk = Object_oopToBlock(oop);
             int headerSize = oop - chunk;
             int chunkSize = headerSize + Object_getObjectLength(oop);
-            int pchunk = newPersistentChunk(chunkSize, false);
+            boolean addHashCodeWord = Object_needsHashCodeWord(oop);
+            int pchunk = newPersistentChunk(addHashCodeWord ? chunkSize + bytesPerWord() : chunkSize, false);
             if (pchunk != 0) {
 //IFC//         boolean traversePersistentObject(int oop, int klass, int ftn);
                 int oopCopy = pchunk + headerSize;
@@ -903,6 +904,10 @@
                 for (i = 0; i != wordSize; ++i) {
                     setPersistentWord(pchunk, i, getWord(chunk, i));
                 }
+                if (addHashCodeWord) {
+                    Object_addHashCodeWord(oop, oopCopy);
+                    chunkSize += bytesPerWord();
+                }
 
                 /* Update the total number of bytes copied */
                 totalBytesCopied += chunkSize;
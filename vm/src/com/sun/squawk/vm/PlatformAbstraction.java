@@ -377,6 +377,7 @@
     private long branchCount            = 0;
     private long invokeCount            = 0;
     private long invokePrimitiveCount   = 0;
+    private long inlineCacheMissCount   = 0;
     private long extensionCount         = 0;
     private long yieldCount             = 0;
     private long switchCount            = 0;
@@ -419,6 +420,7 @@
             printMsgLong("Branches                ", branchCount           );
             printMsgLong("Invokes                 ", invokeCount           );
             printMsgLong("InvokePrimitives        ", invokePrimitiveCount  );
+            printMsgLong("Inline cache misses     ", inlineCacheMissCount  );
             printMsgLong("Extension calls         ", extensionCount        );
             printMsgLong("Yields                  ", yieldCount            );
             printMsgLong("Switches                ", switchCount           );
@@ -456,6 +458,7 @@
 /*MAC*/ void incBranchCount()                   { branchCount++;               }
 /*MAC*/ void incInvokeCount()                   { invokeCount++;               }
 /*MAC*/ void incInvokePrimitiveCount()          { invokePrimitiveCount++;      }
+/*MAC*/ void incInlineCacheMissCount()          { inlineCacheMissCount++;      }
 /*MAC*/ void incExtensionCount()                { extensionCount++;            }
 /*MAC*/ void incYieldCount()                    { yieldCount++;                }
 /*MAC*/ void incSwitchCount()                   { switchCount++;               }
@@ -480,6 +483,7 @@
 //IFC//#define incBranchCount()             /**/
 //IFC//#define incInvokeCount()             /**/
 //IFC//#define incInvokePrimitiveCount()    /**/
+//IFC//#define incInlineCacheMissCount()    /**/
 //IFC//#define incYieldCount()              /**/
 //IFC//#define incSwitchCount()             /**/
 //IFC//#define incAllocationCount()         /**/
@@ -918,15 +922,7 @@
 
            // Read the MMR
            for (int i = 0; i != MMR_SIZE; i++) {
-               if (isBigEndian) {
-                   dos.writeInt(mmr[i]);
-               } else {
-                   int value = mmr[i];
-                   dos.writeByte((byte)(value      ));
-                   dos.writeByte((byte)(value >> 8 ));
-                   dos.writeByte((byte)(value >> 16));
-                   dos.writeByte((byte)(value >> 24));
-               }
+               writeImageWord(dos, mmr[i], isBigEndian);
            }
 
            // Write the image
@@ -937,6 +933,98 @@
            fatalVMError(ioe.getMessage());
        }
    }
+
+   /**
+    * The checkpoint delta file being written. The file starts with
+    * CKPT_MAGICNUMBER, the MMR and the image size. This is followed by a
+    * sequence of changed regions, each of which is an offset and a length
+    * followed by that many bytes of the image. The sequence is terminated by
+    * an offset of -1. All words are written in the same byte order as the
+    * MMR of a normal image file.
+    */
+   private DataOutputStream imageDelta;
+
+   /**
+    * Open a checkpoint delta file and write its header.
+    *
+    * @param imageFileName
+    * @param mmr
+    * @param imageSize
+    * @param isBigEndian
+    */
+   void openImageDelta(String imageFileName, int[] mmr, int imageSize, boolean isBigEndian) {
+       try {
+           imageDelta = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(imageFileName)));
+           writeImageWord(imageDelta, CKPT_MAGICNUMBER, isBigEndian);
+           for (int i = 0; i != MMR_SIZE; i++) {
+               writeImageWord(imageDelta, mmr[i], isBigEndian);
+           }
+           writeImageWord(imageDelta, imageSize, isBigEndian);
+       } catch (IOException ioe) {
+           ioe.printStackTrace();
+           fatalVMError(ioe.getMessage());
+       }
+   }
+
+   /**
+    * Start a changed region in the checkpoint delta file. It must be
+    * followed by 'length' bytes written with writeImageDeltaBytes.
+    *
+    * @param offset
+    * @param length
+    * @param isBigEndian
+    */
+   void writeImageDeltaRegion(int offset, int length, boolean isBigEndian) {
+       try {
+           writeImageWord(imageDelta, offset, isBigEndian);
+           writeImageWord(imageDelta, length, isBigEndian);
+       } catch (IOException ioe) {
+           ioe.printStackTrace();
+           fatalVMError(ioe.getMessage());
+       }
+   }
+
+   /**
+    * Write some of the bytes of a changed region to the checkpoint delta file.
+    *
+    * @param buf
+    * @param length
+    */
+   void writeImageDeltaBytes(byte[] buf, int length) {
+       try {
+           imageDelta.write(buf, 0, length);
+       } catch (IOException ioe) {
+           ioe.printStackTrace();
+           fatalVMError(ioe.getMessage());
+       }
+   }
+
+   /**
+    * Terminate and close the checkpoint delta file.
+    *
+    * @param isBigEndian
+    */
+   void closeImageDelta(boolean isBigEndian) {
+       try {
+           writeImageWord(imageDelta, -1, isBigEndian);
+           imageDelta.close();
+           imageDelta = null;
+       } catch (IOException ioe) {
+           ioe.printStackTrace();
+           fatalVMError(ioe.getMessage());
+       }
+   }
+
+   private static void writeImageWord(DataOutputStream dos, int value, boolean isBigEndian) throws IOException {
+       if (isBigEndian) {
+           dos.writeInt(value);
+       } else {
+           dos.writeByte((byte)(value      ));
+           dos.writeByte((byte)(value >> 8 ));
+           dos.writeByte((byte)(value >> 16));
+           dos.writeByte((byte)(value >> 24));
+       }
+   }
 //IFC//#endif
 
 //IFC//byte* readImage(String imageFileName, int ignored, int mmr[], boolean ignore) {
@@ -951,12 +1039,35 @@
 //IFC//        if (fd != -1) {
 //IFC//            int mmrSize = MMR_SIZE*4;
 //IFC//            int   size  = buf.st_size - (mmrSize);
-//IFC//            byte* image = (byte*)malloc(size);
+//IFC//            byte* image;
+//IFC//            int count;
+//IFC//            int toRead;
+//IFC//            int offset;
+//IFC//
+//IFC//#ifdef MMAPIMAGE
+//IFC//            /*
+//IFC//             * Map the whole file privately. Pages are read in as they are
+//IFC//             * touched and are only copied if the VM writes to them, so the
+//IFC//             * image file itself is never modified.
+//IFC//             */
+//IFC//            if (getMmapImage()) {
+//IFC//                byte *base = (byte*)mmap(0, buf.st_size, PROT_READ|PROT_WRITE, MAP_PRIVATE, fd, 0);
+//IFC//                if (base == (byte*)MAP_FAILED) {
+//IFC//                    sprintf(errMsg, "Call to mmap(%s) failed: %s\n", imageFileName, strerror(errno));
+//IFC//                    fatalVMError(errMsg);
+//IFC//                }
+//IFC//                close(fd);
+//IFC//                memcpy(mmr, base, mmrSize);
+//IFC//                return base + mmrSize;
+//IFC//            }
+//IFC//#endif /* MMAPIMAGE */
+//IFC//
+//IFC//            image = (byte*)malloc(size);
 //IFC//
 //IFC//            /* Read the MMR. */
-//IFC//            int count   = 0;
-//IFC//            int toRead  = mmrSize;
-//IFC//            int offset  = 0;
+//IFC//            count   = 0;
+//IFC//            toRead  = mmrSize;
+//IFC//            offset  = 0;
 //IFC//            while (toRead > 0) {
 //IFC//                count = read(fd, ((char*)mmr)+offset, toRead);
 //IFC//                if (count == -1) {
@@ -993,15 +1104,124 @@
 //IFC//    return 0;
 //IFC//}
 
+//IFC//#ifdef MMAPIMAGE
+//IFC//#define IMAGEPAGESIZE 4096
+//IFC//
+//IFC//   /*
+//IFC//    * Write an image through a shared mapping of the (truncated) file. Pages of
+//IFC//    * the image that are all zero are skipped so that they stay as holes in the
+//IFC//    * file, and write back of the others is left to the operating system.
+//IFC//    */
+//IFC//   void writeMappedImage(int fd, String imageFileName, byte* image, int size, int mmr[]) {
+//IFC//        static char errMsg[1024];
+//IFC//        int   mmrSize  = MMR_SIZE*4;
+//IFC//        int   fileSize = mmrSize + size;
+//IFC//        int   offset;
+//IFC//        byte* base;
+//IFC//
+//IFC//        if (ftruncate(fd, 0) != 0 || ftruncate(fd, fileSize) != 0) {
+//IFC//            sprintf(errMsg, "Call to ftruncate(%s) failed: %s\n", imageFileName, strerror(errno));
+//IFC//            fatalVMError(errMsg);
+//IFC//        }
+//IFC//        base = (byte*)mmap(0, fileSize, PROT_READ|PROT_WRITE, MAP_SHARED, fd, 0);
+//IFC//        if (base == (byte*)MAP_FAILED) {
+//IFC//            sprintf(errMsg, "Call to mmap(%s) failed: %s\n", imageFileName, strerror(errno));
+//IFC//            fatalVMError(errMsg);
+//IFC//        }
+//IFC//
+//IFC//        memcpy(base, mmr, mmrSize);
+//IFC//        for (offset = 0; offset < size; offset += IMAGEPAGESIZE) {
+//IFC//            int length = size - offset < IMAGEPAGESIZE ? size - offset : IMAGEPAGESIZE;
+//IFC//            byte* page = image + offset;
+//IFC//            int i;
+//IFC//            for (i = 0; i != length && page[i] == 0; i++) {
+//IFC//            }
+//IFC//            if (i != length) {
+//IFC//                memcpy(base + mmrSize + offset, page, length);
+//IFC//            }
+//IFC//        }
+//IFC//        msync(base, fileSize, MS_ASYNC);
+//IFC//        munmap(base, fileSize);
+//IFC//        close(fd);
+//IFC//   }
+//IFC//#endif /* MMAPIMAGE */
+//IFC//
+//IFC//   /*
+//IFC//    * Write 'size' bytes to a file, retrying partial writes.
+//IFC//    */
+//IFC//   void writeImageBytes(int fd, String imageFileName, byte* buf, int size) {
+//IFC//        static char errMsg[1024];
+//IFC//        while (size > 0) {
+//IFC//            int count = write(fd, buf, size);
+//IFC//            if (count == -1) {
+//IFC//                sprintf(errMsg, "Call to write(%s) failed: %s\n", imageFileName, strerror(errno));
+//IFC//                fatalVMError(errMsg);
+//IFC//            }
+//IFC//            buf  += count;
+//IFC//            size -= count;
+//IFC//        }
+//IFC//   }
+//IFC//
+//IFC//   /*
+//IFC//    * The checkpoint delta file being written. The format is described by
+//IFC//    * the Java version of these functions, with all words in the platform
+//IFC//    * byte order.
+//IFC//    */
+//IFC//   int imageDeltaFd = -1;
+//IFC//   String imageDeltaFileName;
+//IFC//
+//IFC//   void openImageDelta(String imageFileName, int mmr[], int size, boolean ignore) {
+//IFC//        static char errMsg[1024];
+//IFC//        int header[2+MMR_SIZE];
+//IFC//#ifdef _MSC_VER
+//IFC//        imageDeltaFd = open(imageFileName, O_RDWR | O_BINARY | O_CREAT | O_TRUNC, 0660);
+//IFC//#else
+//IFC//        imageDeltaFd = open(imageFileName, O_RDWR | O_CREAT | O_TRUNC, 0660);
+//IFC//#endif
+//IFC//        if (imageDeltaFd == -1) {
+//IFC//            sprintf(errMsg, "Call to open(%s) failed: %s\n", imageFileName, strerror(errno));
+//IFC//            fatalVMError(errMsg);
+//IFC//        }
+//IFC//        imageDeltaFileName = imageFileName;
+//IFC//        header[0] = CKPT_MAGICNUMBER;
+//IFC//        memcpy(header+1, mmr, MMR_SIZE*4);
+//IFC//        header[1+MMR_SIZE] = size;
+//IFC//        writeImageBytes(imageDeltaFd, imageDeltaFileName, (byte*)header, sizeof(header));
+//IFC//   }
+//IFC//
+//IFC//   void writeImageDeltaRegion(int offset, int length, boolean ignore) {
+//IFC//        int region[2];
+//IFC//        region[0] = offset;
+//IFC//        region[1] = length;
+//IFC//        writeImageBytes(imageDeltaFd, imageDeltaFileName, (byte*)region, sizeof(region));
+//IFC//   }
+//IFC//
+//IFC//   void writeImageDeltaBytes(byte* buf, int length) {
+//IFC//        writeImageBytes(imageDeltaFd, imageDeltaFileName, buf, length);
+//IFC//   }
+//IFC//
+//IFC//   void closeImageDelta(boolean ignore) {
+//IFC//        int end = -1;
+//IFC//        writeImageBytes(imageDeltaFd, imageDeltaFileName, (byte*)&end, 4);
+//IFC//        close(imageDeltaFd);
+//IFC//        imageDeltaFd = -1;
+//IFC//   }
+//IFC//
 //IFC//   void writeImage(String imageFileName, byte* image, int size, int mmr[], boolean ignore) {
 //IFC//#ifdef _MSC_VER
-//IFC//        int fd = open(imageFileName, O_RDWR | O_BINARY | O_CREAT, 660);
+//IFC//        int fd = open(imageFileName, O_RDWR | O_BINARY | O_CREAT | O_TRUNC, 0660);
 //IFC//#else
-//IFC//        int fd = open(imageFileName, O_RDWR | O_CREAT, 660);
+//IFC//        int fd = open(imageFileName, O_RDWR | O_CREAT | O_TRUNC, 0660);
 //IFC//#endif
 //IFC//        static char errMsg[1024];
 //IFC//        if (fd != -1) {
 //IFC//            int mmrSize = MMR_SIZE*4;
+//IFC//#ifdef MMAPIMAGE
+//IFC//            if (getMmapImage()) {
+//IFC//                writeMappedImage(fd, imageFileName, image, size, mmr);
+//IFC//                return;
+//IFC//            }
+//IFC//#endif /* MMAPIMAGE */
 //IFC//
 //IFC//            /* Write the MMR. */
 //IFC//            int count   = 0;
@@ -1154,7 +1374,17 @@
         if (s1 != null) freeObject(s1);
         if (s2 != null) freeObject(s2);
         if (r1 != null) {
-            setNativeByteArray(receive, r1, i1, i2);
+            /*
+             * An operation with a receive buffer receives bytes into it from
+             * offset i1 and returns the number it received. Copy back just
+             * those bytes.
+             */
+            if (res == 0) {
+                int count = (int)cio_result(chan);
+                if (count > 0) {
+                    setNativeByteArray(receive, r1, i1, count);
+                }
+            }
             freeObject(r1);
         }
         updateHighWaterMark();
@@ -85,10 +85,14 @@
             Segment_reloc(segment, delta);
         }
 
-        start   = getObjectMemoryStart(segment);
+        start   = getObjectPartitionStart(segment);
         end     = getObjectPartitionEnd(segment);
         freePtr = getObjectPartitionFree(segment);
 
+/*if[LISP2.COLLECTOR]*/
+        start   = getObjectMemoryStart(segment);
+/*end[LISP2.COLLECTOR]*/
+
         /* Relocate the roots. */
         for (i = MSR_roots; i != MSR_SIZE; i++) {
             relocateOop(segment, i, delta);
@@ -22,6 +22,72 @@
 /*MAC*/ void WriteBarrier_init(int $segment, int $segmentSize, int $firstOop, int $lastOop, int $bitmap, int $bitmapSize) {
             BitVector_init($segment, $segmentSize, $firstOop, $lastOop, $bitmap, $bitmapSize, true);
         }
+
+
+/*-----------------------------------------------------------------------*\
+ *                               Card table                              *
+\*-----------------------------------------------------------------------*/
+
+        /*
+         * The card table summarises the write barrier bitmap with one byte
+         * per card. Every bit set in the bitmap by the write barrier lies in
+         * a dirty card, so the collector only has to iterate over the bits
+         * of the dirty cards to find the pointers into the young generation.
+         */
+/*IFJ*/ private byte[] cardTable;
+//IFC// private byte  *cardTable = 0;
+        private int     cardCount = 0;
+        private int     cardBase;
+        private int     cardShift;
+
+        /**
+         * Initialize the card table. All the cards start dirty as the bitmap
+         * may already have bits set (e.g. when restarting from an image).
+         * @param start the first address covered by the table
+         * @param end the last address covered by the table
+         * @param cardSize the size (in bytes) of a card. Must be a power of 2.
+         */
+        void WriteBarrier_initCards(int start, int end, int cardSize) {
+            int i;
+            cardBase  = start;
+            cardShift = 0;
+            while ((1 << cardShift) < cardSize) {
+                cardShift++;
+            }
+            cardCount = ((end - start) >> cardShift) + 1;
+/*IFJ*/     cardTable = new byte[cardCount];
+//IFC//     if (cardTable != 0) {
+//IFC//         free(cardTable);
+//IFC//     }
+//IFC//     cardTable = (byte *)malloc(cardCount);
+            for (i = 0; i != cardCount; i++) {
+                cardTable[i] = 1;
+            }
+        }
+
+/*MAC*/ int     WriteBarrier_getCardCount()         { return cardCount;                     }
+/*MAC*/ int     WriteBarrier_getCardStart(int $card) { return cardBase + ($card << cardShift); }
+/*MAC*/ boolean WriteBarrier_isCardDirty(int $card) { return cardTable[$card] != 0;         }
+/*MAC*/ void    WriteBarrier_cleanCard(int $card)   { cardTable[$card] = 0;                 }
+
+        /**
+         * Mark the card containing a given address as dirty.
+         * @param addr
+         */
+/*MAC*/ void WriteBarrier_dirtyCard(int $addr) {
+            int card = ($addr - cardBase) >> cardShift;
+            if (card >= 0 && card < cardCount) {
+                cardTable[card] = 1;
+            }
+        }
+
+        /**
+         * Test whether the card containing a given address is dirty.
+         * @param addr
+         */
+/*MAC*/ boolean WriteBarrier_isAddressDirty(int $addr) {
+            return WriteBarrier_isCardDirty(($addr - cardBase) >> cardShift);
+        }
 /*end[LISP2.COLLECTOR]*/
 
 
@@ -48,6 +114,7 @@
                 }
 */
                 setOopBit($addr + ($offset * bytesPerWord()));
+                WriteBarrier_dirtyCard($addr + ($offset * bytesPerWord()));
 /*            }*/
 /*end[LISP2.COLLECTOR]*/
         }